@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Generators for synthetic but realistically shaped benchmark inputs: mod metadata, mod dependency graphs, class
+ * files and jars.
+ */
+public final class BenchmarkData {
+	private static final String ENVIRONMENT_DESC = "Lnet/fabricmc/api/Environment;";
+	private static final String ENV_TYPE_DESC = "Lnet/fabricmc/api/EnvType;";
+
+	/**
+	 * Synthetic mod as a node of a dependency graph.
+	 */
+	public static final class Mod {
+		public final String id;
+		public final String version;
+		public final Map<String, String> depends;
+		public final List<String> nestedJars = new ArrayList<>();
+
+		public Mod(String id, String version, Map<String, String> depends) {
+			this.id = id;
+			this.version = version;
+			this.depends = depends;
+		}
+	}
+
+	/**
+	 * Generate a mod dependency graph where every mod depends on up to 3 mods with a lower index.
+	 *
+	 * <p>Every 10th mod is present in two versions with the dependents accepting either, giving the resolver a choice.
+	 */
+	public static List<Mod> generateModGraph(int count, long seed) {
+		Random random = new Random(seed);
+		List<Mod> ret = new ArrayList<>(count + count / 10);
+
+		for (int i = 0; i < count; i++) {
+			Map<String, String> depends = new LinkedHashMap<>();
+			int depCount = i == 0 ? 0 : random.nextInt(Math.min(i, 3) + 1);
+
+			for (int j = 0; j < depCount; j++) {
+				int dep = random.nextInt(i);
+				depends.put(getModId(dep), dep % 10 == 0 ? ">=1.0.0 <3" : "^1.0.0");
+			}
+
+			String version = String.format("1.%d.%d+build.%d", random.nextInt(20), random.nextInt(10), i);
+			ret.add(new Mod(getModId(i), version, depends));
+
+			if (i % 10 == 0) {
+				ret.add(new Mod(getModId(i), String.format("2.0.0-beta.%d", i), depends));
+			}
+		}
+
+		return ret;
+	}
+
+	public static String getModId(int index) {
+		return String.format("mod_%04d", index);
+	}
+
+	/**
+	 * Generate a schema version 1 fabric.mod.json with the fields typically found in published mods.
+	 */
+	public static String generateModJson(Mod mod) {
+		StringBuilder sb = new StringBuilder(1024);
+		sb.append("{\n");
+		sb.append("\t\"schemaVersion\": 1,\n");
+		sb.append("\t\"id\": \"").append(mod.id).append("\",\n");
+		sb.append("\t\"version\": \"").append(mod.version).append("\",\n");
+		sb.append("\t\"name\": \"Benchmark Mod ").append(mod.id).append("\",\n");
+		sb.append("\t\"description\": \"Synthetic mod generated for benchmarking, adds nothing of value but a realistic amount of metadata.\",\n");
+		sb.append("\t\"authors\": [\"Alice\", {\"name\": \"Bob\", \"contact\": {\"email\": \"bob@example.com\"}}],\n");
+		sb.append("\t\"contact\": {\"homepage\": \"https://example.com/").append(mod.id).append("\", \"sources\": \"https://example.com/").append(mod.id).append("/src\"},\n");
+		sb.append("\t\"license\": \"Apache-2.0\",\n");
+		sb.append("\t\"icon\": \"assets/").append(mod.id).append("/icon.png\",\n");
+		sb.append("\t\"environment\": \"*\",\n");
+		sb.append("\t\"entrypoints\": {\n");
+		sb.append("\t\t\"main\": [\"benchmark.").append(mod.id).append(".Main\"],\n");
+		sb.append("\t\t\"client\": [{\"adapter\": \"default\", \"value\": \"benchmark.").append(mod.id).append(".Client\"}]\n");
+		sb.append("\t},\n");
+		sb.append("\t\"mixins\": [\"").append(mod.id).append(".mixins.json\", {\"config\": \"").append(mod.id).append(".client.mixins.json\", \"environment\": \"client\"}],\n");
+
+		if (!mod.nestedJars.isEmpty()) {
+			sb.append("\t\"jars\": [");
+
+			for (int i = 0; i < mod.nestedJars.size(); i++) {
+				if (i > 0) sb.append(", ");
+				sb.append("{\"file\": \"").append(mod.nestedJars.get(i)).append("\"}");
+			}
+
+			sb.append("],\n");
+		}
+
+		sb.append("\t\"depends\": {");
+		boolean first = true;
+
+		for (Map.Entry<String, String> entry : mod.depends.entrySet()) {
+			if (!first) sb.append(", ");
+			sb.append('"').append(entry.getKey()).append("\": \"").append(entry.getValue()).append('"');
+			first = false;
+		}
+
+		sb.append("},\n");
+		sb.append("\t\"suggests\": {\"another_mod\": \"*\"},\n");
+		sb.append("\t\"custom\": {\"modmenu\": {\"badges\": [\"library\"], \"parent\": \"").append(mod.id).append("\"}}\n");
+		sb.append("}\n");
+
+		return sb.toString();
+	}
+
+	/**
+	 * Generate a class with the given number of fields and methods, a quarter of them annotated as client only.
+	 *
+	 * @param internalName the class name in internal format, e.g. {@code benchmark/Foo}
+	 */
+	public static byte[] generateClass(String internalName, int memberCount) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName, null, "java/lang/Object", null);
+
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		for (int i = 0; i < memberCount; i++) {
+			boolean clientOnly = i % 4 == 3;
+
+			FieldVisitor fv = cw.visitField(Opcodes.ACC_PRIVATE, "field" + i, "I", null, null);
+			if (clientOnly) visitEnvironment(fv.visitAnnotation(ENVIRONMENT_DESC, false));
+			fv.visitEnd();
+
+			mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "method" + i, "(I)I", null, null);
+			if (clientOnly) visitEnvironment(mv.visitAnnotation(ENVIRONMENT_DESC, false));
+			mv.visitCode();
+			mv.visitVarInsn(Opcodes.ILOAD, 1);
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitFieldInsn(Opcodes.GETFIELD, internalName, "field" + i, "I");
+			mv.visitInsn(Opcodes.IADD);
+			mv.visitInsn(Opcodes.IRETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+
+		cw.visitEnd();
+
+		return cw.toByteArray();
+	}
+
+	private static void visitEnvironment(AnnotationVisitor av) {
+		av.visitEnum("value", ENV_TYPE_DESC, "CLIENT");
+		av.visitEnd();
+	}
+
+	/**
+	 * Create a jar with the given entries, the entry data is written as is.
+	 */
+	public static byte[] toJar(Map<String, byte[]> entries) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+		try (ZipOutputStream zos = new ZipOutputStream(bos)) {
+			for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				zos.putNextEntry(new ZipEntry(entry.getKey()));
+				zos.write(entry.getValue());
+				zos.closeEntry();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return bos.toByteArray();
+	}
+
+	public static void writeJar(Path file, Map<String, byte[]> entries) {
+		try {
+			Files.write(file, toJar(entries));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static byte[] toBytes(String str) {
+		return str.getBytes(StandardCharsets.UTF_8);
+	}
+
+	public static void deleteRecursively(Path path) {
+		if (path == null || !Files.exists(path)) return;
+
+		try {
+			Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					Files.delete(file);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+					if (exc != null) throw exc;
+
+					Files.delete(dir);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private BenchmarkData() { }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.Manifest;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.game.GameProvider;
+import net.fabricmc.loader.impl.game.patch.GameTransformer;
+import net.fabricmc.loader.impl.launch.FabricLauncher;
+import net.fabricmc.loader.impl.launch.FabricLauncherBase;
+import net.fabricmc.loader.impl.metadata.BuiltinModMetadata;
+import net.fabricmc.loader.impl.util.Arguments;
+
+/**
+ * Minimal launcher and game provider so loader internals relying on {@link FabricLauncherBase#getLauncher()} and
+ * {@link FabricLoaderImpl#getGameProvider()} can run outside of a real launch.
+ */
+public final class BenchmarkEnvironment {
+	public static final String GAME_ID = "benchmark";
+	public static final String GAME_VERSION = "1.0.0";
+
+	private static Path gameDir;
+
+	/**
+	 * Set up the launcher and game provider, may be called repeatedly.
+	 *
+	 * @return the temporary game directory
+	 */
+	public static synchronized Path init() {
+		if (gameDir != null) return gameDir;
+
+		try {
+			gameDir = Files.createTempDirectory("fabric-benchmark");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		Launcher launcher = new Launcher();
+		Provider provider = new Provider(gameDir);
+		provider.transformer.locateEntrypoints(launcher, Collections.emptyList());
+		FabricLoaderImpl.INSTANCE.setGameProvider(provider);
+
+		return gameDir;
+	}
+
+	private static final class Launcher extends FabricLauncherBase {
+		@Override
+		public void addToClassPath(Path path, String... allowedPrefixes) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setAllowedPrefixes(Path path, String... prefixes) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setValidParentClassPath(Collection<Path> paths) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public EnvType getEnvironmentType() {
+			return EnvType.CLIENT;
+		}
+
+		@Override
+		public boolean isClassLoaded(String name) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Class<?> loadIntoTarget(String name) throws ClassNotFoundException {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public InputStream getResourceAsStream(String name) {
+			return getTargetClassLoader().getResourceAsStream(name);
+		}
+
+		@Override
+		public ClassLoader getTargetClassLoader() {
+			return BenchmarkEnvironment.class.getClassLoader();
+		}
+
+		@Override
+		public byte[] getClassByteArray(String name, boolean runTransformers) throws IOException {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Manifest getManifest(Path originPath) {
+			return null;
+		}
+
+		@Override
+		public boolean isDevelopment() {
+			return false;
+		}
+
+		@Override
+		public String getEntrypoint() {
+			return "benchmark.Main";
+		}
+
+		@Override
+		public String getTargetNamespace() {
+			return "intermediary";
+		}
+
+		@Override
+		public List<Path> getClassPath() {
+			return Collections.emptyList();
+		}
+	}
+
+	private static final class Provider implements GameProvider {
+		private final Path gameDir;
+		private final GameTransformer transformer = new GameTransformer();
+
+		Provider(Path gameDir) {
+			this.gameDir = gameDir;
+		}
+
+		@Override
+		public String getGameId() {
+			return GAME_ID;
+		}
+
+		@Override
+		public String getGameName() {
+			return "Benchmark";
+		}
+
+		@Override
+		public String getRawGameVersion() {
+			return GAME_VERSION;
+		}
+
+		@Override
+		public String getNormalizedGameVersion() {
+			return GAME_VERSION;
+		}
+
+		@Override
+		public Collection<BuiltinMod> getBuiltinMods() {
+			return Collections.singletonList(new BuiltinMod(Collections.emptyList(), new BuiltinModMetadata.Builder(GAME_ID, GAME_VERSION).build()));
+		}
+
+		@Override
+		public String getEntrypoint() {
+			return "benchmark.Main";
+		}
+
+		@Override
+		public Path getLaunchDirectory() {
+			return gameDir;
+		}
+
+		@Override
+		public boolean isObfuscated() {
+			return false;
+		}
+
+		@Override
+		public boolean requiresUrlClassLoader() {
+			return false;
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return true;
+		}
+
+		@Override
+		public boolean locateGame(FabricLauncher launcher, String[] args) {
+			return true;
+		}
+
+		@Override
+		public void initialize(FabricLauncher launcher) { }
+
+		@Override
+		public GameTransformer getEntrypointTransformer() {
+			return transformer;
+		}
+
+		@Override
+		public void unlockClassPath(FabricLauncher launcher) { }
+
+		@Override
+		public void launch(ClassLoader loader) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Arguments getArguments() {
+			return new Arguments();
+		}
+
+		@Override
+		public String[] getLaunchArguments(boolean sanitize) {
+			return new String[0];
+		}
+	}
+
+	private BenchmarkEnvironment() { }
+}
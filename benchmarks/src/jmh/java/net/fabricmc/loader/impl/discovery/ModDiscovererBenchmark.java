@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.benchmark.BenchmarkData;
+import net.fabricmc.loader.impl.benchmark.BenchmarkEnvironment;
+import net.fabricmc.loader.impl.metadata.DependencyOverrides;
+import net.fabricmc.loader.impl.metadata.VersionOverrides;
+
+/**
+ * Discovery of a generated mods folder, every 5th mod nests two library mods (jar-in-jar).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ModDiscovererBenchmark {
+	private static final int CLASSES_PER_MOD = 20;
+	private static final int NESTED_JARS_PER_MOD = 2;
+
+	@Param({"100", "300"})
+	public int modCount;
+
+	private Path modsDir;
+	private VersionOverrides versionOverrides;
+	private DependencyOverrides depOverrides;
+
+	@Setup
+	public void setup() throws IOException {
+		Path gameDir = BenchmarkEnvironment.init();
+		modsDir = Files.createTempDirectory(gameDir, "mods");
+		versionOverrides = new VersionOverrides();
+		depOverrides = new DependencyOverrides(Paths.get("nonexistent"));
+
+		List<BenchmarkData.Mod> mods = BenchmarkData.generateModGraph(modCount, 1);
+
+		for (int i = 0; i < mods.size(); i++) {
+			BenchmarkData.Mod mod = mods.get(i);
+			Map<String, byte[]> entries = new LinkedHashMap<>();
+
+			if (i % 5 == 0) {
+				for (int j = 0; j < NESTED_JARS_PER_MOD; j++) {
+					BenchmarkData.Mod lib = new BenchmarkData.Mod(mod.id + "_lib" + j, "1.0.0", new HashMap<>());
+					String path = "META-INF/jars/" + lib.id + ".jar";
+					mod.nestedJars.add(path);
+					entries.put(path, createJar(lib));
+				}
+			}
+
+			addModContent(mod, entries);
+			BenchmarkData.writeJar(modsDir.resolve(mod.id + "-" + mod.version + ".jar"), entries);
+		}
+	}
+
+	private static byte[] createJar(BenchmarkData.Mod mod) {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		addModContent(mod, entries);
+
+		return BenchmarkData.toJar(entries);
+	}
+
+	private static void addModContent(BenchmarkData.Mod mod, Map<String, byte[]> entries) {
+		entries.put("fabric.mod.json", BenchmarkData.toBytes(BenchmarkData.generateModJson(mod)));
+
+		for (int i = 0; i < CLASSES_PER_MOD; i++) {
+			String name = "benchmark/" + mod.id + "/Class" + i;
+			entries.put(name + ".class", BenchmarkData.generateClass(name, 5));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkData.deleteRecursively(modsDir);
+	}
+
+	@Benchmark
+	public List<ModCandidate> discover() throws ModResolutionException {
+		ModDiscoverer discoverer = new ModDiscoverer(versionOverrides, depOverrides);
+		discoverer.addCandidateFinder(new DirectoryModCandidateFinder(modsDir, false));
+
+		try {
+			return discoverer.discoverMods(FabricLoaderImpl.INSTANCE, new HashMap<>(), false);
+		} finally {
+			discoverer.closeNestedJarStorage();
+		}
+	}
+}
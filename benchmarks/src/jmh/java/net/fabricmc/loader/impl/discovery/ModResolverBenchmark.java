@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.impl.benchmark.BenchmarkData;
+import net.fabricmc.loader.impl.metadata.DependencyOverrides;
+import net.fabricmc.loader.impl.metadata.LoaderModMetadata;
+import net.fabricmc.loader.impl.metadata.ModMetadataParser;
+import net.fabricmc.loader.impl.metadata.VersionOverrides;
+
+/**
+ * Resolution of synthetic mod sets, see {@link BenchmarkData#generateModGraph} for the graph shape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ModResolverBenchmark {
+	@Param({"500", "1000", "2000"})
+	public int modCount;
+
+	private List<ModCandidate> candidates;
+
+	@Setup
+	public void setup() throws Exception {
+		VersionOverrides versionOverrides = new VersionOverrides();
+		DependencyOverrides depOverrides = new DependencyOverrides(Paths.get("nonexistent"));
+		candidates = new ArrayList<>();
+
+		for (BenchmarkData.Mod mod : BenchmarkData.generateModGraph(modCount, 1)) {
+			String path = mod.id + "-" + mod.version + ".jar";
+			LoaderModMetadata metadata = ModMetadataParser.parseMetadata(new ByteArrayInputStream(BenchmarkData.toBytes(BenchmarkData.generateModJson(mod))),
+					path, Collections.emptyList(), versionOverrides, depOverrides, false);
+			List<Path> paths = Collections.singletonList(Paths.get(path));
+
+			candidates.add(ModCandidate.createPlain(paths, metadata, false, Collections.emptyList()));
+		}
+	}
+
+	@Benchmark
+	public List<ModCandidate> resolve() throws ModResolutionException {
+		return ModResolver.resolve(candidates, EnvType.CLIENT, new HashMap<>());
+	}
+}
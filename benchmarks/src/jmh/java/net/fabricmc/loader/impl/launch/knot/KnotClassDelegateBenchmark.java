@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.launch.knot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.benchmark.BenchmarkData;
+import net.fabricmc.loader.impl.benchmark.BenchmarkEnvironment;
+
+/**
+ * Knot's class loading paths for a jar of generated classes, without transformers (those are measured separately).
+ *
+ * <ul>
+ * <li>{@code defineClasses}: loading all classes through a fresh class loader, including reading and defining them.
+ * <li>{@code readClasses}: only reading the class bytes through the code source index.
+ * <li>{@code loadDefinedClasses}: looking up already defined classes.
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class KnotClassDelegateBenchmark {
+	@Param({"1000"})
+	public int classCount;
+
+	private Path jar;
+	private String[] names;
+	private KnotClassLoader sharedLoader;
+
+	@Setup
+	public void setup() throws IOException, ClassNotFoundException {
+		Path gameDir = BenchmarkEnvironment.init();
+		jar = Files.createTempFile(gameDir, "classes", ".jar");
+		names = new String[classCount];
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+
+		for (int i = 0; i < classCount; i++) {
+			String name = String.format("benchmark/pkg%d/Class%d", i % 20, i);
+			names[i] = name.replace('/', '.');
+			entries.put(name + ".class", BenchmarkData.generateClass(name, 5));
+		}
+
+		BenchmarkData.writeJar(jar, entries);
+
+		sharedLoader = createLoader();
+
+		for (String name : names) {
+			sharedLoader.loadClass(name);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		sharedLoader = null;
+		Files.deleteIfExists(jar);
+	}
+
+	private KnotClassLoader createLoader() {
+		KnotClassLoader ret = new KnotClassLoader(false, EnvType.CLIENT, FabricLoaderImpl.INSTANCE.getGameProvider());
+		ret.getDelegate().addCodeSource(jar);
+
+		return ret;
+	}
+
+	@Benchmark
+	public void defineClasses(Blackhole bh) throws ClassNotFoundException {
+		KnotClassLoader loader = createLoader();
+
+		for (String name : names) {
+			bh.consume(loader.loadClass(name));
+		}
+	}
+
+	@Benchmark
+	public void readClasses(Blackhole bh) throws IOException {
+		KnotClassDelegate<?> delegate = sharedLoader.getDelegate();
+
+		for (String name : names) {
+			bh.consume(delegate.getRawClassBytes(name));
+		}
+	}
+
+	@Benchmark
+	public void loadDefinedClasses(Blackhole bh) throws ClassNotFoundException {
+		for (String name : names) {
+			bh.consume(sharedLoader.loadClass(name));
+		}
+	}
+}
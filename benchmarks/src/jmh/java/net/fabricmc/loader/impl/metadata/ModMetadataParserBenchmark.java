@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.fabricmc.loader.impl.benchmark.BenchmarkData;
+
+/**
+ * Parsing a typical fabric.mod.json, with {@code schemaVersion} as the first field (single pass) and as a later
+ * field (rewind and second pass).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ModMetadataParserBenchmark {
+	private static final String SCHEMA_VERSION_FIELD = "\t\"schemaVersion\": 1,\n";
+
+	private byte[] json;
+	private byte[] jsonLateSchemaVersion;
+	private VersionOverrides versionOverrides;
+	private DependencyOverrides depOverrides;
+
+	@Setup
+	public void setup() {
+		List<BenchmarkData.Mod> mods = BenchmarkData.generateModGraph(50, 1);
+		String json = BenchmarkData.generateModJson(mods.get(mods.size() - 1));
+
+		this.json = BenchmarkData.toBytes(json);
+		this.jsonLateSchemaVersion = BenchmarkData.toBytes(json.replace(SCHEMA_VERSION_FIELD, "").replace("\t\"custom\"", SCHEMA_VERSION_FIELD + "\t\"custom\""));
+		versionOverrides = new VersionOverrides();
+		depOverrides = new DependencyOverrides(Paths.get("nonexistent"));
+	}
+
+	@Benchmark
+	public LoaderModMetadata parse() throws ParseMetadataException {
+		return ModMetadataParser.parseMetadata(new ByteArrayInputStream(json), "benchmark", Collections.emptyList(), versionOverrides, depOverrides, false);
+	}
+
+	@Benchmark
+	public LoaderModMetadata parseLateSchemaVersion() throws ParseMetadataException {
+		return ModMetadataParser.parseMetadata(new ByteArrayInputStream(jsonLateSchemaVersion), "benchmark", Collections.emptyList(), versionOverrides, depOverrides, false);
+	}
+}
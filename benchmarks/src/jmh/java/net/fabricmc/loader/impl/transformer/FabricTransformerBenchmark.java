@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.transformer;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.fabricmc.accesswidener.AccessWidenerReader;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.benchmark.BenchmarkData;
+import net.fabricmc.loader.impl.benchmark.BenchmarkEnvironment;
+
+/**
+ * Fabric's class transformation for the 3 main cases: environment stripping of mod classes, game classes without
+ * access widener entries (pass-through) and game classes targeted by an access widener.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FabricTransformerBenchmark {
+	private static final int MEMBER_COUNT = 40;
+	private static final String MOD_CLASS = "benchmark/mod/ModClass";
+	private static final String GAME_CLASS = "net/minecraft/GameClass";
+	private static final String WIDENED_GAME_CLASS = "net/minecraft/WidenedGameClass";
+
+	private byte[] modClass;
+	private byte[] gameClass;
+	private byte[] widenedGameClass;
+
+	@Setup
+	public void setup() throws Exception {
+		BenchmarkEnvironment.init();
+
+		modClass = BenchmarkData.generateClass(MOD_CLASS, MEMBER_COUNT);
+		gameClass = BenchmarkData.generateClass(GAME_CLASS, MEMBER_COUNT);
+		widenedGameClass = BenchmarkData.generateClass(WIDENED_GAME_CLASS, MEMBER_COUNT);
+
+		StringBuilder aw = new StringBuilder("accessWidener v2 intermediary\n");
+		aw.append("accessible class ").append(WIDENED_GAME_CLASS).append('\n');
+
+		for (int i = 0; i < MEMBER_COUNT; i += 2) {
+			aw.append("accessible field ").append(WIDENED_GAME_CLASS).append(" field").append(i).append(" I\n");
+			aw.append("extendable method ").append(WIDENED_GAME_CLASS).append(" method").append(i).append(" (I)I\n");
+		}
+
+		new AccessWidenerReader(FabricLoaderImpl.INSTANCE.getAccessWidener()).read(new BufferedReader(new StringReader(aw.toString())), "intermediary");
+	}
+
+	@Benchmark
+	public byte[] stripModClass() {
+		return FabricTransformer.transform(false, EnvType.SERVER, MOD_CLASS.replace('/', '.'), modClass);
+	}
+
+	@Benchmark
+	public byte[] passGameClass() {
+		return FabricTransformer.transform(false, EnvType.CLIENT, GAME_CLASS.replace('/', '.'), gameClass);
+	}
+
+	@Benchmark
+	public byte[] widenGameClass() {
+		return FabricTransformer.transform(false, EnvType.CLIENT, WIDENED_GAME_CLASS.replace('/', '.'), widenedGameClass);
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.util.version;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.fabricmc.loader.api.SemanticVersion;
+import net.fabricmc.loader.api.Version;
+import net.fabricmc.loader.api.VersionParsingException;
+import net.fabricmc.loader.api.metadata.version.VersionPredicate;
+
+/**
+ * Version and version predicate parsing, comparison and matching as done for every dependency during resolution.
+ *
+ * <p>The inputs cover plain releases, pre-releases with numeric and alphanumeric identifiers and build metadata.
+ *
+ * <p>The {@code *Reference} variants use the generic component and pre-release string walk that doesn't rely on the
+ * packed keys precomputed by {@link SemanticVersionImpl}, as the baseline for the regular variants.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VersionBenchmark {
+	private static final String[] VERSIONS = {
+			"1.0.0",
+			"1.20.1",
+			"0.14.22+1.20.1",
+			"2.0.0-beta.12",
+			"2.0.0-beta.2",
+			"2.0.0-rc.1+build.7",
+			"1.19.4-pre3",
+			"3.1.0-alpha.10.x"
+	};
+
+	private static final String[] PREDICATES = {
+			"*",
+			">=1.0.0",
+			"^1.0.0",
+			"~1.20",
+			">=1.19.4- <1.21",
+			"1.20.x",
+			"2.0.0-beta.12",
+	};
+
+	private static final int SORT_SIZE = 512;
+	private static final Pattern UNSIGNED_INTEGER = Pattern.compile("0|[1-9][0-9]*");
+
+	private SemanticVersion[] versions;
+	private VersionPredicate[] predicates;
+	private SemanticVersion[] unsorted;
+
+	@Setup
+	public void setup() throws VersionParsingException {
+		versions = new SemanticVersion[VERSIONS.length];
+
+		for (int i = 0; i < VERSIONS.length; i++) {
+			versions[i] = new SemanticVersionImpl(VERSIONS[i], false);
+		}
+
+		predicates = new VersionPredicate[PREDICATES.length];
+
+		for (int i = 0; i < PREDICATES.length; i++) {
+			predicates[i] = VersionPredicateParser.parse(PREDICATES[i]);
+		}
+
+		// mod set sized input for ID_VERSION_COMPARATOR / ModPrioSorter style sorting, mostly sharing leading components
+		Random rnd = new Random(42);
+		unsorted = new SemanticVersion[SORT_SIZE];
+
+		for (int i = 0; i < SORT_SIZE; i++) {
+			SemanticVersion base = versions[rnd.nextInt(versions.length)];
+			int[] components = ((SemanticVersionImpl) base).getVersionComponents();
+			components[components.length - 1] += rnd.nextInt(3);
+
+			unsorted[i] = new SemanticVersionImpl(components, base.getPrereleaseKey().orElse(null), base.getBuildKey().orElse(null));
+		}
+	}
+
+	@Benchmark
+	public void parseVersion(Blackhole bh) throws VersionParsingException {
+		for (String version : VERSIONS) {
+			bh.consume(new SemanticVersionImpl(version, false));
+		}
+	}
+
+	@Benchmark
+	public void parsePredicate(Blackhole bh) throws VersionParsingException {
+		for (String predicate : PREDICATES) {
+			bh.consume(VersionPredicateParser.parse(predicate));
+		}
+	}
+
+	@Benchmark
+	public void compareTo(Blackhole bh) {
+		for (SemanticVersion a : versions) {
+			for (SemanticVersion b : versions) {
+				bh.consume(a.compareTo(b));
+			}
+		}
+	}
+
+	@Benchmark
+	public void matchPredicate(Blackhole bh) {
+		for (VersionPredicate predicate : predicates) {
+			for (SemanticVersion version : versions) {
+				bh.consume(predicate.test(version));
+			}
+		}
+	}
+
+	@Benchmark
+	public void compareToReference(Blackhole bh) {
+		for (SemanticVersion a : versions) {
+			for (SemanticVersion b : versions) {
+				bh.consume(referenceCompare(a, b));
+			}
+		}
+	}
+
+	@Benchmark
+	public SemanticVersion[] sort() {
+		SemanticVersion[] ret = unsorted.clone();
+		Arrays.sort(ret, (a, b) -> a.compareTo((Version) b));
+
+		return ret;
+	}
+
+	@Benchmark
+	public SemanticVersion[] sortReference() {
+		SemanticVersion[] ret = unsorted.clone();
+		Arrays.sort(ret, VersionBenchmark::referenceCompare);
+
+		return ret;
+	}
+
+	/**
+	 * Comparison through the public {@link SemanticVersion} accessors, as done for arbitrary implementations.
+	 */
+	private static int referenceCompare(SemanticVersion a, SemanticVersion b) {
+		for (int i = 0; i < Math.max(a.getVersionComponentCount(), b.getVersionComponentCount()); i++) {
+			int first = a.getVersionComponent(i);
+			int second = b.getVersionComponent(i);
+
+			if (first == SemanticVersion.COMPONENT_WILDCARD || second == SemanticVersion.COMPONENT_WILDCARD) {
+				continue;
+			}
+
+			int compare = Integer.compare(first, second);
+			if (compare != 0) return compare;
+		}
+
+		Optional<String> prereleaseA = a.getPrereleaseKey();
+		Optional<String> prereleaseB = b.getPrereleaseKey();
+
+		if (prereleaseA.isPresent() || prereleaseB.isPresent()) {
+			if (prereleaseA.isPresent() && prereleaseB.isPresent()) {
+				StringTokenizer prereleaseATokenizer = new StringTokenizer(prereleaseA.get(), ".");
+				StringTokenizer prereleaseBTokenizer = new StringTokenizer(prereleaseB.get(), ".");
+
+				while (prereleaseATokenizer.hasMoreElements()) {
+					if (prereleaseBTokenizer.hasMoreElements()) {
+						String partA = prereleaseATokenizer.nextToken();
+						String partB = prereleaseBTokenizer.nextToken();
+
+						if (UNSIGNED_INTEGER.matcher(partA).matches()) {
+							if (UNSIGNED_INTEGER.matcher(partB).matches()) {
+								int compare = Integer.compare(partA.length(), partB.length());
+								if (compare != 0) return compare;
+							} else {
+								return -1;
+							}
+						} else {
+							if (UNSIGNED_INTEGER.matcher(partB).matches()) {
+								return 1;
+							}
+						}
+
+						int compare = partA.compareTo(partB);
+						if (compare != 0) return compare;
+					} else {
+						return 1;
+					}
+				}
+
+				return prereleaseBTokenizer.hasMoreElements() ? -1 : 0;
+			} else if (prereleaseA.isPresent()) {
+				return b.hasWildcard() ? 0 : -1;
+			} else {
+				return a.hasWildcard() ? 0 : 1;
+			}
+		} else {
+			return 0;
+		}
+	}
+}
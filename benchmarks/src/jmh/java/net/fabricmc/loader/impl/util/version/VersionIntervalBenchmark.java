@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.util.version;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.fabricmc.loader.api.VersionParsingException;
+import net.fabricmc.loader.api.metadata.version.VersionInterval;
+
+/**
+ * Interval algebra on the intervals of common predicates, as used to combine and invert dependency ranges.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VersionIntervalBenchmark {
+	private static final String[] PREDICATES = {
+			">=1.0.0 <2",
+			"^1.5.0",
+			"~1.20",
+			">=1.19.4- <1.21",
+			"1.20.x",
+			"<1.8",
+			">=2.0.0-beta.1",
+	};
+
+	private List<VersionInterval> intervals;
+	private List<VersionInterval> disjoint;
+
+	@Setup
+	public void setup() throws VersionParsingException {
+		intervals = new ArrayList<>(PREDICATES.length);
+
+		for (String predicate : PREDICATES) {
+			intervals.add(VersionPredicateParser.parse(predicate).getInterval());
+		}
+
+		disjoint = VersionIntervalImpl.not(VersionIntervalImpl.or(intervals.subList(0, 3), intervals.get(5)));
+	}
+
+	@Benchmark
+	public VersionInterval andPairs() {
+		VersionInterval ret = null;
+
+		for (VersionInterval a : intervals) {
+			for (VersionInterval b : intervals) {
+				VersionInterval res = VersionIntervalImpl.and(a, b);
+				if (res != null) ret = res;
+			}
+		}
+
+		return ret;
+	}
+
+	@Benchmark
+	public List<VersionInterval> andCollections() {
+		return VersionIntervalImpl.and(intervals, disjoint);
+	}
+
+	@Benchmark
+	public Collection<VersionInterval> orAll() {
+		Collection<VersionInterval> ret = new ArrayList<>();
+
+		for (VersionInterval interval : intervals) {
+			ret = VersionIntervalImpl.or(ret, interval);
+		}
+
+		return ret;
+	}
+
+	@Benchmark
+	public List<VersionInterval> not() {
+		return VersionIntervalImpl.not(intervals);
+	}
+}
@@ -53,6 +53,7 @@ import net.fabricmc.loader.impl.metadata.ModDependencyImpl;
 import net.fabricmc.loader.impl.util.Arguments;
 import net.fabricmc.loader.impl.util.ExceptionUtil;
 import net.fabricmc.loader.impl.util.LoaderUtil;
+import net.fabricmc.loader.impl.util.StartupProfiler;
 import net.fabricmc.loader.impl.util.SystemProperties;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
@@ -176,20 +177,22 @@ public class MinecraftGameProvider implements GameProvider {
 			Path envGameJar = GameProviderHelper.getEnvGameJar(envType);
 			boolean commonGameJarDeclared = commonGameJar != null;
 
-			if (commonGameJarDeclared) {
-				if (envGameJar != null) {
-					classifier.process(envGameJar, McLibrary.MC_COMMON);
-				}
+			try (StartupProfiler.Section section = StartupProfiler.start("library classification")) {
+				if (commonGameJarDeclared) {
+					if (envGameJar != null) {
+						classifier.process(envGameJar, McLibrary.MC_COMMON);
+					}
 
-				classifier.process(commonGameJar);
-			} else if (envGameJar != null) {
-				classifier.process(envGameJar);
-			}
+					classifier.process(commonGameJar);
+				} else if (envGameJar != null) {
+					classifier.process(envGameJar);
+				}
 
-			classifier.process(launcher.getClassPath());
+				classifier.process(launcher.getClassPath());
 
-			if (classifier.has(McLibrary.MC_BUNDLER)) {
-				BundlerProcessor.process(classifier);
+				if (classifier.has(McLibrary.MC_BUNDLER)) {
+					BundlerProcessor.process(classifier);
+				}
 			}
 
 			envGameJar = classifier.getOrigin(envGameLib);
@@ -318,10 +321,12 @@ public class MinecraftGameProvider implements GameProvider {
 				obfJars.put("realms", realmsJar);
 			}
 
-			obfJars = GameProviderHelper.deobfuscate(obfJars,
-					getGameId(), getNormalizedGameVersion(),
-					getLaunchDirectory(),
-					launcher);
+			try (StartupProfiler.Section section = StartupProfiler.start("game deobfuscation")) {
+				obfJars = GameProviderHelper.deobfuscate(obfJars,
+						getGameId(), getNormalizedGameVersion(),
+						getLaunchDirectory(),
+						launcher);
+			}
 
 			for (int i = 0; i < gameJars.size(); i++) {
 				Path newJar = obfJars.get(names[i]);
@@ -25,6 +25,7 @@ import java.util.function.Consumer;
 
 import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.api.entrypoint.EntrypointContainer;
+import net.fabricmc.loader.api.metrics.ClassLoadMetrics;
 import net.fabricmc.loader.impl.FabricLoaderImpl;
 
 /**
@@ -145,6 +146,16 @@ public interface FabricLoader {
 	 */
 	MappingResolver getMappingResolver();
 
+	/**
+	 * Get the class loading metrics.
+	 *
+	 * <p>The metrics record where the time loading the game's and mods' classes goes, both per class and per mod. They
+	 * are only recorded if enabled through the {@code fabric.classLoadMetrics} system property.
+	 *
+	 * @return the class loading metrics
+	 */
+	ClassLoadMetrics getClassLoadMetrics();
+
 	/**
 	 * Gets the container for a given mod.
 	 *
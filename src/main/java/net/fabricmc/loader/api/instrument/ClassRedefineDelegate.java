@@ -3,10 +3,64 @@ package net.fabricmc.loader.api.instrument;
 import net.fabricmc.loader.impl.launch.knot.KnotClassDelegate;
 
 import java.security.CodeSource;
+import java.util.Collection;
 
 public interface ClassRedefineDelegate<T extends ClassLoader & KnotClassDelegate.ClassLoaderAccess> {
 
 	T getClassLoader();
 
 	void redefineClass(String name, byte[] b, int off, int len, CodeSource cs);
+
+	/**
+	 * Redefine multiple classes at once.
+	 *
+	 * <p>Implementations backed by {@link java.lang.instrument.Instrumentation} should submit all definitions in a
+	 * single redefinition so the VM only has to reach a safepoint once. The default implementation redefines the
+	 * classes one by one.
+	 *
+	 * <p>A batched redefinition is all-or-nothing: if any class can't be found or rejects its new bytes, an exception
+	 * is thrown and none of the classes have been redefined. The default implementation stops at the first failing
+	 * class, leaving the classes before it redefined.
+	 *
+	 * @throws RuntimeException if a class couldn't be redefined
+	 */
+	default void redefineClasses(Collection<Definition> definitions) {
+		for (Definition definition : definitions) {
+			redefineClass(definition.getName(), definition.getBytes(), 0, definition.getBytes().length, definition.getCodeSource());
+		}
+	}
+
+	/**
+	 * New bytecode for an already loaded class.
+	 *
+	 * <p>The bytes are used as-is, without copying, and must not be modified after creating the definition.
+	 */
+	final class Definition {
+		private final String name;
+		private final byte[] bytes;
+		private final CodeSource codeSource;
+
+		/**
+		 * @param name binary name of the class to redefine
+		 * @param bytes complete class file of the new definition
+		 * @param codeSource code source the class was loaded from, may be null
+		 */
+		public Definition(String name, byte[] bytes, CodeSource codeSource) {
+			this.name = name;
+			this.bytes = bytes;
+			this.codeSource = codeSource;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+		public CodeSource getCodeSource() {
+			return codeSource;
+		}
+	}
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.api.metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import net.fabricmc.loader.api.FabricLoader;
+
+/**
+ * Timing and size metrics for the classes loaded through the game class loader, obtainable through
+ * {@link FabricLoader#getClassLoadMetrics}.
+ *
+ * <p>Recording is disabled by default since it adds a small overhead to every class load, it can be enabled by
+ * setting the system property {@code fabric.classLoadMetrics}. While disabled, all queries return empty results.
+ *
+ * <p>The metrics are recorded when a class is first defined, redefinitions aren't included. Classes served from a
+ * cache don't record any transformation time.
+ */
+public interface ClassLoadMetrics {
+	/**
+	 * Key for classes that aren't owned by any mod in {@link #getModStats()}, e.g. classes generated by Mixin.
+	 */
+	String UNKNOWN_MOD = "<unknown>";
+
+	/**
+	 * Whether metrics are being recorded.
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Get the aggregated metrics of all loaded classes.
+	 *
+	 * @return an immutable snapshot
+	 */
+	Stats getTotal();
+
+	/**
+	 * Get the metrics for a specific class.
+	 *
+	 * @param name binary name of the class, e.g. {@code net.minecraft.client.MinecraftClient}
+	 * @return an immutable snapshot of the metrics or null if the class wasn't loaded while recording
+	 */
+	/* @Nullable */
+	Stats getClassStats(String name);
+
+	/**
+	 * Get the metrics of all loaded classes.
+	 *
+	 * @return an immutable snapshot, keyed by binary class name
+	 */
+	Map<String, Stats> getClassStats();
+
+	/**
+	 * Get the metrics aggregated per mod owning the loaded classes' code source.
+	 *
+	 * @return an immutable snapshot, keyed by mod id or {@link #UNKNOWN_MOD}
+	 */
+	Map<String, Stats> getModStats();
+
+	/**
+	 * Write the current metrics to a file as JSON, including the per mod aggregates and the per class details.
+	 *
+	 * @param file the file to write, will be overwritten
+	 * @throws IOException if writing the file failed
+	 */
+	void dump(Path file) throws IOException;
+
+	enum Phase {
+		/** Reading the class file, including the game provider's entrypoint patches. */
+		READ,
+		/** Applying Fabric's transformers, e.g. access wideners and environment stripping. */
+		FABRIC_TRANSFORM,
+		/** Applying mixins. */
+		MIXIN_TRANSFORM,
+		/** Defining the class in the JVM. */
+		DEFINE
+	}
+
+	interface Stats {
+		/**
+		 * Get the number of classes covered by these metrics.
+		 */
+		int getClassCount();
+
+		/**
+		 * Get the total time spent in a phase in nanoseconds.
+		 */
+		long getNanos(Phase phase);
+
+		/**
+		 * Get the longest time spent in a phase by a single class in nanoseconds.
+		 */
+		long getMaxNanos(Phase phase);
+
+		/**
+		 * Get the distribution of the time spent in a phase per class.
+		 *
+		 * <p>The returned array has 64 log2 buckets, entry {@code i} counts the classes that took at least
+		 * {@code 2^(i-1)} and less than {@code 2^i} nanoseconds. Entry 0 counts classes that took no measurable time.
+		 */
+		long[] getHistogram(Phase phase);
+
+		/**
+		 * Get the total size of the class files before any transformation in bytes.
+		 */
+		long getBytesIn();
+
+		/**
+		 * Get the total size of the defined classes in bytes.
+		 */
+		long getBytesOut();
+	}
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.fabricmc.loader.api.metrics.ClassLoadMetrics;
+import net.fabricmc.loader.impl.lib.gson.JsonWriter;
+import net.fabricmc.loader.impl.util.LoaderUtil;
+import net.fabricmc.loader.impl.util.SystemProperties;
+
+/**
+ * Class load metrics store, recorded by the class loader delegate.
+ *
+ * <p>Recording only stores a sample per class, all aggregation happens when the metrics are queried. This keeps the
+ * overhead on the class loading path to taking a few timestamps and a single map insertion. Queries return immutable
+ * snapshots, the samples themselves are never exposed.
+ */
+public final class ClassLoadMetricsImpl implements ClassLoadMetrics {
+	public static final ClassLoadMetricsImpl INSTANCE = new ClassLoadMetricsImpl();
+
+	private static final boolean ENABLED = System.getProperty(SystemProperties.CLASS_LOAD_METRICS) != null;
+	private static final Phase[] PHASES = Phase.values();
+	private static final int BUCKETS = 64;
+
+	private final Map<String, Sample> samples = new ConcurrentHashMap<>();
+
+	private ClassLoadMetricsImpl() { }
+
+	/**
+	 * Create a new sample for a class about to be loaded.
+	 *
+	 * @return the sample or null if metrics aren't being recorded
+	 */
+	public static Sample newSample() {
+		return ENABLED ? new Sample() : null;
+	}
+
+	/**
+	 * Record the sample of a freshly defined class.
+	 *
+	 * @param codeSource normalized code source path of the class or null if unknown
+	 */
+	public void record(String name, Path codeSource, Sample sample) {
+		sample.codeSource = codeSource;
+		samples.putIfAbsent(name, sample);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return ENABLED;
+	}
+
+	@Override
+	public Stats getTotal() {
+		Aggregate ret = new Aggregate();
+
+		for (Sample sample : samples.values()) {
+			ret.add(sample);
+		}
+
+		return ret;
+	}
+
+	@Override
+	public Stats getClassStats(String name) {
+		Sample sample = samples.get(name);
+
+		return sample != null ? Aggregate.of(sample) : null;
+	}
+
+	@Override
+	public Map<String, Stats> getClassStats() {
+		Map<String, Stats> ret = new TreeMap<>();
+
+		for (Map.Entry<String, Sample> entry : samples.entrySet()) {
+			ret.put(entry.getKey(), Aggregate.of(entry.getValue()));
+		}
+
+		return Collections.unmodifiableMap(ret);
+	}
+
+	@Override
+	public Map<String, Stats> getModStats() {
+		Map<Path, String> modIds = getModIdsByCodeSource();
+		Map<String, Stats> ret = new TreeMap<>();
+
+		for (Sample sample : samples.values()) {
+			String modId = sample.codeSource != null ? modIds.get(sample.codeSource) : null;
+			if (modId == null) modId = UNKNOWN_MOD;
+
+			((Aggregate) ret.computeIfAbsent(modId, ignore -> new Aggregate())).add(sample);
+		}
+
+		return Collections.unmodifiableMap(ret);
+	}
+
+	private static Map<Path, String> getModIdsByCodeSource() {
+		Map<Path, String> ret = new HashMap<>();
+
+		// reloading may add containers for already present mod ids, the last one is the active one
+		for (ModContainerImpl mod : FabricLoaderImpl.INSTANCE.getModsInternal()) {
+			for (Path path : mod.getCodeSourcePaths()) {
+				ret.put(LoaderUtil.normalizePath(path), mod.getMetadata().getId());
+			}
+		}
+
+		return ret;
+	}
+
+	@Override
+	public void dump(Path file) throws IOException {
+		Map<String, Stats> classes = getClassStats();
+		Map<String, Stats> mods = getModStats();
+
+		if (file.getParent() != null) Files.createDirectories(file.getParent());
+
+		try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+			writer.setIndent("\t");
+			writer.beginObject();
+			writer.name("enabled").value(ENABLED);
+			writer.name("total");
+			writeStats(getTotal(), true, writer);
+
+			writer.name("mods").beginObject();
+
+			for (Map.Entry<String, Stats> entry : mods.entrySet()) {
+				writer.name(entry.getKey());
+				writeStats(entry.getValue(), true, writer);
+			}
+
+			writer.endObject();
+
+			writer.name("classes").beginObject();
+
+			for (Map.Entry<String, Stats> entry : classes.entrySet()) {
+				writer.name(entry.getKey());
+				writeStats(entry.getValue(), false, writer);
+			}
+
+			writer.endObject();
+			writer.endObject();
+		}
+	}
+
+	private static void writeStats(Stats stats, boolean aggregate, JsonWriter writer) throws IOException {
+		writer.beginObject();
+		if (aggregate) writer.name("classes").value(stats.getClassCount());
+		writer.name("bytesIn").value(stats.getBytesIn());
+		writer.name("bytesOut").value(stats.getBytesOut());
+
+		for (Phase phase : PHASES) {
+			String name = phase.name().toLowerCase(Locale.ENGLISH);
+
+			if (!aggregate) {
+				writer.name(name + "Ms").value(toMs(stats.getNanos(phase)));
+				continue;
+			}
+
+			writer.name(name).beginObject();
+			writer.name("totalMs").value(toMs(stats.getNanos(phase)));
+			writer.name("maxMs").value(toMs(stats.getMaxNanos(phase)));
+			writer.name("histogram").beginArray();
+
+			long[] histogram = stats.getHistogram(phase);
+			int last = histogram.length - 1;
+
+			while (last > 0 && histogram[last] == 0) {
+				last--;
+			}
+
+			for (int i = 0; i <= last; i++) {
+				writer.value(histogram[i]);
+			}
+
+			writer.endArray();
+			writer.endObject();
+		}
+
+		writer.endObject();
+	}
+
+	private static double toMs(long nanos) {
+		return Math.round(nanos / 1e3) / 1e3;
+	}
+
+	private static int getBucket(long nanos) {
+		return nanos <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+	}
+
+	/**
+	 * Metrics of a single class, filled in by the class loader delegate while loading it.
+	 */
+	public static final class Sample {
+		private final long[] nanos = new long[PHASES.length];
+		private long bytesIn;
+		private long bytesOut;
+		Path codeSource;
+
+		Sample() { }
+
+		public void addNanos(Phase phase, long nanos) {
+			this.nanos[phase.ordinal()] += nanos;
+		}
+
+		public void setBytes(long bytesIn, long bytesOut) {
+			this.bytesIn = bytesIn;
+			this.bytesOut = bytesOut;
+		}
+	}
+
+	/**
+	 * Metrics aggregated from samples, only modified while being built.
+	 */
+	private static final class Aggregate implements Stats {
+		private int classCount;
+		private final long[] nanos = new long[PHASES.length];
+		private final long[] maxNanos = new long[PHASES.length];
+		private final long[][] histograms = new long[PHASES.length][BUCKETS];
+		private long bytesIn;
+		private long bytesOut;
+
+		static Aggregate of(Sample sample) {
+			Aggregate ret = new Aggregate();
+			ret.add(sample);
+
+			return ret;
+		}
+
+		void add(Sample sample) {
+			classCount++;
+
+			for (int i = 0; i < PHASES.length; i++) {
+				long value = sample.nanos[i];
+				nanos[i] += value;
+				maxNanos[i] = Math.max(maxNanos[i], value);
+				histograms[i][getBucket(value)]++;
+			}
+
+			bytesIn += sample.bytesIn;
+			bytesOut += sample.bytesOut;
+		}
+
+		@Override
+		public int getClassCount() {
+			return classCount;
+		}
+
+		@Override
+		public long getNanos(Phase phase) {
+			return nanos[phase.ordinal()];
+		}
+
+		@Override
+		public long getMaxNanos(Phase phase) {
+			return maxNanos[phase.ordinal()];
+		}
+
+		@Override
+		public long[] getHistogram(Phase phase) {
+			return Arrays.copyOf(histograms[phase.ordinal()], BUCKETS);
+		}
+
+		@Override
+		public long getBytesIn() {
+			return bytesIn;
+		}
+
+		@Override
+		public long getBytesOut() {
+			return bytesOut;
+		}
+	}
+}
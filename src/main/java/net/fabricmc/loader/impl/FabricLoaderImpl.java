@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -47,6 +48,7 @@ import net.fabricmc.loader.api.MappingResolver;
 import net.fabricmc.loader.api.ModContainer;
 import net.fabricmc.loader.api.ObjectShare;
 import net.fabricmc.loader.api.entrypoint.EntrypointContainer;
+import net.fabricmc.loader.api.metrics.ClassLoadMetrics;
 import net.fabricmc.loader.impl.discovery.ArgumentModCandidateFinder;
 import net.fabricmc.loader.impl.discovery.ClasspathModCandidateFinder;
 import net.fabricmc.loader.impl.discovery.DirectoryModCandidateFinder;
@@ -54,6 +56,8 @@ import net.fabricmc.loader.impl.discovery.ModCandidate;
 import net.fabricmc.loader.impl.discovery.ModDiscoverer;
 import net.fabricmc.loader.impl.discovery.ModResolutionException;
 import net.fabricmc.loader.impl.discovery.ModResolver;
+import net.fabricmc.loader.impl.discovery.ModsDirectoryWatcher;
+import net.fabricmc.loader.impl.discovery.ProcessedModStore;
 import net.fabricmc.loader.impl.discovery.RuntimeModRemapper;
 import net.fabricmc.loader.impl.entrypoint.EntrypointStorage;
 import net.fabricmc.loader.impl.game.GameProvider;
@@ -66,6 +70,7 @@ import net.fabricmc.loader.impl.metadata.VersionOverrides;
 import net.fabricmc.loader.impl.util.DefaultLanguageAdapter;
 import net.fabricmc.loader.impl.util.ExceptionUtil;
 import net.fabricmc.loader.impl.util.LoaderUtil;
+import net.fabricmc.loader.impl.util.StartupProfiler;
 import net.fabricmc.loader.impl.util.SystemProperties;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
@@ -82,7 +87,7 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 	public static final String CACHE_DIR_NAME = ".fabric"; // relative to game dir
 	private static final String PROCESSED_MODS_DIR_NAME = "processedMods"; // relative to cache dir
 	public static final String REMAPPED_JARS_DIR_NAME = "remappedJars"; // relative to cache dir
-	private static final String TMP_DIR_NAME = "tmp"; // relative to cache dir
+	public static final String TMP_DIR_NAME = "tmp"; // relative to cache dir
 
 	protected final Map<String, ModContainerImpl> modMap = new HashMap<>();
 	private List<ModCandidate> modCandidates;
@@ -96,6 +101,8 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 
 	private boolean frozen = false;
 	private boolean reloadable = false;
+	private ModsDirectoryWatcher modsDirectoryWatcher;
+	private boolean autoReload;
 
 	private Object gameInstance;
 
@@ -191,33 +198,111 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 		if (provider == null) throw new IllegalStateException("game provider not set");
 		if (frozen) throw new IllegalStateException("Frozen - cannot load additional mods!");
 
+		// watch before discovering, so jars changed while discovering are part of the first reload
+		String watchMode = reloadable ? System.getProperty(SystemProperties.WATCH_MODS_FOLDER) : null;
+		if (watchMode != null && !watchMode.equals("false")) startModsDirectoryWatcher();
+
+		boolean success = false;
+
 		try {
-			setup(isDevelopmentEnvironment(), false);
+			setup(isDevelopmentEnvironment(), false, null);
+			success = true;
 		} catch (ModResolutionException exception) {
 			if (exception.getCause() == null) {
 				throw FormattedException.ofLocalized("exception.incompatible", exception.getMessage());
 			} else {
 				throw FormattedException.ofLocalized("exception.incompatible", exception);
 			}
+		} finally {
+			if (!success) stopModsDirectoryWatcher();
 		}
+
+		// the reload itself has to run on the game thread, see setReloadExecutor
+		autoReload = modsDirectoryWatcher != null && watchMode.equals("auto");
+	}
+
+	/**
+	 * Set the executor running automatic reloads once changes to the mods directory settled.
+	 *
+	 * <p>Only effective with {@code fabric.watchModsFolder=auto}. The executor has to run the reloads on the game thread,
+	 * e.g. by queueing them for the next tick, since reloading must not race with the game using the loaded mods.
+	 * Without an executor the watcher only records the changes for the next {@link #reloadIfChanged} call.
+	 *
+	 * @param executor the executor running the reloads on the game thread, or null to stop reloading automatically
+	 */
+	public synchronized void setReloadExecutor(Executor executor) {
+		if (modsDirectoryWatcher == null || !autoReload) return;
+
+		modsDirectoryWatcher.setListener(executor != null ? () -> executor.execute(this::autoReload) : null);
+	}
+
+	private synchronized void autoReload() {
+		try {
+			if (modsDirectoryWatcher != null && reloadIfChanged()) {
+				Log.info(LogCategory.GENERAL, "Reloaded mods after changes to the mods directory");
+			}
+		} catch (RuntimeException e) { // e.g. FormattedException for unresolvable mods, keep the game running as is
+			Log.error(LogCategory.GENERAL, "Reloading mods after changes to the mods directory failed", e);
+		}
+	}
+
+	private void startModsDirectoryWatcher() {
+		ModsDirectoryWatcher watcher = ModsDirectoryWatcher.start(getModsDirectory0());
+		if (watcher == null) return;
+
+		modsDirectoryWatcher = watcher;
+		Runtime.getRuntime().addShutdownHook(new Thread(this::stopModsDirectoryWatcher, "Fabric Mods Watcher shutdown"));
+	}
+
+	/**
+	 * Stop watching the mods directory, disabling {@link #reloadIfChanged}.
+	 */
+	public synchronized void stopModsDirectoryWatcher() {
+		if (modsDirectoryWatcher == null) return;
+
+		modsDirectoryWatcher.close();
+		modsDirectoryWatcher = null;
+	}
+
+	/**
+	 * Reload the mods if the mods directory watcher recorded changes since the previous (re)load.
+	 *
+	 * @return whether a reload happened
+	 */
+	public synchronized boolean reloadIfChanged() {
+		if (modsDirectoryWatcher == null) throw new IllegalStateException("Mods directory watching is disabled.");
+		if (!modsDirectoryWatcher.hasChanges()) return false;
+
+		unfreeze();
+		reload();
+
+		return true;
 	}
 
 	public void unfreeze(){
 		frozen = false;
 	}
 
-	public void reload(){
+	/**
+	 * Reload the mods, to be invoked on the game thread.
+	 */
+	public synchronized void reload(){
 		if (provider == null) throw new IllegalStateException("game provider not set");
 		if (frozen) throw new IllegalStateException("Frozen - cannot load additional mods!");
 		if (!reloadable)throw new IllegalStateException("Reloading feature is unavailable.");
+		ModsDirectoryWatcher.Delta modsDelta = modsDirectoryWatcher != null ? modsDirectoryWatcher.pollDelta() : null;
+		boolean success = false;
+		StartupProfiler.reset(); // profile only the latest load
 		try {
 			//todo: remap mods on reload
-			setup(false, true);
+			setup(false, true, modsDelta);
 			freeze();
 			if (getClass().getClassLoader() instanceof KnotClassLoader){
 				KnotClassLoader cl = (KnotClassLoader) getClass().getClassLoader();
 				cl.getDelegate().reloadAllDelegatedClass(true);
 			}
+			StartupProfiler.dump(getGameDir().resolve(CACHE_DIR_NAME));
+			success = true;
 		} catch (ModResolutionException exception) {
 			if (exception.getCause() == null) {
 				throw FormattedException.ofLocalized("exception.incompatible", exception.getMessage());
@@ -226,10 +311,13 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 			}
 		} catch (ClassNotFoundException e) {
             throw new RuntimeException(e);
-        }
+        } finally {
+			// the changes may not have been applied, rescan everything next time
+			if (!success && modsDirectoryWatcher != null) modsDirectoryWatcher.markOverflow();
+		}
     }
 
-	private void setup(boolean remapRegularMods, boolean isReload) throws ModResolutionException {
+	private void setup(boolean remapRegularMods, boolean isReload, ModsDirectoryWatcher.Delta modsDelta) throws ModResolutionException {
 //		boolean remapRegularMods = isDevelopmentEnvironment();
 		VersionOverrides versionOverrides = new VersionOverrides();
 		DependencyOverrides depOverrides = new DependencyOverrides(configDir);
@@ -240,73 +328,91 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 		discoverer.addCandidateFinder(new ClasspathModCandidateFinder());
 		discoverer.addCandidateFinder(new DirectoryModCandidateFinder(getModsDirectory0(), remapRegularMods));
 		discoverer.addCandidateFinder(new ArgumentModCandidateFinder(remapRegularMods));
+		discoverer.setModsDirectoryDelta(modsDelta);
 
-		Map<String, Set<ModCandidate>> envDisabledMods = new HashMap<>();
-		modCandidates = discoverer.discoverMods(this, envDisabledMods, isReload);
+		// the nested jar storage is populated by discovery and only needed until the nested mods are extracted
+		try {
+			Map<String, Set<ModCandidate>> envDisabledMods = new HashMap<>();
 
-		// dump version and dependency overrides info
+			try (StartupProfiler.Section section = StartupProfiler.start("mod discovery")) {
+				modCandidates = discoverer.discoverMods(this, envDisabledMods, isReload);
+			}
 
-		if (!versionOverrides.getAffectedModIds().isEmpty()) {
-			Log.info(LogCategory.GENERAL, "Versions overridden for %s", String.join(", ", versionOverrides.getAffectedModIds()));
-		}
+			// dump version and dependency overrides info
 
-		if (!depOverrides.getAffectedModIds().isEmpty()) {
-			Log.info(LogCategory.GENERAL, "Dependencies overridden for %s", String.join(", ", depOverrides.getAffectedModIds()));
-		}
+			if (!versionOverrides.getAffectedModIds().isEmpty()) {
+				Log.info(LogCategory.GENERAL, "Versions overridden for %s", String.join(", ", versionOverrides.getAffectedModIds()));
+			}
 
+			if (!depOverrides.getAffectedModIds().isEmpty()) {
+				Log.info(LogCategory.GENERAL, "Dependencies overridden for %s", String.join(", ", depOverrides.getAffectedModIds()));
+			}
 
-		// resolve mods
-		modCandidates = ModResolver.resolve(modCandidates, getEnvironmentType(), envDisabledMods);
 
-		dumpModList(modCandidates);
+			Path cacheDir = gameDir.resolve(CACHE_DIR_NAME);
 
-		Path cacheDir = gameDir.resolve(CACHE_DIR_NAME);
-		Path outputdir = cacheDir.resolve(PROCESSED_MODS_DIR_NAME);
+			// resolve mods
+			try (StartupProfiler.Section section = StartupProfiler.start("mod resolution")) {
+				modCandidates = ModResolver.resolve(modCandidates, getEnvironmentType(), envDisabledMods, discoverer.getCandidateIndex(), cacheDir);
+			}
 
-		// runtime mod remapping
+			dumpModList(modCandidates);
 
-		if (remapRegularMods) {
-			if (System.getProperty(SystemProperties.REMAP_CLASSPATH_FILE) == null) {
-				Log.warn(LogCategory.MOD_REMAP, "Runtime mod remapping disabled due to no fabric.remapClasspathFile being specified. You may need to update loom.");
-			} else {
-				RuntimeModRemapper.remap(modCandidates, cacheDir.resolve(TMP_DIR_NAME), outputdir);
+			Path outputdir = cacheDir.resolve(PROCESSED_MODS_DIR_NAME);
+
+			// runtime mod remapping
+
+			if (remapRegularMods) {
+				if (System.getProperty(SystemProperties.REMAP_CLASSPATH_FILE) == null) {
+					Log.warn(LogCategory.MOD_REMAP, "Runtime mod remapping disabled due to no fabric.remapClasspathFile being specified. You may need to update loom.");
+				} else {
+					try (StartupProfiler.Section section = StartupProfiler.start("runtime mod remapping")) {
+						RuntimeModRemapper.remap(modCandidates, cacheDir.resolve(TMP_DIR_NAME), outputdir);
+					}
+				}
 			}
-		}
 
-		// shuffle mods in-dev to reduce the risk of false order reliance, apply late load requests
+			// shuffle mods in-dev to reduce the risk of false order reliance, apply late load requests
 
-		if (isDevelopmentEnvironment() && System.getProperty(SystemProperties.DEBUG_DISABLE_MOD_SHUFFLE) == null) {
-			Collections.shuffle(modCandidates);
-		}
+			if (isDevelopmentEnvironment() && System.getProperty(SystemProperties.DEBUG_DISABLE_MOD_SHUFFLE) == null) {
+				Collections.shuffle(modCandidates);
+			}
 
-		String modsToLoadLate = System.getProperty(SystemProperties.DEBUG_LOAD_LATE);
+			String modsToLoadLate = System.getProperty(SystemProperties.DEBUG_LOAD_LATE);
 
-		if (modsToLoadLate != null) {
-			for (String modId : modsToLoadLate.split(",")) {
-				for (Iterator<ModCandidate> it = modCandidates.iterator(); it.hasNext(); ) {
-					ModCandidate mod = it.next();
+			if (modsToLoadLate != null) {
+				for (String modId : modsToLoadLate.split(",")) {
+					for (Iterator<ModCandidate> it = modCandidates.iterator(); it.hasNext(); ) {
+						ModCandidate mod = it.next();
 
-					if (mod.getId().equals(modId)) {
-						it.remove();
-						modCandidates.add(mod);
-						break;
+						if (mod.getId().equals(modId)) {
+							it.remove();
+							modCandidates.add(mod);
+							break;
+						}
 					}
 				}
 			}
-		}
 
-		// add mods
+			// add mods
+
+			// saving the manifest on failure too keeps the jars extracted so far
+			try (StartupProfiler.Section section = StartupProfiler.start("nested mod extraction");
+					ProcessedModStore processedModStore = ProcessedModStore.open(outputdir)) {
+				for (ModCandidate mod : modCandidates) {
+					if (!mod.hasPath() && !mod.isBuiltin()) {
+						try {
+							mod.setPaths(Collections.singletonList(processedModStore.extract(mod)));
+						} catch (IOException e) {
+							throw new RuntimeException("Error extracting mod "+mod, e);
+						}
+					}
 
-		for (ModCandidate mod : modCandidates) {
-			if (!mod.hasPath() && !mod.isBuiltin()) {
-				try {
-					mod.setPaths(Collections.singletonList(mod.copyToDir(outputdir, false)));
-				} catch (IOException e) {
-					throw new RuntimeException("Error extracting mod "+mod, e);
+					addMod(mod);
 				}
 			}
-
-			addMod(mod);
+		} finally {
+			discoverer.closeNestedJarStorage();
 		}
 
 //		modCandidates = null;
@@ -379,8 +485,13 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 			}
 		}
 
-		setupLanguageAdapters();
-		setupMods();
+		try (StartupProfiler.Section section = StartupProfiler.start("language adapter setup")) {
+			setupLanguageAdapters();
+		}
+
+		try (StartupProfiler.Section section = StartupProfiler.start("entrypoint setup")) {
+			setupMods();
+		}
 	}
 
 	public boolean hasEntrypoints(String key) {
@@ -410,7 +521,9 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 		Log.debug(LogCategory.ENTRYPOINT, "Iterating over entrypoint '%s'", key);
 
 		for (EntrypointContainer<T> container : entrypoints) {
-			try {
+			String sectionName = StartupProfiler.isEnabled() ? key + " entrypoint " + container.getProvider().getMetadata().getId() : null;
+
+			try (StartupProfiler.Section section = StartupProfiler.start(sectionName)) {
 				invoker.accept(container.getEntrypoint());
 			} catch (Throwable t) {
 				exception = ExceptionUtil.gatherExceptions(t,
@@ -445,6 +558,11 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 		return objectShare;
 	}
 
+	@Override
+	public ClassLoadMetrics getClassLoadMetrics() {
+		return ClassLoadMetricsImpl.INSTANCE;
+	}
+
 	public ModCandidate getModCandidate(String id) {
 		if (modCandidates == null) return null;
 
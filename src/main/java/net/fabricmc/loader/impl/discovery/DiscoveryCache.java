@@ -0,0 +1,307 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.util.SystemProperties;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Persistent record of the mod jars' {@code fabric.mod.json} and nested jar structure from previous launches.
+ *
+ * <p>Entries are keyed by the jar path and validated by its size and modification time, optionally also by a hash of
+ * its contents. A valid entry allows discovery to skip opening the jar and any of its nested jars. The raw
+ * {@code fabric.mod.json} is stored instead of the parsed metadata, so version and dependency overrides still apply.
+ *
+ * <p>The whole cache is discarded if the loader version, environment type or development mode changed as these
+ * influence parsing and which nested jars get scanned.
+ */
+final class DiscoveryCache {
+	private static final String FILE_NAME = "discoveryCache.bin"; // relative to cache dir
+	private static final int MAGIC = 0x46444331; // FDC1
+	private static final int MAX_DEPTH = 32;
+	private static final boolean VERIFY_HASH = System.getProperty(SystemProperties.DISCOVERY_CACHE_VERIFY_HASH) != null;
+
+	/**
+	 * Scan result of a single jar, nested jars have their own nodes.
+	 */
+	static final class Node {
+		byte[] modJson; // null if the jar isn't a mod
+		final List<String> nestedNames = new ArrayList<>();
+		final List<Long> nestedHashes = new ArrayList<>();
+		final List<Node> nested = new ArrayList<>();
+
+		synchronized void addNested(String name, long hash, Node node) {
+			nestedNames.add(name);
+			nestedHashes.add(hash);
+			nested.add(node);
+		}
+	}
+
+	static final class Stamp {
+		final long size;
+		final long lastModified;
+		final long contentHash; // 0 if not computed
+
+		Stamp(long size, long lastModified, long contentHash) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.contentHash = contentHash;
+		}
+
+		boolean matches(Stamp o) {
+			return size == o.size
+					&& lastModified == o.lastModified
+					&& (!VERIFY_HASH || contentHash != 0 && contentHash == o.contentHash);
+		}
+	}
+
+	private static final class Entry {
+		final Stamp stamp;
+		final Node node;
+
+		Entry(Stamp stamp, Node node) {
+			this.stamp = stamp;
+			this.node = node;
+		}
+	}
+
+	private final Path file;
+	private final String environment;
+	private final Map<String, Entry> entries;
+	private final Map<String, Entry> newEntries = new ConcurrentHashMap<>();
+	private volatile boolean modified;
+
+	private DiscoveryCache(Path file, String environment, Map<String, Entry> entries) {
+		this.file = file;
+		this.environment = environment;
+		this.entries = entries;
+	}
+
+	static DiscoveryCache load(Path cacheDir, EnvType envType, boolean isDevelopment) {
+		Path file = cacheDir.resolve(FILE_NAME);
+		String environment = String.format("%s %s %s", FabricLoaderImpl.VERSION, envType.name(), isDevelopment);
+		Map<String, Entry> entries;
+
+		try (DataInputStream is = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			entries = read(is, environment);
+		} catch (NoSuchFileException e) {
+			entries = Collections.emptyMap();
+		} catch (IOException | RuntimeException e) {
+			Log.debug(LogCategory.DISCOVERY, "Can't read discovery cache %s: %s", file, e);
+			entries = Collections.emptyMap();
+		}
+
+		return new DiscoveryCache(file, environment, entries);
+	}
+
+	private static Map<String, Entry> read(DataInputStream is, String environment) throws IOException {
+		if (is.readInt() != MAGIC) throw new IOException("invalid magic");
+
+		if (!is.readUTF().equals(environment)) {
+			Log.debug(LogCategory.DISCOVERY, "Discarding discovery cache for a different loader version or environment");
+			return Collections.emptyMap();
+		}
+
+		int count = is.readInt();
+		Map<String, Entry> ret = new HashMap<>(count);
+
+		for (int i = 0; i < count; i++) {
+			String path = is.readUTF();
+			Stamp stamp = new Stamp(is.readLong(), is.readLong(), is.readLong());
+			ret.put(path, new Entry(stamp, readNode(is, 0)));
+		}
+
+		return ret;
+	}
+
+	private static Node readNode(DataInputStream is, int depth) throws IOException {
+		if (depth > MAX_DEPTH) throw new IOException("excessive nesting");
+
+		Node ret = new Node();
+
+		if (is.readBoolean()) {
+			ret.modJson = new byte[is.readInt()];
+			is.readFully(ret.modJson);
+		}
+
+		int nestedCount = is.readInt();
+
+		for (int i = 0; i < nestedCount; i++) {
+			String name = is.readUTF();
+			long hash = is.readLong();
+			ret.addNested(name, hash, readNode(is, depth + 1));
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Determine the current stamp of a mod jar.
+	 *
+	 * @return the stamp or null if the file can't be cached
+	 */
+	Stamp getStamp(Path path) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			if (!attrs.isRegularFile()) return null;
+
+			return new Stamp(attrs.size(), attrs.lastModifiedTime().toMillis(), VERIFY_HASH ? hashContents(path) : 0);
+		} catch (IOException e) {
+			Log.debug(LogCategory.DISCOVERY, "Can't stamp %s for the discovery cache: %s", path, e);
+			return null;
+		}
+	}
+
+	private static long hashContents(Path path) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[65536];
+		long size = 0;
+		int len;
+
+		try (InputStream is = Files.newInputStream(path)) {
+			while ((len = is.read(buffer)) >= 0) {
+				crc.update(buffer, 0, len);
+				size += len;
+			}
+		}
+
+		return crc.getValue() << 32 | size & 0xffffffffL | 1L << 63; // top bit ensures != 0
+	}
+
+	/**
+	 * Get the recorded scan result for a mod jar.
+	 *
+	 * @return the scan result or null if there is none matching the stamp
+	 */
+	Node get(Path path, Stamp stamp) {
+		String key = path.toString();
+		Entry entry = entries.get(key);
+		if (entry == null || !entry.stamp.matches(stamp)) return null;
+
+		newEntries.put(key, entry);
+
+		return entry.node;
+	}
+
+	/**
+	 * Get the recorded scan result for a mod jar that is known to be unchanged, without checking its stamp.
+	 */
+	Node getUnchecked(Path path) {
+		String key = path.toString();
+		Entry entry = entries.get(key);
+		if (entry == null) return null;
+
+		newEntries.put(key, entry);
+
+		return entry.node;
+	}
+
+	/**
+	 * Drop the recorded scan result for a mod jar known to be changed, even if its stamp still matches.
+	 */
+	void invalidate(Path path) {
+		entries.remove(path.toString());
+	}
+
+	/**
+	 * Record the scan result for a mod jar.
+	 *
+	 * <p>The node may still be filled in concurrently by nested jar scans, it'll only be read by {@link #save}.
+	 */
+	void put(Path path, Stamp stamp, Node node) {
+		newEntries.put(path.toString(), new Entry(stamp, node));
+		modified = true;
+	}
+
+	/**
+	 * Write the entries used or recorded since loading, if they differ from the loaded ones.
+	 */
+	void save() {
+		if (!modified && newEntries.size() == entries.size()) return;
+
+		Path tmpFile = file.resolveSibling(FILE_NAME + ".tmp");
+
+		try {
+			Files.createDirectories(file.getParent());
+
+			try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				os.writeInt(MAGIC);
+				os.writeUTF(environment);
+				os.writeInt(newEntries.size());
+
+				for (Map.Entry<String, Entry> e : newEntries.entrySet()) {
+					Stamp stamp = e.getValue().stamp;
+
+					os.writeUTF(e.getKey());
+					os.writeLong(stamp.size);
+					os.writeLong(stamp.lastModified);
+					os.writeLong(stamp.contentHash);
+					writeNode(os, e.getValue().node);
+				}
+			}
+
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Log.warn(LogCategory.DISCOVERY, "Can't write discovery cache %s", file, e);
+
+			try {
+				Files.deleteIfExists(tmpFile);
+			} catch (IOException e2) {
+				// ignore
+			}
+		}
+	}
+
+	private static void writeNode(DataOutputStream os, Node node) throws IOException {
+		os.writeBoolean(node.modJson != null);
+
+		if (node.modJson != null) {
+			os.writeInt(node.modJson.length);
+			os.write(node.modJson);
+		}
+
+		os.writeInt(node.nested.size());
+
+		for (int i = 0; i < node.nested.size(); i++) {
+			os.writeUTF(node.nestedNames.get(i));
+			os.writeLong(node.nestedHashes.get(i));
+			writeNode(os, node.nested.get(i));
+		}
+	}
+}
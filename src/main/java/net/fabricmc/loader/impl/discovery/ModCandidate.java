@@ -16,13 +16,12 @@
 
 package net.fabricmc.loader.impl.discovery;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -30,6 +29,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
@@ -40,6 +40,7 @@ import net.fabricmc.loader.impl.metadata.AbstractModMetadata;
 import net.fabricmc.loader.impl.metadata.DependencyOverrides;
 import net.fabricmc.loader.impl.metadata.LoaderModMetadata;
 import net.fabricmc.loader.impl.metadata.VersionOverrides;
+import net.fabricmc.loader.impl.util.MappedZipFile;
 
 public final class ModCandidate implements DomainObject.Mod {
 	static final Comparator<ModCandidate> ID_VERSION_COMPARATOR = new Comparator<ModCandidate>() {
@@ -60,22 +61,24 @@ public final class ModCandidate implements DomainObject.Mod {
 	private final Collection<ModCandidate> nestedMods;
 	private final Collection<ModCandidate> parentMods;
 	private int minNestLevel;
-	private SoftReference<ByteBuffer> dataRef;
+	private final NestedJarStorage storage;
+	private ByteBuffer data;
 
 	static ModCandidate createBuiltin(BuiltinMod mod, VersionOverrides versionOverrides, DependencyOverrides depOverrides) {
 		LoaderModMetadata metadata = new BuiltinMetadataWrapper(mod.metadata);
 		versionOverrides.apply(metadata);
 		depOverrides.apply(metadata);
 
-		return new ModCandidate(mod.paths, null, -1, metadata, false, Collections.emptyList());
+		return new ModCandidate(mod.paths, null, -1, metadata, false, Collections.emptyList(), null);
 	}
 
 	static ModCandidate createPlain(List<Path> paths, LoaderModMetadata metadata, boolean requiresRemap, Collection<ModCandidate> nestedMods) {
-		return new ModCandidate(paths, null, -1, metadata, requiresRemap, nestedMods);
+		return new ModCandidate(paths, null, -1, metadata, requiresRemap, nestedMods, null);
 	}
 
-	static ModCandidate createNested(String localPath, long hash, LoaderModMetadata metadata, boolean requiresRemap, Collection<ModCandidate> nestedMods) {
-		return new ModCandidate(null, localPath, hash, metadata, requiresRemap, nestedMods);
+	static ModCandidate createNested(String localPath, long hash, LoaderModMetadata metadata, boolean requiresRemap, Collection<ModCandidate> nestedMods,
+			NestedJarStorage storage) {
+		return new ModCandidate(null, localPath, hash, metadata, requiresRemap, nestedMods, storage);
 	}
 
 	static long hash(ZipEntry entry) {
@@ -84,11 +87,12 @@ public final class ModCandidate implements DomainObject.Mod {
 		return entry.getCrc() << 32 | entry.getSize();
 	}
 
-	private static long getSize(long hash) {
+	static long getSize(long hash) {
 		return hash & 0xffffffffL;
 	}
 
-	private ModCandidate(List<Path> paths, String localPath, long hash, LoaderModMetadata metadata, boolean requiresRemap, Collection<ModCandidate> nestedMods) {
+	private ModCandidate(List<Path> paths, String localPath, long hash, LoaderModMetadata metadata, boolean requiresRemap, Collection<ModCandidate> nestedMods,
+			NestedJarStorage storage) {
 		this.originPaths = paths;
 		this.paths = paths;
 		this.localPath = localPath;
@@ -98,6 +102,7 @@ public final class ModCandidate implements DomainObject.Mod {
 		this.nestedMods = nestedMods;
 		this.parentMods = paths == null ? new ArrayList<>() : Collections.emptyList();
 		this.minNestLevel = paths != null ? 0 : Integer.MAX_VALUE;
+		this.storage = storage;
 	}
 
 	public List<Path> getOriginPaths() {
@@ -121,6 +126,13 @@ public final class ModCandidate implements DomainObject.Mod {
 		clearCachedData();
 	}
 
+	/**
+	 * Get the CRC and size based hash of a nested mod's jar, -1 for other mods.
+	 */
+	long getHash() {
+		return hash;
+	}
+
 	public String getLocalPath() {
 		if (localPath != null) {
 			return localPath;
@@ -208,12 +220,16 @@ public final class ModCandidate implements DomainObject.Mod {
 		return minNestLevel == 0;
 	}
 
+	/**
+	 * Set the jar data, which is expected to be off-heap or a slice of the parent's data. It is retained until
+	 * {@link #clearCachedData} or {@link #setPaths} get called.
+	 */
 	void setData(ByteBuffer data) {
-		this.dataRef = new SoftReference<>(data);
+		this.data = data;
 	}
 
 	void clearCachedData() {
-		this.dataRef = null;
+		this.data = null;
 	}
 
 	public Path copyToDir(Path outputDir, boolean temp) throws IOException {
@@ -270,105 +286,108 @@ public final class ModCandidate implements DomainObject.Mod {
 
 	private static final Pattern FILE_NAME_SANITIZING_PATTERN = Pattern.compile("[^\\w\\.\\-\\+]+");
 
-	private void copyToFile(Path out) throws IOException {
-		SoftReference<ByteBuffer> dataRef = this.dataRef;
+	void copyToFile(Path out) throws IOException {
+		ByteBuffer data = this.data;
 
-		if (dataRef != null) {
-			ByteBuffer data = dataRef.get();
+		if (data == null) {
+			if (paths != null) {
+				if (paths.size() != 1) throw new UnsupportedOperationException("multiple paths for "+this);
+
+				Files.copy(paths.get(0), out);
 
-			if (data != null) {
-				Files.copy(new ByteArrayInputStream(data.array(), data.arrayOffset() + data.position(), data.arrayOffset() + data.limit()), out, StandardCopyOption.REPLACE_EXISTING);
 				return;
 			}
-		}
 
-		if (paths != null) {
-			if (paths.size() != 1) throw new UnsupportedOperationException("multiple paths for "+this);
+			data = readFromParent(getBestSourcingParent());
+		}
 
-			Files.copy(paths.get(0), out);
+		try (FileChannel channel = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			data = data.duplicate();
 
-			return;
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
 		}
+	}
+
+	/**
+	 * Get the data of a nested mod's jar, reading it from its parent if it isn't retained yet.
+	 *
+	 * <p>Mods with paths are read through their parent's path by {@link #readFromParent} instead.
+	 */
+	private ByteBuffer getData() throws IOException {
+		ByteBuffer ret = this.data;
+		if (ret != null) return ret;
+
+		if (paths != null) throw new IllegalStateException("data requested for mod with paths "+this);
 
-		ModCandidate parent = getBestSourcingParent();
+		ret = readFromParent(getBestSourcingParent());
+		this.data = ret;
 
+		return ret;
+	}
+
+	/**
+	 * Read this mod's jar from its parent, as a slice of the parent's data if the jar is stored uncompressed.
+	 */
+	private ByteBuffer readFromParent(ModCandidate parent) throws IOException {
 		if (parent.paths != null) {
 			if (parent.paths.size() != 1) throw new UnsupportedOperationException("multiple parent paths for "+this);
 
+			if (!ModDiscoverer.DISABLE_MAPPED_JARS) {
+				// the mapping gets released before returning, so the data has to be copied out of it
+				try (MappedZipFile zf = MappedZipFile.open(parent.paths.get(0))) {
+					MappedZipFile.Entry entry = getEntry(zf, parent);
+
+					return storage != null ? storage.copy(zf, entry) : ByteBuffer.wrap(zf.getBytes(entry));
+				} catch (ZipException e) {
+					// unsupported by MappedZipFile, fall back to ZipFile
+				}
+			}
+
 			try (ZipFile zf = new ZipFile(parent.paths.get(0).toFile())) {
 				ZipEntry entry = zf.getEntry(localPath);
 				if (entry == null) throw new IOException(String.format("can't find nested mod %s in its parent mod %s", this, parent));
 
-				Files.copy(zf.getInputStream(entry), out);
+				return store(ModDiscoverer.readMod(zf.getInputStream(entry)));
 			}
 		} else {
 			ByteBuffer data = parent.getData();
 
-			try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(data.array(), data.arrayOffset() + data.position(), data.arrayOffset() + data.limit()))) {
+			try {
+				MappedZipFile zf = MappedZipFile.open(data);
+				MappedZipFile.Entry entry = getEntry(zf, parent);
+
+				return storage != null ? storage.store(zf, entry) : zf.getData(entry);
+			} catch (ZipException e) {
+				// unsupported by MappedZipFile, fall back to ZipInputStream
+			}
+
+			try (ZipInputStream zis = new ZipInputStream(new ModDiscoverer.ByteBufferInputStream(data))) {
 				ZipEntry entry = null;
 
 				while ((entry = zis.getNextEntry()) != null) {
 					if (entry.getName().equals(localPath)) {
-						Files.copy(zis, out);
-						return;
+						return store(ModDiscoverer.readMod(zis));
 					}
 				}
 			}
 
-			throw new IOException(String.format("can't find nested mod %s in its parent mod %s", this, parent));
+			throw new IOException(String.format("can't find nested mod %s in its parent mods %s", this, parent));
 		}
 	}
 
-	private ByteBuffer getData() throws IOException {
-		SoftReference<ByteBuffer> dataRef = this.dataRef;
-
-		if (dataRef != null) {
-			ByteBuffer ret = dataRef.get();
-			if (ret != null) return ret;
-		}
-
-		ByteBuffer ret;
-
-		if (paths != null) {
-			if (paths.size() != 1) throw new UnsupportedOperationException("multiple paths for "+this);
-
-			ret = ByteBuffer.wrap(Files.readAllBytes(paths.get(0)));
-		} else {
-			ModCandidate parent = getBestSourcingParent();
-
-			if (parent.paths != null) {
-				if (parent.paths.size() != 1) throw new UnsupportedOperationException("multiple parent paths for "+this);
-
-				try (ZipFile zf = new ZipFile(parent.paths.get(0).toFile())) {
-					ZipEntry entry = zf.getEntry(localPath);
-					if (entry == null) throw new IOException(String.format("can't find nested mod %s in its parent mod %s", this, parent));
-
-					ret = ModDiscoverer.readMod(zf.getInputStream(entry));
-				}
-			} else {
-				ByteBuffer data = parent.getData();
-				ret = null;
-
-				try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(data.array(), data.arrayOffset() + data.position(), data.arrayOffset() + data.limit()))) {
-					ZipEntry entry = null;
-
-					while ((entry = zis.getNextEntry()) != null) {
-						if (entry.getName().equals(localPath)) {
-							ret = ModDiscoverer.readMod(zis);
-							break;
-						}
-					}
-				}
-
-				if (ret == null) throw new IOException(String.format("can't find nested mod %s in its parent mods %s", this, parent));
-			}
-		}
-
-		this.dataRef = new SoftReference<>(ret);
+	private MappedZipFile.Entry getEntry(MappedZipFile zf, ModCandidate parent) throws IOException {
+		MappedZipFile.Entry ret = zf.getEntry(localPath);
+		if (ret == null) throw new IOException(String.format("can't find nested mod %s in its parent mod %s", this, parent));
 
 		return ret;
 	}
 
+	private ByteBuffer store(ByteBuffer data) throws IOException {
+		return storage != null ? storage.store(data) : data;
+	}
+
 	private ModCandidate getBestSourcingParent() {
 		if (parentMods.isEmpty()) return null;
 
@@ -378,7 +397,7 @@ public final class ModCandidate implements DomainObject.Mod {
 			if (parent.minNestLevel >= minNestLevel) continue;
 
 			if (parent.paths != null && parent.paths.size() == 1
-					|| parent.dataRef != null && parent.dataRef.get() != null) {
+					|| parent.data != null) {
 				return parent;
 			}
 
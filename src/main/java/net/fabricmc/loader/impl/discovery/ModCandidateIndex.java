@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.fabricmc.loader.api.metadata.ModDependency;
+
+/**
+ * Index of the mod candidates matching each candidate's dependencies, built while discovery is still running.
+ *
+ * <p>Discovery adds candidates as soon as they got parsed. New dependencies get evaluated against the already added
+ * candidates and new candidates against the already added dependencies targeting their ids, so the version predicate
+ * evaluation overlaps with discovery's I/O. Solver setup, which runs multiple times when analyzing failures, then only
+ * needs identity lookups.
+ *
+ * <p>Candidates and dependencies are grouped into a bucket per id, each with its own lock, so concurrent scan tasks only
+ * contend when they touch the same id.
+ *
+ * <p>Only the matches are precomputed. The constraints themselves can't be built early since they depend on the
+ * priority order, which in turn depends on the nesting information that is only complete after discovery finished.
+ */
+public final class ModCandidateIndex {
+	private final Set<ModCandidate> mods = Collections.newSetFromMap(new ConcurrentHashMap<>());
+	private final Map<String, Bucket> buckets = new ConcurrentHashMap<>(); // by id, provided id and dependency target id
+
+	/**
+	 * Candidates and dependencies for a single id, guarded by the bucket's monitor.
+	 */
+	private static final class Bucket {
+		final List<ModCandidate> mods = new ArrayList<>(); // with the id or providing it
+		final Map<ModDependency, Set<ModCandidate>> matches = new IdentityHashMap<>(); // dependencies targeting the id
+
+		synchronized void addMod(ModCandidate mod) {
+			mods.add(mod);
+
+			for (Map.Entry<ModDependency, Set<ModCandidate>> entry : matches.entrySet()) {
+				if (entry.getKey().matches(mod.getVersion())) entry.getValue().add(mod);
+			}
+		}
+
+		synchronized void addDependency(ModDependency dep) {
+			Set<ModCandidate> depMatches = Collections.newSetFromMap(new IdentityHashMap<>());
+
+			for (ModCandidate mod : mods) {
+				if (dep.matches(mod.getVersion())) depMatches.add(mod);
+			}
+
+			matches.put(dep, depMatches);
+		}
+
+		synchronized Set<ModCandidate> getMatches(ModDependency dep) {
+			return matches.get(dep);
+		}
+	}
+
+	/**
+	 * Add a candidate, may be called concurrently.
+	 */
+	void add(ModCandidate mod) {
+		if (!mods.add(mod)) return;
+
+		getBucket(mod.getId()).addMod(mod);
+
+		for (String provided : mod.getProvides()) {
+			getBucket(provided).addMod(mod);
+		}
+
+		for (ModDependency dep : mod.getDependencies()) {
+			getBucket(dep.getModId()).addDependency(dep);
+		}
+	}
+
+	private Bucket getBucket(String id) {
+		return buckets.computeIfAbsent(id, ignore -> new Bucket());
+	}
+
+	/**
+	 * Determine whether a mod satisfies a dependency's version requirements, preferring the precomputed result.
+	 *
+	 * <p>Only to be called once all concurrent {@link #add} invocations completed.
+	 */
+	boolean matches(ModDependency dep, DomainObject.Mod mod) {
+		if (mod instanceof ModCandidate && mods.contains(mod)) {
+			Bucket bucket = buckets.get(dep.getModId());
+			Set<ModCandidate> depMatches = bucket != null ? bucket.getMatches(dep) : null;
+			if (depMatches != null) return depMatches.contains(mod);
+		}
+
+		return dep.matches(mod.getVersion());
+	}
+}
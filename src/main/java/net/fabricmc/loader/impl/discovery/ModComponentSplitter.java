@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.fabricmc.loader.api.metadata.ModDependency;
+
+/**
+ * Splits a resolution problem into independent components.
+ *
+ * <p>Two candidates end up in the same component if they share an id or provided id, one references the other's id
+ * through a dependency the solver encodes or one is a parent of the other. References to forced mods, which are root
+ * mods without alternatives, don't connect components since the forced mod is selected in every solution. Such mods
+ * are made available to the referencing components' dependency lookups instead.
+ *
+ * <p>Components share no solver variables besides forced mods and the objective is a sum over the individual mods, so
+ * solving them separately yields an optimal solution for the whole problem if the objective weights are still derived
+ * from the global priorities.
+ */
+final class ModComponentSplitter {
+	static final class Component {
+		final List<ModCandidate> mods = new ArrayList<>();
+		final Map<String, List<ModCandidate>> modsById = new LinkedHashMap<>(); // own and referenced forced mod groups
+		final Set<ModCandidate> members = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		/**
+		 * Whether the component consists of a single mod, which can be decided without the solver.
+		 */
+		boolean isTrivial() {
+			return mods.size() == 1;
+		}
+	}
+
+	private final Map<ModCandidate, Integer> nodes;
+	private int[] roots;
+
+	private ModComponentSplitter(int capacity) {
+		this.nodes = new IdentityHashMap<>(capacity);
+		this.roots = new int[capacity];
+	}
+
+	/**
+	 * Split the candidates into components, ordered by their highest priority mod.
+	 */
+	static List<Component> split(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById) {
+		ModComponentSplitter splitter = new ModComponentSplitter(allModsSorted.size());
+
+		for (ModCandidate mod : allModsSorted) {
+			splitter.getNode(mod);
+		}
+
+		for (List<ModCandidate> mods : modsById.values()) {
+			int first = splitter.getNode(mods.get(0));
+
+			for (int i = 1; i < mods.size(); i++) {
+				splitter.union(first, splitter.getNode(mods.get(i)));
+			}
+		}
+
+		for (ModCandidate mod : allModsSorted) {
+			int node = splitter.getNode(mod);
+
+			for (ModDependency dep : mod.getDependencies()) {
+				List<ModCandidate> targets = getReferencedGroup(dep, modsById);
+
+				if (targets != null && !isForcedGroup(targets, modsById)) {
+					splitter.union(node, splitter.getNode(targets.get(0)));
+				}
+			}
+
+			if (!hasForcedParent(mod, modsById)) { // a forced parent always satisfies the nested mod's parent requirement
+				for (ModCandidate parent : mod.getParentMods()) {
+					splitter.union(node, splitter.getNode(parent));
+				}
+			}
+		}
+
+		// group by component root
+
+		Map<Integer, Component> components = new LinkedHashMap<>();
+
+		for (ModCandidate mod : allModsSorted) {
+			Component component = components.computeIfAbsent(splitter.find(splitter.getNode(mod)), ignore -> new Component());
+			component.mods.add(mod);
+			component.members.add(mod);
+		}
+
+		for (Map.Entry<String, List<ModCandidate>> entry : modsById.entrySet()) {
+			Component component = components.get(splitter.find(splitter.getNode(entry.getValue().get(0))));
+			if (component != null) component.modsById.put(entry.getKey(), entry.getValue());
+		}
+
+		for (Component component : components.values()) {
+			for (ModCandidate mod : component.mods) {
+				for (ModDependency dep : mod.getDependencies()) {
+					List<ModCandidate> targets = getReferencedGroup(dep, modsById);
+
+					if (targets != null && isForcedGroup(targets, modsById)) {
+						component.modsById.putIfAbsent(dep.getModId(), targets);
+					}
+				}
+			}
+		}
+
+		return new ArrayList<>(components.values());
+	}
+
+	/**
+	 * Get the candidates for a dependency the solver creates constraints for.
+	 */
+	private static List<ModCandidate> getReferencedGroup(ModDependency dep, Map<String, List<ModCandidate>> modsById) {
+		switch (dep.getKind()) {
+		case DEPENDS:
+		case RECOMMENDS:
+		case BREAKS:
+			return modsById.get(dep.getModId());
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Determine whether a mod is selected in every solution, the solver forces it through the single root mod rule.
+	 */
+	static boolean isForced(ModCandidate mod, Map<String, List<ModCandidate>> modsById) {
+		return mod.isRoot()
+				&& mod.getLoadCondition() == ModLoadCondition.ALWAYS
+				&& modsById.get(mod.getId()).size() == 1;
+	}
+
+	private static boolean isForcedGroup(List<ModCandidate> group, Map<String, List<ModCandidate>> modsById) {
+		return group.size() == 1 && isForced(group.get(0), modsById);
+	}
+
+	private static boolean hasForcedParent(ModCandidate mod, Map<String, List<ModCandidate>> modsById) {
+		for (ModCandidate parent : mod.getParentMods()) {
+			List<ModCandidate> group = modsById.get(parent.getId());
+
+			if (group != null && group.contains(parent) && isForced(parent, modsById)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private int getNode(ModCandidate mod) {
+		Integer ret = nodes.get(mod);
+		if (ret != null) return ret;
+
+		int node = nodes.size();
+		nodes.put(mod, node);
+
+		if (node == roots.length) roots = Arrays.copyOf(roots, Math.max(16, node * 2));
+		roots[node] = node;
+
+		return node;
+	}
+
+	private int find(int node) {
+		while (roots[node] != node) {
+			roots[node] = roots[roots[node]];
+			node = roots[node];
+		}
+
+		return node;
+	}
+
+	private void union(int a, int b) {
+		a = find(a);
+		b = find(b);
+
+		if (a != b) {
+			// keep the lower (higher priority) node as the root to retain a stable component order
+			if (a < b) {
+				roots[b] = a;
+			} else {
+				roots[a] = b;
+			}
+		}
+	}
+}
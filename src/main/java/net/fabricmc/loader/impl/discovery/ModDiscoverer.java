@@ -16,6 +16,7 @@
 
 package net.fabricmc.loader.impl.discovery;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -35,6 +36,7 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
@@ -43,6 +45,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
@@ -62,17 +65,26 @@ import net.fabricmc.loader.impl.metadata.ParseMetadataException;
 import net.fabricmc.loader.impl.metadata.VersionOverrides;
 import net.fabricmc.loader.impl.util.ExceptionUtil;
 import net.fabricmc.loader.impl.util.LoaderUtil;
+import net.fabricmc.loader.impl.util.MappedZipFile;
 import net.fabricmc.loader.impl.util.SystemProperties;
+import net.fabricmc.loader.impl.util.WorkerPool;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
 
 public final class ModDiscoverer {
+	static final boolean DISABLE_MAPPED_JARS = System.getProperty(SystemProperties.DEBUG_DISABLE_MAPPED_JARS) != null;
+
 	private final VersionOverrides versionOverrides;
 	private final DependencyOverrides depOverrides;
 	private final List<ModCandidateFinder> candidateFinders = new ArrayList<>();
 	private final EnvType envType = FabricLoaderImpl.INSTANCE.getEnvironmentType();
 	private final Map<Long, ModScanTask> jijDedupMap = new ConcurrentHashMap<>(); // avoids reading the same jar twice
 	private final List<NestedModInitData> nestedModInitDatas = Collections.synchronizedList(new ArrayList<>()); // breaks potential cycles from deduplication
+	private DiscoveryCache cache;
+	private NestedJarStorage nestedJarStorage;
+	private final Queue<MappedZipFile> retainedJars = new ConcurrentLinkedQueue<>(); // top-level jars nested jars were sliced from
+	private final ModCandidateIndex candidateIndex = new ModCandidateIndex();
+	private ModsDirectoryWatcher.Delta modsDirectoryDelta;
 
 	public ModDiscoverer(VersionOverrides versionOverrides, DependencyOverrides depOverrides) {
 		this.versionOverrides = versionOverrides;
@@ -83,9 +95,34 @@ public final class ModDiscoverer {
 		candidateFinders.add(f);
 	}
 
+	/**
+	 * Set the mods directory changes since the previous discovery, unchanged jars are then taken from the discovery
+	 * cache without validating them.
+	 */
+	public void setModsDirectoryDelta(ModsDirectoryWatcher.Delta delta) {
+		this.modsDirectoryDelta = delta;
+	}
+
 	public List<ModCandidate> discoverMods(FabricLoaderImpl loader, Map<String, Set<ModCandidate>> envDisabledModsOut, boolean isReload) throws ModResolutionException {
 		long startTime = System.nanoTime();
-		ForkJoinPool pool = new ForkJoinPool();
+
+		Path cacheDir = loader.getGameDir().resolve(FabricLoaderImpl.CACHE_DIR_NAME);
+
+		if (System.getProperty(SystemProperties.DEBUG_DISABLE_DISCOVERY_CACHE) == null) {
+			cache = DiscoveryCache.load(cacheDir, envType, loader.isDevelopmentEnvironment());
+
+			if (modsDirectoryDelta != null) {
+				Log.debug(LogCategory.DISCOVERY, "Mods directory changes: %s", modsDirectoryDelta);
+
+				for (Path path : modsDirectoryDelta.getModified()) {
+					cache.invalidate(path);
+				}
+			}
+		}
+
+		nestedJarStorage = NestedJarStorage.create(cacheDir.resolve(FabricLoaderImpl.TMP_DIR_NAME));
+
+		ForkJoinPool pool = WorkerPool.get();
 		Set<Path> processedPaths = new HashSet<>(); // suppresses duplicate paths
 		List<Future<ModCandidate>> futures = new ArrayList<>();
 
@@ -120,42 +157,39 @@ public final class ModDiscoverer {
 		for (BuiltinMod mod : loader.getGameProvider().getBuiltinMods()) {
 			ModCandidate candidate = ModCandidate.createBuiltin(mod, versionOverrides, depOverrides);
 			candidates.add(MetadataVerifier.verifyIndev(candidate, loader.isDevelopmentEnvironment()));
+			candidateIndex.add(candidate);
 		}
 
 		// Add the current Java version
-		candidates.add(MetadataVerifier.verifyIndev(createJavaMod(), loader.isDevelopmentEnvironment()));
+		ModCandidate javaMod = createJavaMod();
+		candidates.add(MetadataVerifier.verifyIndev(javaMod, loader.isDevelopmentEnvironment()));
+		candidateIndex.add(javaMod);
 
 		ModResolutionException exception = null;
 
 		int timeout = Integer.getInteger(SystemProperties.DEBUG_DISCOVERY_TIMEOUT, 60);
 		if (timeout <= 0) timeout = Integer.MAX_VALUE;
 
-		try {
-			pool.shutdown();
-
-			pool.awaitTermination(timeout, TimeUnit.SECONDS);
+		// the pool is shared, so wait for the individual tasks instead of the pool's termination
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
 
+		try {
 			for (Future<ModCandidate> future : futures) {
-				if (!future.isDone()) {
-					throw new TimeoutException();
-				}
-
 				try {
-					ModCandidate candidate = future.get();
+					ModCandidate candidate = getResult(future, deadline);
 					if (candidate != null) candidates.add(candidate);
 				} catch (ExecutionException e) {
 					exception = ExceptionUtil.gatherExceptions(e, exception, exc -> new ModResolutionException("Mod discovery failed!", exc));
 				}
 			}
 
-			for (NestedModInitData data : nestedModInitDatas) {
-				for (Future<ModCandidate> future : data.futures) {
-					if (!future.isDone()) {
-						throw new TimeoutException();
-					}
+			// tasks add their nested tasks' init data before completing, so the list is complete once all tasks in it are done
+			for (int i = 0; i < nestedModInitDatas.size(); i++) {
+				NestedModInitData data = nestedModInitDatas.get(i);
 
+				for (Future<ModCandidate> future : data.futures) {
 					try {
-						ModCandidate candidate = future.get();
+						ModCandidate candidate = getResult(future, deadline);
 						if (candidate != null) data.target.add(candidate);
 					} catch (ExecutionException e) {
 						exception = ExceptionUtil.gatherExceptions(e, exception, exc -> new ModResolutionException("Mod discovery failed!", exc));
@@ -174,6 +208,8 @@ public final class ModDiscoverer {
 			throw exception;
 		}
 
+		if (cache != null) cache.save();
+
 		// get optional set of disabled mod ids
 		Set<String> disabledModIds = findDisabledModIds();
 
@@ -209,7 +245,9 @@ public final class ModDiscoverer {
 						.setName("Fabric Loader")
 						.build();
 				BuiltinMod builtinMod = new BuiltinMod(Collections.emptyList(), metadata);
-				ret.add(ModCandidate.createBuiltin(builtinMod, versionOverrides, depOverrides));
+				ModCandidate candidate = ModCandidate.createBuiltin(builtinMod, versionOverrides, depOverrides);
+				ret.add(candidate);
+				candidateIndex.add(candidate);
 			}
 		}
 
@@ -218,8 +256,9 @@ public final class ModDiscoverer {
 				.setName("Nekofied Fabric Loader")
 				.build();
 		BuiltinMod builtinMod = new BuiltinMod(Collections.emptyList(), metadata);
-		ret.add(ModCandidate.createBuiltin(builtinMod, versionOverrides, depOverrides));
-
+		ModCandidate candidate = ModCandidate.createBuiltin(builtinMod, versionOverrides, depOverrides);
+		ret.add(candidate);
+		candidateIndex.add(candidate);
 
 		long endTime = System.nanoTime();
 
@@ -228,6 +267,37 @@ public final class ModDiscoverer {
 		return new ArrayList<>(ret);
 	}
 
+	private static ModCandidate getResult(Future<ModCandidate> future, long deadline) throws ExecutionException, InterruptedException, TimeoutException {
+		long remaining = deadline - System.nanoTime();
+		if (remaining <= 0 && !future.isDone()) throw new TimeoutException();
+
+		return future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Get the dependency matches between the candidates found by {@link #discoverMods}, for {@link ModResolver}.
+	 */
+	public ModCandidateIndex getCandidateIndex() {
+		return candidateIndex;
+	}
+
+	/**
+	 * Release the storage backing the data of inflated nested jars and unmap the top-level jars stored nested jars were
+	 * sliced from.
+	 *
+	 * <p>To be called once all nested mods are extracted or dropped. Data already retrieved from the storage stays valid,
+	 * slices of the top-level jars don't.
+	 */
+	public void closeNestedJarStorage() {
+		if (nestedJarStorage != null) nestedJarStorage.close();
+
+		MappedZipFile zf;
+
+		while ((zf = retainedJars.poll()) != null) {
+			zf.close();
+		}
+	}
+
 	// retrieve set of disabled mod ids from system property
 	private static Set<String> findDisabledModIds() {
 		String modIdList = System.getProperty(SystemProperties.DISABLE_MOD_IDS);
@@ -257,20 +327,24 @@ public final class ModDiscoverer {
 	final class ModScanTask extends RecursiveTask<ModCandidate> {
 		private final List<Path> paths;
 		private final String localPath;
-		private final RewindableInputStream is;
+		private final ByteBuffer data;
+		// nested jars: the node to record the scan result in if data != null, otherwise the recorded scan result
+		private final DiscoveryCache.Node node;
 		private final long hash;
 		private final boolean requiresRemap;
 		private final List<String> parentPaths;
+		private boolean slicedStoredJar; // whether a stored nested jar was passed on as a slice of the scanned jar
 
 		ModScanTask(List<Path> paths, boolean requiresRemap) {
-			this(paths, null, null, -1, requiresRemap, Collections.emptyList());
+			this(paths, null, null, null, -1, requiresRemap, Collections.emptyList());
 		}
 
-		private ModScanTask(List<Path> paths, String localPath, RewindableInputStream is, long hash,
+		private ModScanTask(List<Path> paths, String localPath, ByteBuffer data, DiscoveryCache.Node node, long hash,
 							boolean requiresRemap, List<String> parentPaths) {
 			this.paths = paths;
 			this.localPath = localPath != null ? localPath : paths.get(0).toString();
-			this.is = is;
+			this.data = data;
+			this.node = node;
 			this.hash = hash;
 			this.requiresRemap = requiresRemap;
 			this.parentPaths = parentPaths;
@@ -278,9 +352,16 @@ public final class ModDiscoverer {
 
 		@Override
 		protected ModCandidate compute() {
-			if (is != null) { // nested jar
+			ModCandidate ret = computeCandidate();
+			if (ret != null) candidateIndex.add(ret); // publish early to overlap dependency matching with the remaining I/O
+
+			return ret;
+		}
+
+		private ModCandidate computeCandidate() {
+			if (data != null || node != null) { // nested jar
 				try {
-					return computeJarStream();
+					return data != null ? computeNested() : computeCached(node);
 				} catch (ParseMetadataException e) { // already contains all context
 					throw ExceptionUtil.wrap(e);
 				} catch (Throwable t) {
@@ -325,6 +406,119 @@ public final class ModDiscoverer {
 		}
 
 		private ModCandidate computeJarFile(Path path) throws IOException, ParseMetadataException {
+			if (cache != null && modsDirectoryDelta != null && modsDirectoryDelta.isUnchanged(path)) {
+				DiscoveryCache.Node cached = cache.getUnchecked(path);
+				if (cached != null) return computeCached(cached);
+			}
+
+			DiscoveryCache.Stamp stamp = cache != null ? cache.getStamp(path) : null;
+			DiscoveryCache.Node node = null;
+
+			if (stamp != null) {
+				DiscoveryCache.Node cached = cache.get(path, stamp);
+				if (cached != null) return computeCached(cached);
+
+				node = new DiscoveryCache.Node();
+			}
+
+			ModCandidate ret = computeJarFile(path, node);
+			if (node != null) cache.put(path, stamp, node);
+
+			return ret;
+		}
+
+		private ModCandidate computeJarFile(Path path, DiscoveryCache.Node node) throws IOException, ParseMetadataException {
+			if (DISABLE_MAPPED_JARS) return computeJarFileFallback(path, node);
+
+			MappedZipFile zf;
+
+			try {
+				zf = MappedZipFile.open(path);
+			} catch (ZipException e) {
+				Log.debug(LogCategory.DISCOVERY, "Can't map %s, falling back to ZipFile: %s", path, e);
+				return computeJarFileFallback(path, node);
+			}
+
+			slicedStoredJar = false;
+
+			try {
+				return computeMappedJar(zf, node);
+			} finally {
+				if (slicedStoredJar) {
+					// the nested jar data refers to the mapping, which has to stay until the nested mods are extracted
+					retainedJars.add(zf);
+				} else {
+					// unmap right away instead of on GC, a lingering mapping keeps the jar locked on Windows
+					zf.close();
+				}
+			}
+		}
+
+		/**
+		 * Scan a jar through its central directory, only reading fabric.mod.json and the nested jars it references.
+		 *
+		 * <p>Stored nested jars are passed on as slices of {@code zf}'s buffer, deflated ones get inflated into the nested
+		 * jar storage.
+		 */
+		private ModCandidate computeMappedJar(MappedZipFile zf, DiscoveryCache.Node node) throws IOException, ParseMetadataException {
+			MappedZipFile.Entry modJson = zf.getEntry("fabric.mod.json");
+			if (modJson == null) return null;
+
+			LoaderModMetadata metadata = parseMetadata(zf.getBytes(modJson), localPath, node);
+
+			if (!metadata.loadsInEnvironment(envType)) {
+				return createCandidate(metadata, Collections.emptyList());
+			}
+
+			List<ModScanTask> nestedModTasks;
+
+			if (metadata.getJars().isEmpty()) {
+				nestedModTasks = Collections.emptyList();
+			} else {
+				Set<NestedJarEntry> nestedJarPaths = new HashSet<>(metadata.getJars());
+
+				nestedModTasks = computeNestedMods(new DataEntrySource() {
+					@Override
+					public ZipEntry getNextEntry() {
+						while (jarIt.hasNext()) {
+							NestedJarEntry jar = jarIt.next();
+							MappedZipFile.Entry entry = zf.getEntry(jar.getFile());
+							ZipEntry ret = entry != null ? toZipEntry(entry) : null;
+
+							if (isValidNestedJarEntry(ret)) {
+								currentEntry = entry;
+								jarIt.remove();
+								return ret;
+							}
+						}
+
+						currentEntry = null;
+						return null;
+					}
+
+					@Override
+					public ByteBuffer getData() throws IOException {
+						if (currentEntry.getMethod() == MappedZipFile.METHOD_STORED) slicedStoredJar = true;
+
+						return nestedJarStorage.store(zf, currentEntry);
+					}
+
+					private final Iterator<NestedJarEntry> jarIt = nestedJarPaths.iterator();
+					private MappedZipFile.Entry currentEntry;
+				}, node);
+
+				if (!nestedJarPaths.isEmpty() && FabricLoaderImpl.INSTANCE.isDevelopmentEnvironment()) {
+					Log.warn(LogCategory.METADATA, "Mod %s %s references missing nested jars: %s", metadata.getId(), metadata.getVersion(), nestedJarPaths);
+				}
+			}
+
+			return createCandidate(metadata, createNestedModList(nestedModTasks));
+		}
+
+		/**
+		 * Scan a jar with {@link ZipFile}, for jars {@link MappedZipFile} doesn't support.
+		 */
+		private ModCandidate computeJarFileFallback(Path path, DiscoveryCache.Node node) throws IOException, ParseMetadataException {
 			try (ZipFile zf = new ZipFile(path.toFile())) {
 				ZipEntry entry = zf.getEntry("fabric.mod.json");
 				if (entry == null) return null;
@@ -332,7 +526,7 @@ public final class ModDiscoverer {
 				LoaderModMetadata metadata;
 
 				try (InputStream is = zf.getInputStream(entry)) {
-					metadata = parseMetadata(is, localPath);
+					metadata = parseMetadata(is, localPath, node);
 				}
 
 				if (!metadata.loadsInEnvironment(envType)) {
@@ -346,7 +540,7 @@ public final class ModDiscoverer {
 				} else {
 					Set<NestedJarEntry> nestedJarPaths = new HashSet<>(metadata.getJars());
 
-					nestedModTasks = computeNestedMods(new ZipEntrySource() {
+					nestedModTasks = computeNestedMods(new DataEntrySource() {
 						@Override
 						public ZipEntry getNextEntry() throws IOException {
 							while (jarIt.hasNext()) {
@@ -365,42 +559,52 @@ public final class ModDiscoverer {
 						}
 
 						@Override
-						public RewindableInputStream getInputStream() throws IOException {
+						public ByteBuffer getData() throws IOException {
 							try (InputStream is = zf.getInputStream(currentEntry)) {
-								return new RewindableInputStream(is);
+								return nestedJarStorage.store(readMod(is));
 							}
 						}
 
 						private final Iterator<NestedJarEntry> jarIt = nestedJarPaths.iterator();
 						private ZipEntry currentEntry;
-					});
+					}, node);
 
 					if (!nestedJarPaths.isEmpty() && FabricLoaderImpl.INSTANCE.isDevelopmentEnvironment()) {
 						Log.warn(LogCategory.METADATA, "Mod %s %s references missing nested jars: %s", metadata.getId(), metadata.getVersion(), nestedJarPaths);
 					}
 				}
 
-				List<ModCandidate> nestedMods;
+				return ModCandidate.createPlain(paths, metadata, requiresRemap, createNestedModList(nestedModTasks));
+			}
+		}
 
-				if (nestedModTasks.isEmpty()) {
-					nestedMods = Collections.emptyList();
-				} else {
-					nestedMods = new ArrayList<>();
-					nestedModInitDatas.add(new NestedModInitData(nestedModTasks, nestedMods));
-				}
+		private ModCandidate computeNested() throws IOException, ParseMetadataException {
+			MappedZipFile zf;
 
-				return ModCandidate.createPlain(paths, metadata, requiresRemap, nestedMods);
+			try {
+				zf = MappedZipFile.open(data);
+			} catch (ZipException e) {
+				Log.debug(LogCategory.DISCOVERY, "Can't index nested jar %s from %s, falling back to sequential reading: %s", localPath, parentPaths, e);
+				return computeJarStream();
 			}
+
+			ModCandidate ret = computeMappedJar(zf, node);
+			if (ret != null) ret.setData(data);
+
+			return ret;
 		}
 
+		/**
+		 * Scan a nested jar sequentially, for jars {@link MappedZipFile} doesn't support.
+		 */
 		private ModCandidate computeJarStream() throws IOException, ParseMetadataException {
 			LoaderModMetadata metadata = null;
 			ZipEntry entry;
 
-			try (ZipInputStream zis = new ZipInputStream(is)) {
+			try (ZipInputStream zis = new ZipInputStream(new ByteBufferInputStream(data))) {
 				while ((entry = zis.getNextEntry()) != null) {
 					if (entry.getName().equals("fabric.mod.json")) {
-						metadata = parseMetadata(zis, localPath);
+						metadata = parseMetadata(zis, localPath, node);
 						break;
 					}
 				}
@@ -409,7 +613,7 @@ public final class ModDiscoverer {
 			if (metadata == null) return null;
 
 			if (!metadata.loadsInEnvironment(envType)) {
-				return ModCandidate.createNested(localPath, hash, metadata, requiresRemap, Collections.emptyList());
+				return ModCandidate.createNested(localPath, hash, metadata, requiresRemap, Collections.emptyList(), nestedJarStorage);
 			}
 
 			Collection<NestedJarEntry> nestedJars = metadata.getJars();
@@ -424,10 +628,8 @@ public final class ModDiscoverer {
 					nestedJarPaths.add(nestedJar.getFile());
 				}
 
-				is.rewind();
-
-				try (ZipInputStream zis = new ZipInputStream(is)) {
-					nestedModTasks = computeNestedMods(new ZipEntrySource() {
+				try (ZipInputStream zis = new ZipInputStream(new ByteBufferInputStream(data))) {
+					nestedModTasks = computeNestedMods(new DataEntrySource() {
 						@Override
 						public ZipEntry getNextEntry() throws IOException {
 							if (nestedJarPaths.isEmpty()) return null;
@@ -436,7 +638,7 @@ public final class ModDiscoverer {
 
 							while ((ret = zis.getNextEntry()) != null) {
 								if (isValidNestedJarEntry(ret) && nestedJarPaths.remove(ret.getName())) {
-									is = new RewindableInputStream(zis); // reads the entry, which completes the ZipEntry with any trailing header data
+									entryData = nestedJarStorage.store(readMod(zis)); // reads the entry, which completes the ZipEntry with any trailing header data
 									return ret;
 								}
 							}
@@ -445,12 +647,12 @@ public final class ModDiscoverer {
 						}
 
 						@Override
-						public RewindableInputStream getInputStream() throws IOException {
-							return is;
+						public ByteBuffer getData() {
+							return entryData;
 						}
 
-						private RewindableInputStream is;
-					});
+						private ByteBuffer entryData;
+					}, node);
 				}
 
 				if (!nestedJarPaths.isEmpty() && FabricLoaderImpl.INSTANCE.isDevelopmentEnvironment()) {
@@ -458,22 +660,77 @@ public final class ModDiscoverer {
 				}
 			}
 
-			List<ModCandidate> nestedMods;
+			ModCandidate ret = ModCandidate.createNested(localPath, hash, metadata, requiresRemap, createNestedModList(nestedModTasks), nestedJarStorage);
+			ret.setData(data);
 
-			if (nestedModTasks.isEmpty()) {
-				nestedMods = Collections.emptyList();
+			return ret;
+		}
+
+		/**
+		 * Create the scan results for a mod from its cached scan result, without accessing the mod's jar.
+		 */
+		private ModCandidate computeCached(DiscoveryCache.Node node) throws IOException, ParseMetadataException {
+			if (node.modJson == null) return null;
+
+			LoaderModMetadata metadata = parseMetadata(new ByteArrayInputStream(node.modJson), localPath);
+			List<ModScanTask> nestedModTasks;
+
+			if (!metadata.loadsInEnvironment(envType) || node.nested.isEmpty()) {
+				nestedModTasks = Collections.emptyList();
 			} else {
-				nestedMods = new ArrayList<>();
-				nestedModInitDatas.add(new NestedModInitData(nestedModTasks, nestedMods));
+				nestedModTasks = computeNestedMods(new ZipEntrySource() {
+					@Override
+					public ZipEntry getNextEntry() {
+						if (index >= node.nested.size()) return null;
+
+						long hash = node.nestedHashes.get(index);
+						ZipEntry ret = new ZipEntry(node.nestedNames.get(index));
+						ret.setCrc(hash >>> 32);
+						ret.setSize(hash & 0xffffffffL);
+						index++;
+
+						return ret;
+					}
+
+					@Override
+					public ModScanTask createTask(ZipEntry entry, long hash, List<String> parentPaths) {
+						// the recorded scan result replaces reading the nested jar
+						return new ModScanTask(null, entry.getName(), null, node.nested.get(index - 1), hash, requiresRemap, parentPaths);
+					}
+
+					private int index;
+				}, null);
+			}
+
+			return createCandidate(metadata, createNestedModList(nestedModTasks));
+		}
+
+		private ModCandidate createCandidate(LoaderModMetadata metadata, List<ModCandidate> nestedMods) {
+			if (paths != null) {
+				return ModCandidate.createPlain(paths, metadata, requiresRemap, nestedMods);
+			} else {
+				return ModCandidate.createNested(localPath, hash, metadata, requiresRemap, nestedMods, nestedJarStorage);
 			}
+		}
 
-			ModCandidate ret = ModCandidate.createNested(localPath, hash, metadata, requiresRemap, nestedMods);
-			ret.setData(is.getBuffer());
+		/**
+		 * Create the list to receive the nested mods once {@code nestedModTasks} completed.
+		 */
+		private List<ModCandidate> createNestedModList(List<ModScanTask> nestedModTasks) {
+			if (nestedModTasks.isEmpty()) return Collections.emptyList();
+
+			List<ModCandidate> ret = new ArrayList<>();
+			nestedModInitDatas.add(new NestedModInitData(nestedModTasks, ret));
 
 			return ret;
 		}
 
-		private List<ModScanTask> computeNestedMods(ZipEntrySource entrySource) throws IOException {
+		/**
+		 * Create the scan tasks for the nested jars provided by {@code entrySource}.
+		 *
+		 * @param parentNode the node to record the nested jars in, or null
+		 */
+		private List<ModScanTask> computeNestedMods(ZipEntrySource entrySource, DiscoveryCache.Node parentNode) throws IOException {
 			List<String> parentPaths = new ArrayList<>(this.parentPaths.size() + 1);
 			parentPaths.addAll(this.parentPaths);
 			parentPaths.add(localPath);
@@ -487,7 +744,7 @@ public final class ModDiscoverer {
 				ModScanTask task = jijDedupMap.get(hash);
 
 				if (task == null) {
-					task = new ModScanTask(null, entry.getName(), entrySource.getInputStream(), hash, requiresRemap, parentPaths);
+					task = entrySource.createTask(entry, hash, parentPaths);
 					ModScanTask prev = jijDedupMap.putIfAbsent(hash, task);
 
 					if (prev != null) {
@@ -499,6 +756,7 @@ public final class ModDiscoverer {
 					}
 				}
 
+				if (parentNode != null) parentNode.addNested(entry.getName(), hash, task.node);
 				tasks.add(task);
 			}
 
@@ -509,62 +767,101 @@ public final class ModDiscoverer {
 			return tasks;
 		}
 
+		/**
+		 * Source for nested jars that get scanned from their data.
+		 */
+		private abstract class DataEntrySource implements ZipEntrySource {
+			/**
+			 * Get the current entry's uncompressed data, possibly as a slice of the outer jar's buffer.
+			 */
+			abstract ByteBuffer getData() throws IOException;
+
+			@Override
+			public ModScanTask createTask(ZipEntry entry, long hash, List<String> parentPaths) throws IOException {
+				return new ModScanTask(null, entry.getName(), getData(), cache != null ? new DiscoveryCache.Node() : null, hash, requiresRemap, parentPaths);
+			}
+		}
+
 		private LoaderModMetadata parseMetadata(InputStream is, String localPath) throws ParseMetadataException {
 			return ModMetadataParser.parseMetadata(is, localPath, parentPaths, versionOverrides, depOverrides, FabricLoaderImpl.INSTANCE.isDevelopmentEnvironment());
 		}
+
+		/**
+		 * Parse the metadata, retaining the raw data in the discovery cache node if present.
+		 */
+		private LoaderModMetadata parseMetadata(InputStream is, String localPath, DiscoveryCache.Node node) throws IOException, ParseMetadataException {
+			if (node == null) return parseMetadata(is, localPath);
+
+			ByteBuffer data = readMod(is);
+
+			return parseMetadata(Arrays.copyOf(data.array(), data.limit()), localPath, node);
+		}
+
+		private LoaderModMetadata parseMetadata(byte[] data, String localPath, DiscoveryCache.Node node) throws ParseMetadataException {
+			if (node != null) node.modJson = data;
+
+			return parseMetadata(new ByteArrayInputStream(data), localPath);
+		}
 	}
 
 	private static boolean isValidNestedJarEntry(ZipEntry entry) {
 		return entry != null && !entry.isDirectory() && entry.getName().endsWith(".jar");
 	}
 
+	private static ZipEntry toZipEntry(MappedZipFile.Entry entry) {
+		ZipEntry ret = new ZipEntry(entry.getName());
+		ret.setCrc(entry.getCrc() & 0xffffffffL);
+		ret.setSize(entry.getSize());
+
+		return ret;
+	}
+
 	private interface ZipEntrySource {
 		ZipEntry getNextEntry() throws IOException;
 
-		RewindableInputStream getInputStream() throws IOException;
+		/**
+		 * Create the scan task for the current entry, only invoked if the entry isn't deduplicated.
+		 */
+		ModScanTask createTask(ZipEntry entry, long hash, List<String> parentPaths) throws IOException;
 	}
 
-	private static final class RewindableInputStream extends InputStream {
+	/**
+	 * Input stream over the remaining content of a heap or direct buffer, without affecting the buffer's position.
+	 */
+	static final class ByteBufferInputStream extends InputStream {
 		private final ByteBuffer buffer;
-		private int pos;
 
-		RewindableInputStream(InputStream parent) throws IOException { // no parent.close()
-			buffer = readMod(parent);
-
-			assert buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0;
-		}
-
-		public ByteBuffer getBuffer() {
-			return buffer;
-		}
-
-		public void rewind() {
-			pos = 0;
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer.duplicate();
 		}
 
 		@Override
-		public int read() throws IOException {
-			if (pos >= buffer.limit()) {
+		public int read() {
+			if (!buffer.hasRemaining()) {
 				return -1;
 			} else {
-				return buffer.get(pos++) & 0xff;
+				return buffer.get() & 0xff;
 			}
 		}
 
 		@Override
-		public int read(byte[] b, int off, int len) throws IOException {
-			int rem = buffer.limit() - pos;
+		public int read(byte[] b, int off, int len) {
+			int rem = buffer.remaining();
 
 			if (rem <= 0) {
 				return -1;
 			} else {
 				len = Math.min(len, rem);
-				System.arraycopy(buffer.array(), pos, b, off, len);
-				pos += len;
+				buffer.get(b, off, len);
 
 				return len;
 			}
 		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
 	}
 
 	static ByteBuffer readMod(InputStream is) throws IOException {
@@ -16,6 +16,7 @@
 
 package net.fabricmc.loader.impl.discovery;
 
+import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -28,29 +29,55 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.sat4j.specs.ContradictionException;
-import org.sat4j.specs.TimeoutException;
-
 import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.api.metadata.ModDependency;
 import net.fabricmc.loader.api.metadata.ModDependency.Kind;
 import net.fabricmc.loader.impl.discovery.ModSolver.InactiveReason;
 import net.fabricmc.loader.impl.metadata.ModDependencyImpl;
+import net.fabricmc.loader.impl.util.SystemProperties;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
 
 public class ModResolver {
+	private static volatile ResolutionSnapshot lastSnapshot;
+
 	public static List<ModCandidate> resolve(Collection<ModCandidate> candidates, EnvType envType, Map<String, Set<ModCandidate>> envDisabledMods) throws ModResolutionException {
+		return resolve(candidates, envType, envDisabledMods, new ModCandidateIndex());
+	}
+
+	public static List<ModCandidate> resolve(Collection<ModCandidate> candidates, EnvType envType, Map<String, Set<ModCandidate>> envDisabledMods,
+			ModCandidateIndex index) throws ModResolutionException {
+		return resolve(candidates, envType, envDisabledMods, index, null);
+	}
+
+	/**
+	 * Resolve the mods, using the dependency matches {@code index} collected during discovery.
+	 *
+	 * @param cacheDir directory to persist the resolution result and report in, null to only reuse the result within
+	 *                 this process
+	 */
+	public static List<ModCandidate> resolve(Collection<ModCandidate> candidates, EnvType envType, Map<String, Set<ModCandidate>> envDisabledMods,
+			ModCandidateIndex index, Path cacheDir) throws ModResolutionException {
+		Path snapshotDir = System.getProperty(SystemProperties.DEBUG_DISABLE_RESOLUTION_CACHE) == null ? cacheDir : null;
+		ResolutionReport report = new ResolutionReport();
 		long startTime = System.nanoTime();
-		List<ModCandidate> result = findCompatibleSet(candidates, envType, envDisabledMods);
+		List<ModCandidate> result = null;
 
-		long endTime = System.nanoTime();
-		Log.debug(LogCategory.RESOLUTION, "Mod resolution time: %.1f ms", (endTime - startTime) * 1e-6);
+		try {
+			result = findCompatibleSet(candidates, envType, envDisabledMods, index, snapshotDir, report);
+		} finally {
+			report.finish(System.nanoTime() - startTime, result != null);
+			report.log();
+			if (cacheDir != null) report.write(cacheDir);
+		}
 
 		return result;
 	}
 
-	private static List<ModCandidate> findCompatibleSet(Collection<ModCandidate> candidates, EnvType envType, Map<String, Set<ModCandidate>> envDisabledMods) throws ModResolutionException {
+	private static List<ModCandidate> findCompatibleSet(Collection<ModCandidate> candidates, EnvType envType, Map<String, Set<ModCandidate>> envDisabledMods,
+			ModCandidateIndex index, Path cacheDir, ResolutionReport report) throws ModResolutionException {
+		long startTime = System.nanoTime();
+
 		// sort all mods by priority and group by id
 
 		List<ModCandidate> allModsSorted = new ArrayList<>(candidates);
@@ -108,21 +135,59 @@ public class ModResolver {
 		Map<String, ModCandidate> selectedMods = new HashMap<>(allModsSorted.size());
 		List<ModCandidate> uniqueSelectedMods = new ArrayList<>(allModsSorted.size());
 
+		report.candidateCount = allModsSorted.size();
+		report.idCount = modsById.size();
+		report.preselectedCount = preselectedMods.size();
+
 		for (ModCandidate mod : preselectedMods) {
 			preselectMod(mod, allModsSorted, modsById, selectedMods, uniqueSelectedMods);
 		}
 
-		// solve
-
+		long solveStartTime = System.nanoTime();
+		report.addPhaseTime("preparation", solveStartTime - startTime);
 		ModSolver.Result result;
 
-		try {
-			result = ModSolver.solve(allModsSorted, modsById,
-					selectedMods, uniqueSelectedMods);
-		} catch (ContradictionException | TimeoutException e) {
-			throw new ModResolutionException("Solving failed", e);
+		if (isTriviallyConsistent(allModsSorted, modsById, index, selectedMods, uniqueSelectedMods)) {
+			// no choice and no conflict: selecting everything is the only optimal solution, skip loading and running the solver
+
+			Log.debug(LogCategory.RESOLUTION, "All %d candidates are consistent without alternatives, skipping the solver", allModsSorted.size());
+
+			for (ModCandidate mod : allModsSorted) {
+				selectMod(mod, selectedMods, uniqueSelectedMods);
+			}
+
+			report.fastPath = true;
+			result = ModSolver.Result.createSuccess();
+		} else {
+			// solve, unless the problem is identical to the last successfully solved one (reload or warm start without relevant changes)
+
+			byte[] problemDigest = ResolutionSnapshot.computeProblemDigest(allModsSorted, selectedMods, envType);
+			ResolutionSnapshot snapshot = lastSnapshot;
+
+			if (snapshot == null && cacheDir != null) {
+				snapshot = ResolutionSnapshot.load(cacheDir);
+			}
+
+			if (snapshot != null && snapshot.matches(problemDigest)) {
+				Log.debug(LogCategory.RESOLUTION, "Resolution problem unchanged, reusing previous selection of %d mods", snapshot.getSelectedCount());
+				snapshot.apply(allModsSorted, selectedMods, uniqueSelectedMods);
+				lastSnapshot = snapshot;
+				report.reused = true;
+				result = ModSolver.Result.createSuccess();
+			} else {
+				result = ModSolver.solve(allModsSorted, modsById, index,
+						selectedMods, uniqueSelectedMods,
+						report);
+
+				if (result.success) {
+					lastSnapshot = snapshot = ResolutionSnapshot.capture(problemDigest, allModsSorted, selectedMods);
+					if (cacheDir != null) snapshot.save(cacheDir);
+				}
+			}
 		}
 
+		report.addPhaseTime("solving", System.nanoTime() - solveStartTime);
+
 		if (!result.success) {
 			Log.warn(LogCategory.RESOLUTION, "Mod resolution failed");
 			Log.info(LogCategory.RESOLUTION, "Immediate reason: %s%n", result.immediateReason);
@@ -196,6 +261,63 @@ public class ModResolver {
 		return uniqueSelectedMods;
 	}
 
+	/**
+	 * Determine whether every id has a single candidate and selecting all candidates satisfies all constraints the solver
+	 * would create. That selection is then the only optimal solution, as all candidates are forced or greedy.
+	 *
+	 * <p>This mirrors the regular solve constraints in {@link ModSolver} and is linear in the number of dependencies.
+	 */
+	static boolean isTriviallyConsistent(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById, ModCandidateIndex index,
+			Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods) {
+		for (List<ModCandidate> mods : modsById.values()) {
+			if (mods.size() != 1) return false; // choice between candidates
+		}
+
+		for (ModCandidate mod : allModsSorted) {
+			if (mod.getLoadCondition().ordinal() > ModLoadCondition.IF_POSSIBLE.ordinal()) return false; // not greedy
+
+			if (!mod.isRoot() && !hasPresentParent(mod, modsById, selectedMods)) return false;
+
+			for (ModDependency dep : mod.getDependencies()) {
+				Kind kind = dep.getKind();
+				if (kind != Kind.DEPENDS && kind != Kind.BREAKS) continue; // soft deps can't conflict with selecting everything
+
+				ModCandidate target = selectedMods.get(dep.getModId());
+
+				if (target == null) {
+					List<ModCandidate> mods = modsById.get(dep.getModId());
+					if (mods != null) target = mods.get(0);
+				}
+
+				if ((target != null && index.matches(dep, target)) != kind.isPositive()) return false;
+			}
+		}
+
+		// preselected mods only restrict candidates through breaks, depends without matching candidate are ignored
+
+		for (ModCandidate mod : uniqueSelectedMods) {
+			for (ModDependency dep : mod.getDependencies()) {
+				if (dep.getKind() != Kind.BREAKS) continue;
+
+				List<ModCandidate> mods = modsById.get(dep.getModId());
+				if (mods != null && index.matches(dep, mods.get(0))) return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean hasPresentParent(ModCandidate mod, Map<String, List<ModCandidate>> modsById, Map<String, ModCandidate> selectedMods) {
+		for (ModCandidate parent : mod.getParentMods()) {
+			if (selectedMods.get(parent.getId()) == parent) return true;
+
+			List<ModCandidate> mods = modsById.get(parent.getId());
+			if (mods != null && mods.get(0) == parent) return true;
+		}
+
+		return false;
+	}
+
 	static void preselectMod(ModCandidate mod, List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
 			Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods) throws ModResolutionException {
 		selectMod(mod, selectedMods, uniqueSelectedMods);
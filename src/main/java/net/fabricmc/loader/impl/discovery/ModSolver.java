@@ -29,9 +29,16 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 import org.sat4j.pb.IPBSolver;
+import org.sat4j.pb.OptToPBSATAdapter;
+import org.sat4j.pb.PseudoOptDecorator;
 import org.sat4j.pb.SolverFactory;
 import org.sat4j.pb.tools.DependencyHelper;
 import org.sat4j.pb.tools.INegator;
@@ -46,14 +53,31 @@ import net.fabricmc.loader.api.metadata.version.VersionInterval;
 import net.fabricmc.loader.api.metadata.version.VersionPredicate;
 import net.fabricmc.loader.impl.discovery.Explanation.ErrorKind;
 import net.fabricmc.loader.impl.util.SystemProperties;
+import net.fabricmc.loader.impl.util.WorkerPool;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
 import net.fabricmc.loader.impl.util.version.SemanticVersionImpl;
 import net.fabricmc.loader.impl.util.version.VersionPredicateParser;
 
 final class ModSolver {
-	static Result solve(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
-			Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods) throws ContradictionException, TimeoutException, ModResolutionException {
+	/**
+	 * Solve the resolution problem, selecting the mods to load through {@link ModResolver#selectMod}.
+	 *
+	 * <p>sat4j exceptions are wrapped so callers don't need to load any sat4j classes.
+	 */
+	static Result solve(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById, ModCandidateIndex index,
+			Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods,
+			ResolutionReport report) throws ModResolutionException {
+		try {
+			return solveInternal(allModsSorted, modsById, index, selectedMods, uniqueSelectedMods, report);
+		} catch (ContradictionException | TimeoutException e) {
+			throw new ModResolutionException("Solving failed", e);
+		}
+	}
+
+	private static Result solveInternal(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById, ModCandidateIndex index,
+			Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods,
+			ResolutionReport report) throws ContradictionException, TimeoutException, ModResolutionException {
 		// build priority index
 
 		Map<ModCandidate, Integer> priorities = new IdentityHashMap<>(allModsSorted.size());
@@ -62,37 +86,41 @@ final class ModSolver {
 			priorities.put(allModsSorted.get(i), i);
 		}
 
-		// create and configure solver
+		// solve independent components separately if there are multiple
 
-		solverPrepTime = System.nanoTime();
+		if (System.getProperty(SystemProperties.DEBUG_DISABLE_RESOLUTION_SPLITTING) == null) {
+			List<ModComponentSplitter.Component> components = ModComponentSplitter.split(allModsSorted, modsById);
 
-		IPBSolver solver = SolverFactory.newDefaultOptimizer();
+			if (components.size() > 1) {
+				List<ModCandidate> solution = solveComponents(components, modsById, index, priorities, selectedMods, uniqueSelectedMods, report);
 
-		int timeout = Integer.getInteger(SystemProperties.DEBUG_RESOLUTION_TIMEOUT, 60);
-		if (timeout > 0) solver.setTimeout(timeout); // in seconds
+				if (solution != null) {
+					for (ModCandidate mod : solution) {
+						ModResolver.selectMod(mod, selectedMods, uniqueSelectedMods);
+					}
 
-		DependencyHelper<DomainObject, Explanation> dependencyHelper = createDepHelper(solver);
+					return Result.createSuccess();
+				}
 
-		setupSolver(allModsSorted, modsById,
-				priorities, selectedMods, uniqueSelectedMods,
-				false, null, false,
-				dependencyHelper);
+				// some component is unsatisfiable, solve the whole problem to determine the failure causes and fix
+			}
+		}
 
-		// solve
+		// create, configure and run solver
 
-		solveTime = System.nanoTime();
+		report.componentCount = 1;
 
-		boolean hasSolution = dependencyHelper.hasASolution();
+		SolverRun run = runSolver("main", report, dependencyHelper -> setupSolver(allModsSorted, modsById, index,
+				priorities, selectedMods, uniqueSelectedMods,
+				false, null, false,
+				dependencyHelper));
+		DependencyHelper<DomainObject, Explanation> dependencyHelper = run.dependencyHelper;
 
 		// check solution
 
-		solutionFetchTime = System.nanoTime();
-
-		if (hasSolution) {
+		if (run.hasSolution) {
 			Collection<DomainObject> solution = dependencyHelper.getASolution();
 
-			solutionAnalyzeTime = System.nanoTime();
-
 			for (DomainObject obj : solution) {
 				if (obj instanceof ModCandidate) {
 					ModResolver.selectMod((ModCandidate) obj, selectedMods, uniqueSelectedMods);
@@ -105,37 +133,226 @@ final class ModSolver {
 
 			return Result.createSuccess();
 		} else { // no solution
-			Set<Explanation> reason = dependencyHelper.why();
+			// explain the failure concurrently, the failure causes and fix don't depend on the explanation
+
+			ForkJoinTask<Set<Explanation>> reasonTask = WorkerPool.get().submit(() -> {
+				long startTime = System.nanoTime();
+				Set<Explanation> ret = dependencyHelper.why();
+				report.addPhaseTime("explanation", System.nanoTime() - startTime);
+
+				return ret;
+			});
 
 			// gather all failed deps
 
 			Set<ModDependency> failedDeps = Collections.newSetFromMap(new IdentityHashMap<>());
 			List<Explanation> failedExplanations = new ArrayList<>();
 
-			computeFailureCausesOptional(allModsSorted, modsById,
+			computeFailureCausesOptional(allModsSorted, modsById, index,
 					priorities, selectedMods, uniqueSelectedMods,
-					reason, dependencyHelper,
-					failedDeps, failedExplanations);
+					failedDeps, failedExplanations, report);
 
 			// find best solution with mod addition/removal
 
-			fixSetupTime = System.nanoTime();
-
-			Fix fix = computeFix(uniqueSelectedMods, allModsSorted, modsById,
+			Fix fix = computeFix(uniqueSelectedMods, allModsSorted, modsById, index,
 					priorities, selectedMods,
-					failedDeps, dependencyHelper);
+					failedDeps, report);
 
+			Set<Explanation> reason = getResult(reasonTask);
 			dependencyHelper.reset();
 
 			return Result.createFailure(reason, failedExplanations, fix);
 		}
 	}
 
-	static long solverPrepTime;
-	static long solveTime;
-	static long solutionFetchTime;
-	static long solutionAnalyzeTime;
-	static long fixSetupTime;
+	private static <T> T getResult(Future<T> future) throws TimeoutException, ModResolutionException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ModResolutionException("Interrupted while explaining the resolution failure", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof TimeoutException) {
+				throw (TimeoutException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new ModResolutionException("Explaining the resolution failure failed", cause);
+			}
+		}
+	}
+
+	/**
+	 * Solve the components obtained from {@link ModComponentSplitter}, trivial components directly and the others in
+	 * parallel.
+	 *
+	 * @return the selected mods or null if any component is unsatisfiable
+	 */
+	private static List<ModCandidate> solveComponents(List<ModComponentSplitter.Component> components, Map<String, List<ModCandidate>> modsById, ModCandidateIndex index,
+			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods,
+			ResolutionReport report) throws TimeoutException {
+		List<ModCandidate> ret = new ArrayList<>();
+		List<ModComponentSplitter.Component> complexComponents = new ArrayList<>();
+		Set<String> preselectTargets = getPreselectTargets(uniqueSelectedMods, selectedMods);
+
+		for (ModComponentSplitter.Component component : components) {
+			if (component.isTrivial() && !isPreselectTarget(component.mods.get(0), preselectTargets)) {
+				ModCandidate mod = component.mods.get(0);
+				Boolean selected = solveTrivialComponent(mod, modsById, index, selectedMods);
+				if (selected == null) return null;
+
+				if (selected) ret.add(mod);
+			} else {
+				complexComponents.add(component);
+			}
+		}
+
+		Log.debug(LogCategory.RESOLUTION, "Split resolution into %d components, %d of them need the solver", components.size(), complexComponents.size());
+		report.componentCount = components.size();
+		report.trivialComponentCount = components.size() - complexComponents.size();
+
+		List<List<ModCandidate>> solutions = new ArrayList<>(Collections.nCopies(complexComponents.size(), null));
+		AtomicReference<TimeoutException> timeout = new AtomicReference<>();
+
+		WorkerPool.forEachIndex(complexComponents.size(), 1, i -> {
+			try {
+				solutions.set(i, solveComponent(complexComponents.get(i), index, priorities, selectedMods, uniqueSelectedMods, report));
+			} catch (TimeoutException e) {
+				timeout.compareAndSet(null, e);
+			}
+		});
+
+		if (timeout.get() != null) throw timeout.get();
+
+		for (List<ModCandidate> solution : solutions) {
+			if (solution == null) return null;
+
+			ret.addAll(solution);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Get the ids {@link #generatePreselectConstraints} creates constraints for.
+	 */
+	private static Set<String> getPreselectTargets(List<ModCandidate> uniqueSelectedMods, Map<String, ModCandidate> selectedMods) {
+		Set<String> ret = new HashSet<>();
+
+		for (ModCandidate mod : uniqueSelectedMods) {
+			for (ModDependency dep : mod.getDependencies()) {
+				ModDependency.Kind kind = dep.getKind();
+
+				if ((kind == ModDependency.Kind.DEPENDS || kind == ModDependency.Kind.RECOMMENDS || kind == ModDependency.Kind.BREAKS)
+						&& !selectedMods.containsKey(dep.getModId())) {
+					ret.add(dep.getModId());
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Determine whether a preselected mod's dependency references a mod, which then has to go through the solver since
+	 * {@link #solveTrivialComponent} doesn't mirror the preselect constraints.
+	 */
+	private static boolean isPreselectTarget(ModCandidate mod, Set<String> preselectTargets) {
+		if (preselectTargets.isEmpty()) return false;
+		if (preselectTargets.contains(mod.getId())) return true;
+
+		for (String provided : mod.getProvides()) {
+			if (preselectTargets.contains(provided)) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Decide whether to select the mod of a single mod component, mirroring the constraints and weights
+	 * {@link #generateMainConstraints} creates for it.
+	 *
+	 * @return whether the mod gets selected or null if it is forced but can't be selected
+	 */
+	private static Boolean solveTrivialComponent(ModCandidate mod, Map<String, List<ModCandidate>> modsById, ModCandidateIndex index, Map<String, ModCandidate> selectedMods) {
+		boolean forced = ModComponentSplitter.isForced(mod, modsById);
+		boolean feasible = true;
+
+		// other mods referenced by the deps are either the mod itself or forced, thus always selected
+
+		for (ModDependency dep : mod.getDependencies()) {
+			ModDependency.Kind kind = dep.getKind();
+			if (kind != ModDependency.Kind.DEPENDS && kind != ModDependency.Kind.BREAKS) continue; // soft deps don't restrict the mod itself
+
+			boolean matched = false;
+			ModCandidate selectedMod = selectedMods.get(dep.getModId());
+
+			if (selectedMod != null) {
+				matched = index.matches(dep, selectedMod);
+			} else {
+				List<ModCandidate> mods = modsById.get(dep.getModId());
+
+				if (mods != null) {
+					for (ModCandidate m : mods) {
+						if (index.matches(dep, m)) {
+							matched = true;
+							break;
+						}
+					}
+				}
+			}
+
+			if (matched != kind.isPositive()) {
+				feasible = false;
+				break;
+			}
+		}
+
+		if (!feasible) return forced ? null : Boolean.FALSE;
+
+		// forced or greedy mods get selected (negative weight), non-greedy mods don't (positive weight)
+		return forced || mod.getLoadCondition().ordinal() < ModLoadCondition.IF_RECOMMENDED.ordinal();
+	}
+
+	/**
+	 * Solve a single component with its own solver instance.
+	 *
+	 * @return the selected mods of the component or null if it is unsatisfiable
+	 */
+	private static List<ModCandidate> solveComponent(ModComponentSplitter.Component component, ModCandidateIndex index,
+			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods,
+			ResolutionReport report) throws TimeoutException {
+		SolverRun run;
+
+		try {
+			run = runSolver("component", report, dependencyHelper -> setupSolver(component.mods, component.modsById, index,
+					priorities, selectedMods, uniqueSelectedMods,
+					false, null, false,
+					dependencyHelper));
+		} catch (ContradictionException e) {
+			return null;
+		}
+
+		DependencyHelper<DomainObject, Explanation> dependencyHelper = run.dependencyHelper;
+		if (!run.hasSolution) return null;
+
+		List<ModCandidate> ret = new ArrayList<>();
+
+		for (DomainObject obj : dependencyHelper.getASolution()) {
+			// referenced forced mods get selected through their own component
+			if (obj instanceof ModCandidate && component.members.contains(obj)) {
+				ret.add((ModCandidate) obj);
+			}
+		}
+
+		dependencyHelper.reset();
+
+		return ret;
+	}
 
 	static class Result {
 		final boolean success;
@@ -159,19 +376,19 @@ final class ModSolver {
 		}
 	}
 
-	private static void computeFailureCausesOptional(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
+	private static void computeFailureCausesOptional(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById, ModCandidateIndex index,
 			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods,
-			Set<Explanation> reason, DependencyHelper<DomainObject, Explanation> dependencyHelper,
-			Set<ModDependency> failedDeps, List<Explanation> failedExplanations) throws ContradictionException, TimeoutException {
-		dependencyHelper.reset();
-		dependencyHelper = createDepHelper(dependencyHelper.getSolver()); // dependencyHelper.reset doesn't fully reset the dep helper
+			Set<ModDependency> failedDeps, List<Explanation> failedExplanations,
+			ResolutionReport report) throws ContradictionException, TimeoutException {
+		// uses a new solver, the failed one may still be explaining the failure
 
-		setupSolver(allModsSorted, modsById,
+		SolverRun run = runSolver("failure causes", report, dependencyHelper -> setupSolver(allModsSorted, modsById, index,
 				priorities, selectedMods, uniqueSelectedMods,
 				true, null, false,
-				dependencyHelper);
+				dependencyHelper));
+		DependencyHelper<DomainObject, Explanation> dependencyHelper = run.dependencyHelper;
 
-		if (dependencyHelper.hasASolution()) {
+		if (run.hasSolution) {
 			Collection<DomainObject> solution = dependencyHelper.getASolution();
 			Set<ModDependency> disabledDeps = new HashSet<>(); // DisableDepVar uses equality semantics, not identity
 
@@ -201,11 +418,14 @@ final class ModSolver {
 				}
 			}
 		}
+
+		dependencyHelper.reset();
 	}
 
-	private static Fix computeFix(List<ModCandidate> uniqueSelectedMods, List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
+	private static Fix computeFix(List<ModCandidate> uniqueSelectedMods, List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById, ModCandidateIndex index,
 			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods,
-			Set<ModDependency> failedDeps, DependencyHelper<DomainObject, Explanation> dependencyHelper) throws ContradictionException, TimeoutException {
+			Set<ModDependency> failedDeps,
+			ResolutionReport report) throws ContradictionException, TimeoutException {
 		// group positive deps by mod id
 		Map<String, Set<Collection<VersionPredicate>>> depsById = new HashMap<>();
 
@@ -300,17 +520,13 @@ final class ModSolver {
 
 		// check the determined solution
 
-		fixSolveTime = System.nanoTime();
-
-		dependencyHelper.reset();
-		dependencyHelper = createDepHelper(dependencyHelper.getSolver()); // dependencyHelper.reset doesn't fully reset the dep helper
-
-		setupSolver(allModsSorted, modsById,
+		SolverRun run = runSolver("fix", report, dependencyHelper -> setupSolver(allModsSorted, modsById, index,
 				priorities, selectedMods, uniqueSelectedMods,
 				false, installableMods, true,
-				dependencyHelper);
+				dependencyHelper));
+		DependencyHelper<DomainObject, Explanation> dependencyHelper = run.dependencyHelper;
 
-		if (!dependencyHelper.hasASolution()) {
+		if (!run.hasSolution) {
 			Log.warn(LogCategory.RESOLUTION, "Unable to find a solution to fix the mod set, reason: %s", dependencyHelper.why());
 			return null;
 		}
@@ -446,8 +662,6 @@ final class ModSolver {
 		return new Fix(modsToAdd, modsToRemove, modReplacements, activeMods, inactiveMods);
 	}
 
-	static long fixSolveTime;
-
 	private static Version deriveVersion(VersionInterval interval) {
 		if (!interval.isSemantic()) {
 			return interval.getMin() != null ? interval.getMin() : interval.getMax();
@@ -561,7 +775,7 @@ final class ModSolver {
 		}
 	}
 
-	private static void setupSolver(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
+	private static void setupSolver(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById, ModCandidateIndex index,
 			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods,
 			boolean depDisableSim, Map<String, List<AddModVar>> installableMods, boolean removalSim,
 			DependencyHelper<DomainObject, Explanation> dependencyHelper) throws ContradictionException {
@@ -569,13 +783,13 @@ final class ModSolver {
 		Map<ModDependency, Map.Entry<DomainObject, Integer>> disabledDeps = depDisableSim ? new HashMap<>() : null;
 		List<WeightedObject<DomainObject>> weightedObjects = new ArrayList<>();
 
-		generatePreselectConstraints(uniqueSelectedMods, modsById,
+		generatePreselectConstraints(uniqueSelectedMods, modsById, index,
 				priorities, selectedMods,
 				depDisableSim, installableMods, removalSim,
 				dummies, disabledDeps,
 				dependencyHelper, weightedObjects);
 
-		generateMainConstraints(allModsSorted, modsById,
+		generateMainConstraints(allModsSorted, modsById, index,
 				priorities, selectedMods,
 				depDisableSim, installableMods, removalSim,
 				dummies, disabledDeps,
@@ -591,7 +805,7 @@ final class ModSolver {
 		//dependencyHelper.addWeightedCriterion(weightedObjects);
 	}
 
-	private static void generatePreselectConstraints(List<ModCandidate> uniqueSelectedMods, Map<String, List<ModCandidate>> modsById,
+	private static void generatePreselectConstraints(List<ModCandidate> uniqueSelectedMods, Map<String, List<ModCandidate>> modsById, ModCandidateIndex index,
 			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods,
 			boolean depDisableSim, Map<String, List<AddModVar>> installableMods, boolean removalSim,
 			Map<String, DomainObject> dummyMods, Map<ModDependency, Map.Entry<DomainObject, Integer>> disabledDeps,
@@ -610,7 +824,7 @@ final class ModSolver {
 
 				if (availableMods != null) {
 					for (DomainObject.Mod m : availableMods) {
-						if (dep.matches(m.getVersion())) suitableMods.add(m);
+						if (index.matches(dep, m)) suitableMods.add(m);
 					}
 				}
 
@@ -619,7 +833,7 @@ final class ModSolver {
 
 					if (availableMods != null) {
 						for (DomainObject.Mod m : availableMods) {
-							if (dep.matches(m.getVersion())) suitableMods.add(m);
+							if (index.matches(dep, m)) suitableMods.add(m);
 						}
 					}
 				}
@@ -685,7 +899,7 @@ final class ModSolver {
 		}
 	}
 
-	private static void generateMainConstraints(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
+	private static void generateMainConstraints(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById, ModCandidateIndex index,
 			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods,
 			boolean depDisableSim, Map<String, List<AddModVar>> installableMods, boolean removalSim,
 			Map<String, DomainObject> dummyMods, Map<ModDependency, Map.Entry<DomainObject, Integer>> disabledDeps,
@@ -704,7 +918,7 @@ final class ModSolver {
 				if (selectedMod != null) { // dep is already selected = present
 					if (!removalSim) {
 						if (!dep.getKind().isSoft() // .. and is a hard dep
-								&& dep.matches(selectedMod.getVersion()) != dep.getKind().isPositive()) { // ..but isn't suitable (DEPENDS without match or BREAKS with match)
+								&& index.matches(dep, selectedMod) != dep.getKind().isPositive()) { // ..but isn't suitable (DEPENDS without match or BREAKS with match)
 							if (depDisableSim) {
 								dependencyHelper.setTrue(getCreateDisableDepVar(dep, disabledDeps), new Explanation(ErrorKind.HARD_DEP, mod, dep));
 							} else {
@@ -713,7 +927,7 @@ final class ModSolver {
 						}
 
 						continue;
-					} else if (dep.matches(selectedMod.getVersion())) {
+					} else if (index.matches(dep, selectedMod)) {
 						suitableMods.add(selectedMod);
 					}
 				}
@@ -722,7 +936,7 @@ final class ModSolver {
 
 				if (availableMods != null) {
 					for (DomainObject.Mod m : availableMods) {
-						if (dep.matches(m.getVersion())) suitableMods.add(m);
+						if (index.matches(dep, m)) suitableMods.add(m);
 					}
 				}
 
@@ -731,7 +945,7 @@ final class ModSolver {
 
 					if (availableMods != null) {
 						for (DomainObject.Mod m : availableMods) {
-							if (dep.matches(m.getVersion())) suitableMods.add(m);
+							if (index.matches(dep, m)) suitableMods.add(m);
 						}
 					}
 				}
@@ -822,7 +1036,7 @@ final class ModSolver {
 				if (mod.getLoadCondition().ordinal() >= ModLoadCondition.IF_RECOMMENDED.ordinal()) { // non-greedy (optional)
 					weight = TWO.pow(prio + 1);
 				} else { // greedy
-					weight = TWO.pow(allModsSorted.size() - prio).negate();
+					weight = TWO.pow(priorities.size() - prio).negate(); // global mod count, allModsSorted may be a component
 				}
 
 				weightedObjects.add(WeightedObject.newWO(mod, weight));
@@ -929,6 +1143,226 @@ final class ModSolver {
 
 	private static final BigInteger TWO = BigInteger.valueOf(2);
 
+	/**
+	 * Set up a fresh dependency helper and solve it, racing multiple solver configurations if the portfolio is enabled.
+	 */
+	private static SolverRun runSolver(String phase, ResolutionReport report, SolverSetup setup) throws ContradictionException, TimeoutException {
+		SolverRun ret;
+
+		if (!Boolean.parseBoolean(System.getProperty(SystemProperties.RESOLUTION_PORTFOLIO, "false"))) {
+			ret = SolverRun.execute("default", createSolver(), setup, null);
+		} else {
+			ret = new Portfolio(setup,
+					Arrays.asList("default", "cutting planes", "resolution"),
+					Arrays.asList(createSolver(),
+							configureSolver(new OptToPBSATAdapter(new PseudoOptDecorator(SolverFactory.newCuttingPlanes()))),
+							configureSolver(new OptToPBSATAdapter(new PseudoOptDecorator(SolverFactory.newResolution()))))).run();
+		}
+
+		IPBSolver solver = ret.dependencyHelper.getSolver();
+		report.addSolverRun(new ResolutionReport.SolverRunStats(phase, ret.config, solver.nVars(), solver.nConstraints(),
+				ret.setupTime, ret.solveTime, ret.hasSolution, solver.getStat()));
+
+		return ret;
+	}
+
+	private interface SolverSetup {
+		void setup(DependencyHelper<DomainObject, Explanation> dependencyHelper) throws ContradictionException;
+	}
+
+	private static final class SolverRun {
+		final String config;
+		final DependencyHelper<DomainObject, Explanation> dependencyHelper;
+		final boolean hasSolution;
+		final long setupTime;
+		final long solveTime;
+
+		SolverRun(String config, DependencyHelper<DomainObject, Explanation> dependencyHelper, boolean hasSolution, long setupTime, long solveTime) {
+			this.config = config;
+			this.dependencyHelper = dependencyHelper;
+			this.hasSolution = hasSolution;
+			this.setupTime = setupTime;
+			this.solveTime = solveTime;
+		}
+
+		/**
+		 * Set up and solve with the supplied solver.
+		 *
+		 * @param portfolio portfolio the run is part of, or null
+		 * @return the run or null if the portfolio was decided before solving started
+		 */
+		static SolverRun execute(String config, IPBSolver solver, SolverSetup setup, Portfolio portfolio) throws ContradictionException, TimeoutException {
+			long startTime = System.nanoTime();
+
+			DependencyHelper<DomainObject, Explanation> dependencyHelper = createDepHelper(solver);
+			setup.setup(dependencyHelper);
+
+			// expiring the timeout before solving has no effect, so check explicitly
+			if (portfolio != null && portfolio.isDecided()) return null;
+
+			long solveStartTime = System.nanoTime();
+			boolean hasSolution = dependencyHelper.hasASolution();
+
+			return new SolverRun(config, dependencyHelper, hasSolution, solveStartTime - startTime, System.nanoTime() - solveStartTime);
+		}
+	}
+
+	/**
+	 * Races solver configurations with different inference and restart strategies on the same problem.
+	 *
+	 * <p>The first configuration runs on the calling thread, the others on dedicated threads to not block worker pool
+	 * threads, which are occupied by component solves. The first configuration to finish provides the result, the others
+	 * get stopped and joined for up to {@link #STOP_TIMEOUT_MS}.
+	 */
+	private static final class Portfolio {
+		private static final long STOP_TIMEOUT_MS = 1000;
+		private static final long STOP_RETRY_MS = 20;
+
+		private final SolverSetup setup;
+		private final List<String> configs;
+		private final List<IPBSolver> solvers;
+		private final List<Thread> threads; // by configuration, null for the one on the calling thread
+		private SolverRun winner;
+		private int winnerIdx = -1;
+		private Throwable failure;
+		private int finished;
+
+		Portfolio(SolverSetup setup, List<String> configs, List<IPBSolver> solvers) {
+			this.setup = setup;
+			this.configs = configs;
+			this.solvers = solvers;
+			this.threads = new ArrayList<>(solvers.size());
+		}
+
+		SolverRun run() throws ContradictionException, TimeoutException {
+			threads.add(null);
+
+			for (int i = 1; i < solvers.size(); i++) {
+				int idx = i;
+				Thread thread = new Thread(() -> runMember(idx), "Fabric Solver Portfolio");
+				thread.setDaemon(true);
+				threads.add(thread);
+				thread.start();
+			}
+
+			try {
+				runMember(0);
+
+				synchronized (this) {
+					while (winner == null && finished < solvers.size()) {
+						wait();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new TimeoutException("interrupted");
+			} finally {
+				stopLosers();
+			}
+
+			synchronized (this) {
+				if (winner != null) return winner;
+			}
+
+			// all configurations failed, they fail the same way for contradictions
+			if (failure instanceof ContradictionException) throw (ContradictionException) failure;
+			if (failure instanceof TimeoutException) throw (TimeoutException) failure;
+			if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+			if (failure instanceof Error) throw (Error) failure;
+
+			throw new RuntimeException(failure);
+		}
+
+		private void runMember(int idx) {
+			SolverRun run = null;
+			Throwable failure = null;
+
+			try {
+				run = SolverRun.execute(configs.get(idx), solvers.get(idx), setup, this);
+			} catch (Throwable t) {
+				failure = t;
+			}
+
+			complete(idx, run, failure);
+		}
+
+		synchronized boolean isDecided() {
+			return winner != null;
+		}
+
+		private synchronized void complete(int idx, SolverRun run, Throwable failure) {
+			finished++;
+
+			if (winner != null) {
+				// already decided, discard
+			} else if (run != null) {
+				winner = run;
+				winnerIdx = idx;
+				expireLosers(); // also stops the configuration on the calling thread, which isn't awaiting the result
+			} else if (failure != null && this.failure == null) {
+				this.failure = failure;
+			}
+
+			notifyAll();
+		}
+
+		/**
+		 * Stop all configurations but the winner and wait for their threads to exit.
+		 *
+		 * <p>The timeout is expired repeatedly since a solver that only starts solving afterwards would reset it.
+		 * Threads still running after {@link #STOP_TIMEOUT_MS} are left to their regular solver timeout.
+		 */
+		private void stopLosers() {
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_TIMEOUT_MS);
+			boolean interrupted = false;
+
+			for (int i = 0; i < threads.size(); i++) {
+				Thread thread = threads.get(i);
+				if (thread == null) continue; // calling thread, finished already
+
+				while (thread.isAlive()) {
+					synchronized (this) {
+						if (i == winnerIdx) break; // finished already, its solver has to stay intact
+
+						expireLosers();
+					}
+
+					long remaining = deadline - System.nanoTime();
+
+					if (remaining <= 0) {
+						Log.debug(LogCategory.RESOLUTION, "Solver configuration %s didn't stop in time", configs.get(i));
+						break;
+					}
+
+					try {
+						thread.join(Math.max(1, Math.min(STOP_RETRY_MS, TimeUnit.NANOSECONDS.toMillis(remaining))));
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			}
+
+			if (interrupted) Thread.currentThread().interrupt();
+		}
+
+		private synchronized void expireLosers() {
+			for (int i = 0; i < solvers.size(); i++) {
+				if (i != winnerIdx) solvers.get(i).expireTimeout();
+			}
+		}
+	}
+
+	private static IPBSolver createSolver() {
+		return configureSolver(SolverFactory.newDefaultOptimizer());
+	}
+
+	private static IPBSolver configureSolver(IPBSolver solver) {
+		int timeout = Integer.getInteger(SystemProperties.DEBUG_RESOLUTION_TIMEOUT, 60);
+		if (timeout > 0) solver.setTimeout(timeout); // in seconds
+
+		return solver;
+	}
+
 	private static DependencyHelper<DomainObject, Explanation> createDepHelper(IPBSolver solver) {
 		DependencyHelper<DomainObject, Explanation> ret = new DependencyHelper<>(solver); // new LexicoHelper<>(solver)
 		ret.setNegator(negator);
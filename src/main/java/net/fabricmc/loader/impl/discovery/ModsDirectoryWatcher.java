@@ -0,0 +1,281 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import net.fabricmc.loader.impl.util.LoaderUtil;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Records the mod jars added to, removed from or modified in the mods directory through a {@link WatchService}.
+ *
+ * <p>The recorded {@link Delta} lets reloads skip re-validating unchanged jars and skip reloading entirely if nothing
+ * changed. An optional listener gets invoked on the watcher thread once changes settled for {@link #SETTLE_TIME_MS}.
+ * It should only hand the changes off, e.g. to the game thread, instead of reloading on the watcher thread.
+ *
+ * <p>Watching should start before the mods get discovered, so changes made during discovery are part of the next delta.
+ * The listener can be set later, it then also gets notified about the changes recorded before.
+ */
+public final class ModsDirectoryWatcher implements Closeable {
+	private static final long SETTLE_TIME_MS = 2000;
+
+	/**
+	 * Changes recorded since the previous {@link #pollDelta} call.
+	 */
+	public static final class Delta {
+		private final Path dir;
+		private final Set<Path> added = new HashSet<>();
+		private final Set<Path> removed = new HashSet<>();
+		private final Set<Path> modified = new HashSet<>();
+		private boolean overflow;
+
+		private Delta(Path dir) {
+			this.dir = dir;
+		}
+
+		public Set<Path> getAdded() {
+			return Collections.unmodifiableSet(added);
+		}
+
+		public Set<Path> getRemoved() {
+			return Collections.unmodifiableSet(removed);
+		}
+
+		public Set<Path> getModified() {
+			return Collections.unmodifiableSet(modified);
+		}
+
+		/**
+		 * Whether events were lost, so the whole directory has to be treated as changed.
+		 */
+		public boolean isOverflow() {
+			return overflow;
+		}
+
+		public boolean isEmpty() {
+			return !overflow && added.isEmpty() && removed.isEmpty() && modified.isEmpty();
+		}
+
+		/**
+		 * Determine whether a mod jar is known to be unchanged since the previous (re)load.
+		 */
+		boolean isUnchanged(Path path) {
+			return !overflow
+					&& dir.equals(path.getParent())
+					&& !added.contains(path)
+					&& !modified.contains(path);
+		}
+
+		private void record(WatchEvent.Kind<?> kind, Path path) {
+			if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+				if (!removed.remove(path)) {
+					added.add(path);
+				} else {
+					modified.add(path); // replaced
+				}
+			} else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+				modified.remove(path);
+				if (!added.remove(path)) removed.add(path);
+			} else if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+				if (!added.contains(path)) modified.add(path);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return overflow ? "overflow" : String.format("added %s, removed %s, modified %s", added, removed, modified);
+		}
+	}
+
+	private final Path dir;
+	private final WatchService watchService;
+	private final Thread thread;
+	private volatile Runnable listener;
+	private volatile boolean closed;
+	private Delta delta;
+
+	private ModsDirectoryWatcher(Path dir, WatchService watchService) {
+		this.dir = dir;
+		this.watchService = watchService;
+		this.thread = new Thread(this::run, "Fabric Mods Watcher");
+		this.delta = new Delta(dir);
+	}
+
+	/**
+	 * Start watching a mods directory.
+	 *
+	 * @return the watcher or null if the directory can't be watched
+	 */
+	public static ModsDirectoryWatcher start(Path dir) {
+		ModsDirectoryWatcher ret;
+
+		try {
+			dir = LoaderUtil.normalizeExistingPath(dir);
+			WatchService watchService = dir.getFileSystem().newWatchService();
+			dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+			ret = new ModsDirectoryWatcher(dir, watchService);
+		} catch (IOException | RuntimeException e) {
+			Log.warn(LogCategory.DISCOVERY, "Can't watch mods directory %s", dir, e);
+			return null;
+		}
+
+		ret.thread.setDaemon(true);
+		ret.thread.start();
+
+		Log.debug(LogCategory.DISCOVERY, "Watching mods directory %s", dir);
+
+		return ret;
+	}
+
+	/**
+	 * Set the callback for settled changes, which is also invoked for changes already recorded.
+	 *
+	 * @param listener the callback, invoked on the watcher thread, or null
+	 */
+	public void setListener(Runnable listener) {
+		// wake the watcher thread to notify about the pending changes once settled, before publishing the listener so
+		// the interrupt can't hit the listener itself
+		if (listener != null && hasChanges()) thread.interrupt();
+
+		this.listener = listener;
+	}
+
+	private void run() {
+		boolean pending = false;
+
+		while (!closed) {
+			WatchKey key;
+
+			try {
+				key = pending ? watchService.poll(SETTLE_TIME_MS, TimeUnit.MILLISECONDS) : watchService.take();
+			} catch (ClosedWatchServiceException e) {
+				break;
+			} catch (InterruptedException e) { // see setListener
+				pending = true;
+				continue;
+			}
+
+			if (key == null) { // changes settled
+				pending = false;
+				notifyListener();
+				continue;
+			}
+
+			for (WatchEvent<?> event : key.pollEvents()) {
+				pending |= record(event);
+			}
+
+			if (!key.reset()) {
+				Log.warn(LogCategory.DISCOVERY, "Mods directory %s is no longer accessible, stopped watching it", dir);
+				markOverflow();
+				break;
+			}
+		}
+	}
+
+	private boolean record(WatchEvent<?> event) {
+		WatchEvent.Kind<?> kind = event.kind();
+
+		if (kind == StandardWatchEventKinds.OVERFLOW) {
+			markOverflow();
+			return true;
+		}
+
+		Path path = dir.resolve((Path) event.context());
+
+		if (!isJarName(path)) return false;
+
+		if (kind != StandardWatchEventKinds.ENTRY_DELETE
+				&& Files.exists(path) && !DirectoryModCandidateFinder.isValidFile(path)) { // e.g. hidden file or directory
+			return false;
+		}
+
+		Log.debug(LogCategory.DISCOVERY, "Mods directory change: %s %s", kind.name(), path);
+
+		synchronized (this) {
+			delta.record(kind, path);
+		}
+
+		return true;
+	}
+
+	private static boolean isJarName(Path path) {
+		String fileName = path.getFileName().toString();
+
+		return fileName.endsWith(".jar") && !fileName.startsWith(".");
+	}
+
+	private void notifyListener() {
+		Runnable listener = this.listener;
+		if (listener == null || !hasChanges()) return;
+
+		try {
+			listener.run();
+		} catch (Throwable t) {
+			Log.error(LogCategory.DISCOVERY, "Error handling mods directory changes", t);
+		}
+	}
+
+	public synchronized boolean hasChanges() {
+		return !delta.isEmpty();
+	}
+
+	/**
+	 * Get the changes recorded since the previous invocation and start recording anew.
+	 */
+	public synchronized Delta pollDelta() {
+		Delta ret = delta;
+		delta = new Delta(dir);
+
+		return ret;
+	}
+
+	/**
+	 * Treat the whole directory as changed for the next delta, e.g. after a failed reload.
+	 */
+	public synchronized void markOverflow() {
+		delta.overflow = true;
+	}
+
+	/**
+	 * Stop watching, the watcher thread exits once it finished notifying the listener.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			Log.debug(LogCategory.DISCOVERY, "Can't close mods directory watcher: %s", e);
+		}
+	}
+}
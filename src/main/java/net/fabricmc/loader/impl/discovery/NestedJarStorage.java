@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import net.fabricmc.loader.impl.util.MappedZipFile;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Off-heap storage for the data of nested jars that had to be inflated or copied out of a jar mapping that gets
+ * released.
+ *
+ * <p>The data is written to regions of a memory mapped scratch file in the cache's tmp dir, or to direct buffers if the
+ * scratch file isn't available. Unlike heap buffers behind soft references the data stays available until the owning
+ * {@link ModCandidate} drops it, without contributing to GC pressure.
+ *
+ * <p>The scratch file is deleted once the storage is closed and all mappings are released. Buffers handed out before
+ * closing remain valid.
+ */
+final class NestedJarStorage implements Closeable {
+	private static final String FILE_PREFIX = "nestedJars-";
+	private static final String FILE_SUFFIX = ".bin";
+
+	private final FileChannel channel;
+	private long size;
+	private boolean closed;
+
+	static NestedJarStorage create(Path tmpDir) {
+		try {
+			removeStale(tmpDir);
+			Files.createDirectories(tmpDir);
+			Path file = Files.createTempFile(tmpDir, FILE_PREFIX, FILE_SUFFIX);
+
+			return new NestedJarStorage(FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE));
+		} catch (IOException e) {
+			Log.debug(LogCategory.DISCOVERY, "Can't create nested jar scratch file in %s, using direct buffers: %s", tmpDir, e);
+			return new NestedJarStorage(null);
+		}
+	}
+
+	/**
+	 * Remove scratch files left behind by previous launches that didn't shut down cleanly.
+	 */
+	private static void removeStale(Path tmpDir) throws IOException {
+		if (!Files.isDirectory(tmpDir)) return;
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(tmpDir, FILE_PREFIX+"*"+FILE_SUFFIX)) {
+			for (Path path : stream) {
+				try {
+					Files.deleteIfExists(path);
+				} catch (IOException e) {
+					// still in use by another instance
+				}
+			}
+		}
+	}
+
+	private NestedJarStorage(FileChannel channel) {
+		this.channel = channel;
+	}
+
+	/**
+	 * Get the uncompressed data of a nested jar entry, stored entries are returned as a slice of {@code zf}'s buffer.
+	 */
+	ByteBuffer store(MappedZipFile zf, MappedZipFile.Entry entry) throws IOException {
+		if (entry.getMethod() == MappedZipFile.METHOD_STORED) return zf.getStoredDataView(entry);
+
+		return copy(zf, entry);
+	}
+
+	/**
+	 * Copy the uncompressed data of a nested jar entry into the storage, for zip files that get closed afterwards.
+	 */
+	ByteBuffer copy(MappedZipFile zf, MappedZipFile.Entry entry) throws IOException {
+		ByteBuffer ret = allocate(entry.getSize());
+		zf.getData(entry, ret);
+		ret.flip();
+
+		return ret;
+	}
+
+	/**
+	 * Move heap data off-heap.
+	 */
+	ByteBuffer store(ByteBuffer data) throws IOException {
+		ByteBuffer ret = allocate(data.remaining());
+		ret.put(data.duplicate());
+		ret.flip();
+
+		return ret;
+	}
+
+	private synchronized ByteBuffer allocate(long len) throws IOException {
+		if (len > Integer.MAX_VALUE) throw new IOException("nested jar too large: "+len);
+
+		if (channel != null && !closed) {
+			try {
+				// mapping beyond the end extends the file
+				ByteBuffer ret = channel.map(FileChannel.MapMode.READ_WRITE, size, len);
+				size += len;
+
+				return ret;
+			} catch (IOException e) {
+				Log.debug(LogCategory.DISCOVERY, "Can't extend nested jar scratch file, using direct buffers: %s", e);
+				close();
+			}
+		}
+
+		return ByteBuffer.allocateDirect((int) len);
+	}
+
+	@Override
+	public synchronized void close() {
+		if (closed) return;
+
+		closed = true;
+
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				Log.debug(LogCategory.DISCOVERY, "Can't close nested jar scratch file: %s", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import net.fabricmc.loader.impl.util.SystemProperties;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Content addressed store for extracted nested mods.
+ *
+ * <p>Extracted files are named after the nested jar's CRC and size as recorded in its parent's central directory and
+ * verified against them before being atomically moved in place. A manifest records the size and modification time of
+ * every verified file, so later launches can reuse it without reading it or touching the parent jar.
+ *
+ * <p>If a shared store directory is configured through {@link SystemProperties#SHARED_PROCESSED_MODS_DIR}, jars are
+ * extracted there once and hard linked into the game dir's store, falling back to copies where linking isn't possible.
+ *
+ * <p>Files that haven't been used for {@link #MAX_UNUSED_AGE} are removed when saving the manifest.
+ */
+public final class ProcessedModStore implements Closeable {
+	private static final String MANIFEST_NAME = "manifest.bin";
+	private static final int MAGIC = 0x46504d31; // FPM1
+	private static final long MAX_UNUSED_AGE = TimeUnit.DAYS.toMillis(7);
+
+	private static final class Entry {
+		final long hash;
+		final long size;
+		final long lastModified;
+		long lastUsed;
+
+		Entry(long hash, long size, long lastModified, long lastUsed) {
+			this.hash = hash;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	private final Path dir;
+	private final Path sharedDir;
+	private final Map<String, Entry> entries; // by file name
+	private final long now = System.currentTimeMillis();
+	private boolean modified;
+
+	private ProcessedModStore(Path dir, Path sharedDir, Map<String, Entry> entries) {
+		this.dir = dir;
+		this.sharedDir = sharedDir;
+		this.entries = entries;
+	}
+
+	public static ProcessedModStore open(Path dir) {
+		String sharedDirStr = System.getProperty(SystemProperties.SHARED_PROCESSED_MODS_DIR);
+		Path sharedDir = sharedDirStr != null ? Paths.get(sharedDirStr).toAbsolutePath().normalize() : null;
+		Path file = dir.resolve(MANIFEST_NAME);
+		Map<String, Entry> entries = new HashMap<>();
+
+		try (DataInputStream is = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (is.readInt() != MAGIC) throw new IOException("invalid magic");
+
+			int count = is.readInt();
+
+			for (int i = 0; i < count; i++) {
+				entries.put(is.readUTF(), new Entry(is.readLong(), is.readLong(), is.readLong(), is.readLong()));
+			}
+		} catch (NoSuchFileException e) {
+			// first launch
+		} catch (IOException | RuntimeException e) {
+			Log.debug(LogCategory.DISCOVERY, "Can't read processed mods manifest %s: %s", file, e);
+			entries.clear();
+		}
+
+		return new ProcessedModStore(dir, sharedDir, entries);
+	}
+
+	/**
+	 * Get the path of a nested mod's extracted jar, extracting it if there is no verified copy yet.
+	 */
+	public Path extract(ModCandidate mod) throws IOException {
+		String name = mod.getDefaultFileName();
+		long hash = mod.getHash();
+		Path path = dir.resolve(name);
+		Entry entry = entries.get(name);
+
+		if (entry != null && entry.hash == hash && matches(path, entry)) {
+			entry.lastUsed = now;
+			modified = true;
+
+			return path;
+		}
+
+		Files.createDirectories(dir);
+
+		if (!isValid(path, hash)) { // also adopts files from before the manifest existed
+			if (sharedDir != null) {
+				Path sharedPath = sharedDir.resolve(String.format("%016x.jar", hash));
+
+				if (!isValid(sharedPath, hash)) {
+					Files.createDirectories(sharedDir);
+					write(mod, sharedPath);
+				}
+
+				link(sharedPath, path);
+			} else {
+				write(mod, path);
+			}
+		}
+
+		BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		entries.put(name, new Entry(hash, attrs.size(), attrs.lastModifiedTime().toMillis(), now));
+		modified = true;
+
+		return path;
+	}
+
+	private static boolean matches(Path path, Entry entry) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+
+			return attrs.isRegularFile() && attrs.size() == entry.size && attrs.lastModifiedTime().toMillis() == entry.lastModified;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Determine whether a file exists and has the expected CRC and size, reading it fully if the size matches.
+	 */
+	private static boolean isValid(Path path, long hash) {
+		try {
+			return Files.size(path) == ModCandidate.getSize(hash) && computeHash(path) == hash;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static long computeHash(Path path) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[65536];
+		long size = 0;
+		int len;
+
+		try (InputStream is = Files.newInputStream(path)) {
+			while ((len = is.read(buffer)) >= 0) {
+				crc.update(buffer, 0, len);
+				size += len;
+			}
+		}
+
+		return crc.getValue() << 32 | size;
+	}
+
+	private static void write(ModCandidate mod, Path path) throws IOException {
+		Path tmp = getTmpPath(path);
+
+		try {
+			mod.copyToFile(tmp);
+
+			long actualHash = computeHash(tmp);
+
+			if (actualHash != mod.getHash()) {
+				throw new IOException(String.format("extracted nested mod %s doesn't match its recorded CRC and size (%x != %x)", mod, actualHash, mod.getHash()));
+			}
+
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	private static void link(Path source, Path path) throws IOException {
+		Path tmp = getTmpPath(path);
+
+		try {
+			try {
+				Files.createLink(tmp, source);
+			} catch (IOException | UnsupportedOperationException e) { // e.g. different file systems
+				Log.debug(LogCategory.DISCOVERY, "Can't hard link %s to %s, copying instead: %s", source, path, e);
+				Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	private static Path getTmpPath(Path path) {
+		return path.resolveSibling(String.format("%s.%d.tmp", path.getFileName(), Thread.currentThread().getId()));
+	}
+
+	/**
+	 * Remove files unused for longer than {@link #MAX_UNUSED_AGE} and write the manifest.
+	 */
+	public void save() {
+		if (!Files.isDirectory(dir)) return;
+
+		removeUnused();
+		if (!modified) return;
+
+		Path file = dir.resolve(MANIFEST_NAME);
+		Path tmpFile = getTmpPath(file);
+
+		try {
+			try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				os.writeInt(MAGIC);
+				os.writeInt(entries.size());
+
+				for (Map.Entry<String, Entry> e : entries.entrySet()) {
+					Entry entry = e.getValue();
+
+					os.writeUTF(e.getKey());
+					os.writeLong(entry.hash);
+					os.writeLong(entry.size);
+					os.writeLong(entry.lastModified);
+					os.writeLong(entry.lastUsed);
+				}
+			}
+
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Log.warn(LogCategory.DISCOVERY, "Can't write processed mods manifest %s", file, e);
+
+			try {
+				Files.deleteIfExists(tmpFile);
+			} catch (IOException e2) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * Save the manifest, see {@link #save}.
+	 */
+	@Override
+	public void close() {
+		save();
+	}
+
+	private void removeUnused() {
+		long minTime = now - MAX_UNUSED_AGE;
+
+		for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<String, Entry> e = it.next();
+			if (e.getValue().lastUsed >= minTime) continue;
+
+			if (delete(dir.resolve(e.getKey()))) {
+				it.remove();
+				modified = true;
+			}
+		}
+
+		// files not tracked by the manifest, e.g. left behind by a crash or written by older loader versions
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path path : stream) {
+				String name = path.getFileName().toString();
+				if (name.equals(MANIFEST_NAME) || entries.containsKey(name)) continue;
+
+				if (Files.getLastModifiedTime(path).toMillis() < minTime) {
+					delete(path);
+				}
+			}
+		} catch (IOException e) {
+			Log.debug(LogCategory.DISCOVERY, "Can't list processed mods in %s: %s", dir, e);
+		}
+	}
+
+	private static boolean delete(Path path) {
+		try {
+			Log.debug(LogCategory.DISCOVERY, "Removing unused processed mod %s", path);
+			Files.deleteIfExists(path);
+			return true;
+		} catch (IOException e) { // possibly in use by another instance
+			Log.debug(LogCategory.DISCOVERY, "Can't remove unused processed mod %s: %s", path, e);
+			return false;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.lib.gson.JsonWriter;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Statistics for a single mod resolution: problem size, phase timings and per solver run problem sizes and sat4j
+ * statistics such as conflicts and decisions.
+ *
+ * <p>The report is logged and written to the cache dir after every resolution, including failed ones, to spot mod
+ * sets that make the solver's problem grow unexpectedly.
+ */
+final class ResolutionReport {
+	static final String FILE_NAME = "resolutionReport.json"; // relative to cache dir
+
+	int candidateCount;
+	int idCount;
+	int preselectedCount;
+	boolean fastPath;
+	boolean reused;
+	int componentCount;
+	int trivialComponentCount;
+	boolean success;
+	private long totalTime;
+	private final Map<String, Long> phaseTimes = new LinkedHashMap<>();
+	private final List<SolverRunStats> solverRuns = new ArrayList<>();
+
+	synchronized void addPhaseTime(String phase, long nanos) {
+		phaseTimes.merge(phase, nanos, Long::sum);
+	}
+
+	synchronized void addSolverRun(SolverRunStats stats) {
+		solverRuns.add(stats);
+	}
+
+	static final class SolverRunStats {
+		final String phase;
+		final String config;
+		final int variables;
+		final int constraints;
+		final long setupTime;
+		final long solveTime;
+		final boolean satisfiable;
+		final Map<String, Number> solverStats;
+
+		SolverRunStats(String phase, String config, int variables, int constraints, long setupTime, long solveTime, boolean satisfiable,
+				Map<String, Number> solverStats) {
+			this.phase = phase;
+			this.config = config;
+			this.variables = variables;
+			this.constraints = constraints;
+			this.setupTime = setupTime;
+			this.solveTime = solveTime;
+			this.satisfiable = satisfiable;
+			this.solverStats = solverStats;
+		}
+	}
+
+	void finish(long totalTime, boolean success) {
+		this.totalTime = totalTime;
+		this.success = success;
+	}
+
+	synchronized void log() {
+		int variables = 0;
+		int constraints = 0;
+		long solverTime = 0;
+
+		for (SolverRunStats run : solverRuns) {
+			variables = Math.max(variables, run.variables);
+			constraints = Math.max(constraints, run.constraints);
+			solverTime += run.setupTime + run.solveTime;
+		}
+
+		Log.debug(LogCategory.RESOLUTION, "Mod resolution time: %.1f ms, %d candidates for %d ids, %d preselected%s",
+				totalTime * 1e-6, candidateCount, idCount, preselectedCount,
+				fastPath ? ", no solver needed" : (reused ? ", reused previous selection" : ""));
+
+		if (!solverRuns.isEmpty()) {
+			Log.debug(LogCategory.RESOLUTION, "Solver: %d runs taking %.1f ms, %d components (%d trivial), up to %d variables and %d constraints",
+					solverRuns.size(), solverTime * 1e-6, componentCount, trivialComponentCount, variables, constraints);
+		}
+
+		for (SolverRunStats run : solverRuns) {
+			Log.trace(LogCategory.RESOLUTION, "Solver run %s (%s): %d variables, %d constraints, setup %.1f ms, solve %.1f ms, %s, %s",
+					run.phase, run.config, run.variables, run.constraints, run.setupTime * 1e-6, run.solveTime * 1e-6,
+					run.satisfiable ? "sat" : "unsat", run.solverStats);
+		}
+	}
+
+	synchronized void write(Path cacheDir) {
+		Path file = cacheDir.resolve(FILE_NAME);
+
+		try {
+			Files.createDirectories(cacheDir);
+
+			try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+				writer.setIndent("\t");
+				writer.beginObject();
+				writer.name("loaderVersion").value(FabricLoaderImpl.VERSION);
+				writer.name("success").value(success);
+				writer.name("totalMs").value(toMs(totalTime));
+				writer.name("candidates").value(candidateCount);
+				writer.name("ids").value(idCount);
+				writer.name("preselected").value(preselectedCount);
+				writer.name("fastPath").value(fastPath);
+				writer.name("reused").value(reused);
+				writer.name("components").value(componentCount);
+				writer.name("trivialComponents").value(trivialComponentCount);
+
+				writer.name("phases").beginObject();
+
+				for (Map.Entry<String, Long> entry : phaseTimes.entrySet()) {
+					writer.name(entry.getKey()).value(toMs(entry.getValue()));
+				}
+
+				writer.endObject();
+
+				writer.name("solverRuns").beginArray();
+
+				for (SolverRunStats run : solverRuns) {
+					writer.beginObject();
+					writer.name("phase").value(run.phase);
+					writer.name("config").value(run.config);
+					writer.name("variables").value(run.variables);
+					writer.name("constraints").value(run.constraints);
+					writer.name("setupMs").value(toMs(run.setupTime));
+					writer.name("solveMs").value(toMs(run.solveTime));
+					writer.name("satisfiable").value(run.satisfiable);
+
+					if (run.solverStats != null) {
+						writer.name("stats").beginObject();
+
+						for (Map.Entry<String, Number> entry : new TreeMap<>(run.solverStats).entrySet()) {
+							Number value = entry.getValue();
+
+							if (value instanceof Double || value instanceof Float) {
+								double v = value.doubleValue();
+								if (!Double.isNaN(v) && !Double.isInfinite(v)) writer.name(entry.getKey()).value(v);
+							} else if (value != null) {
+								writer.name(entry.getKey()).value(value.longValue());
+							}
+						}
+
+						writer.endObject();
+					}
+
+					writer.endObject();
+				}
+
+				writer.endArray();
+				writer.endObject();
+			}
+		} catch (IOException e) {
+			Log.debug(LogCategory.RESOLUTION, "Can't write resolution report %s: %s", file, e);
+		}
+	}
+
+	private static double toMs(long nanos) {
+		return Math.round(nanos / 1e3) / 1e3;
+	}
+}
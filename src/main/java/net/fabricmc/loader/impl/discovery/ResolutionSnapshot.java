@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.api.metadata.ModDependency;
+import net.fabricmc.loader.api.metadata.version.VersionPredicate;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Outcome of a successful solver run together with a digest of the problem it solved.
+ *
+ * <p>The digest covers everything the solver constraints are derived from: the priority ordered candidates with their
+ * ids, versions, provides, effective dependencies (after overrides and softening), nesting and load conditions as well
+ * as the preselected mods. The solver is deterministic, so an identical digest yields the identical selection and the
+ * recorded one can be applied without running it again. Version and dependency overrides are covered through the
+ * effective metadata they produce.
+ *
+ * <p>The last snapshot is persisted in the cache dir, which lets warm starts with an unchanged mod set skip the solver.
+ */
+final class ResolutionSnapshot {
+	private static final String FILE_NAME = "resolutionCache.bin"; // relative to cache dir
+	private static final int MAGIC = 0x46524331; // FRC1
+	private static final int DIGEST_LENGTH = 32;
+
+	private final byte[] problemDigest;
+	private final int[] selectedIndices; // indices into allModsSorted
+
+	private ResolutionSnapshot(byte[] problemDigest, int[] selectedIndices) {
+		this.problemDigest = problemDigest;
+		this.selectedIndices = selectedIndices;
+	}
+
+	/**
+	 * Record the solver's selection, to be called right after a successful solve.
+	 */
+	static ResolutionSnapshot capture(byte[] problemDigest, List<ModCandidate> allModsSorted, Map<String, ModCandidate> selectedMods) {
+		int[] selectedIndices = new int[allModsSorted.size()];
+		int count = 0;
+
+		for (int i = 0; i < allModsSorted.size(); i++) {
+			ModCandidate mod = allModsSorted.get(i);
+
+			if (selectedMods.get(mod.getId()) == mod) {
+				selectedIndices[count++] = i;
+			}
+		}
+
+		return new ResolutionSnapshot(problemDigest, Arrays.copyOf(selectedIndices, count));
+	}
+
+	/**
+	 * Load the snapshot persisted by {@link #save}.
+	 *
+	 * @return the snapshot or null if there is none or it can't be read
+	 */
+	static ResolutionSnapshot load(Path cacheDir) {
+		Path file = cacheDir.resolve(FILE_NAME);
+
+		try (DataInputStream is = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (is.readInt() != MAGIC) throw new IOException("invalid magic");
+
+			byte[] problemDigest = new byte[DIGEST_LENGTH];
+			is.readFully(problemDigest);
+
+			int count = is.readInt();
+			if (count < 0) throw new IOException("invalid selected mod count: "+count);
+
+			int[] selectedIndices = new int[count];
+			int prev = -1;
+
+			for (int i = 0; i < count; i++) {
+				int idx = is.readInt();
+				if (idx <= prev) throw new IOException("invalid selected mod index: "+idx);
+
+				selectedIndices[i] = prev = idx;
+			}
+
+			return new ResolutionSnapshot(problemDigest, selectedIndices);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | RuntimeException e) {
+			Log.debug(LogCategory.RESOLUTION, "Can't read resolution cache %s: %s", file, e);
+			return null;
+		}
+	}
+
+	void save(Path cacheDir) {
+		Path file = cacheDir.resolve(FILE_NAME);
+		Path tmpFile = file.resolveSibling(FILE_NAME + ".tmp");
+
+		try {
+			Files.createDirectories(cacheDir);
+
+			try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				os.writeInt(MAGIC);
+				os.write(problemDigest);
+				os.writeInt(selectedIndices.length);
+
+				for (int idx : selectedIndices) {
+					os.writeInt(idx);
+				}
+			}
+
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Log.warn(LogCategory.RESOLUTION, "Can't write resolution cache %s", file, e);
+
+			try {
+				Files.deleteIfExists(tmpFile);
+			} catch (IOException e2) {
+				// ignore
+			}
+		}
+	}
+
+	boolean matches(byte[] problemDigest) {
+		return Arrays.equals(this.problemDigest, problemDigest);
+	}
+
+	/**
+	 * Select the mods the recorded solver run selected, equivalent to {@link ModSolver#solve} succeeding.
+	 */
+	void apply(List<ModCandidate> allModsSorted, Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods) throws ModResolutionException {
+		for (int idx : selectedIndices) {
+			ModResolver.selectMod(allModsSorted.get(idx), selectedMods, uniqueSelectedMods);
+		}
+	}
+
+	int getSelectedCount() {
+		return selectedIndices.length;
+	}
+
+	/**
+	 * Compute the digest of the resolution problem, after preselection.
+	 */
+	static byte[] computeProblemDigest(List<ModCandidate> allModsSorted, Map<String, ModCandidate> selectedMods, EnvType envType) {
+		MessageDigest digest = createDigest();
+		StringBuilder sb = new StringBuilder();
+
+		sb.append(FabricLoaderImpl.VERSION).append(' ').append(envType.name()).append('\n');
+
+		for (ModCandidate mod : new TreeMap<>(selectedMods).values()) {
+			sb.append("pre ");
+			appendMod(mod, sb);
+		}
+
+		Map<ModCandidate, Integer> indices = new IdentityHashMap<>(allModsSorted.size());
+
+		for (int i = 0; i < allModsSorted.size(); i++) {
+			indices.put(allModsSorted.get(i), i);
+		}
+
+		for (ModCandidate mod : allModsSorted) {
+			appendMod(mod, sb);
+
+			for (ModCandidate parent : mod.getParentMods()) {
+				Integer idx = indices.get(parent);
+
+				if (idx != null) {
+					sb.append("parent ").append(idx.intValue()).append('\n');
+				} else {
+					sb.append("parent ").append(parent.getId()).append(' ').append(parent.getVersion().getFriendlyString()).append('\n');
+				}
+			}
+
+			digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+			sb.setLength(0);
+		}
+
+		digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+
+		return digest.digest();
+	}
+
+	private static void appendMod(ModCandidate mod, StringBuilder sb) {
+		sb.append(mod.getId()).append(' ').append(mod.getVersion().getFriendlyString());
+		sb.append(' ').append(mod.getLoadCondition().name());
+		sb.append(' ').append(mod.isBuiltin()).append('\n');
+
+		for (String provided : mod.getProvides()) {
+			sb.append("provides ").append(provided).append('\n');
+		}
+
+		for (ModDependency dep : mod.getDependencies()) {
+			sb.append("dep ").append(dep.getKind().getKey()).append(' ').append(dep.getModId());
+
+			for (VersionPredicate predicate : dep.getVersionRequirements()) {
+				sb.append(' ').append(predicate);
+			}
+
+			sb.append('\n');
+		}
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
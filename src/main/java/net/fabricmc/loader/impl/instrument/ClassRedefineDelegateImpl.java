@@ -14,6 +14,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.security.CodeSource;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Locale;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
@@ -181,12 +182,43 @@ public class ClassRedefineDelegateImpl<T extends ClassLoader & KnotClassDelegate
 	@Override
 	public void redefineClass(String name, byte[] b, int off, int len, CodeSource cs) {
 		try {
-			inst.redefineClasses(new ClassDefinition(Class.forName(name), b));
+			inst.redefineClasses(new ClassDefinition(findClass(name), copyRange(b, off, len)));
 		} catch (Exception e) {
 			throw new RuntimeException("Unable to redefine class " + name, e);
 		}
 	}
 
+	@Override
+	public void redefineClasses(Collection<Definition> definitions) {
+		if (definitions.isEmpty()) return;
+
+		ClassDefinition[] classDefinitions = new ClassDefinition[definitions.size()];
+		int i = 0;
+
+		try {
+			for (Definition definition : definitions) {
+				classDefinitions[i++] = new ClassDefinition(findClass(definition.getName()), definition.getBytes());
+			}
+
+			inst.redefineClasses(classDefinitions);
+		} catch (Exception e) {
+			throw new RuntimeException("Unable to redefine " + definitions.size() + " classes", e);
+		}
+	}
+
+	private Class<?> findClass(String name) throws ClassNotFoundException {
+		// only classes defined by our class loader are eligible, avoid resolving through the caller's class loader
+		Class<?> cls = classLoader.findLoadedClassFwd(name);
+
+		return cls != null ? cls : Class.forName(name, false, classLoader);
+	}
+
+	private static byte[] copyRange(byte[] b, int off, int len) {
+		if (off == 0 && len == b.length) return b;
+
+		return Arrays.copyOfRange(b, off, off + len);
+	}
+
 	public static <C extends ClassLoader & KnotClassDelegate.ClassLoaderAccess> ClassRedefineDelegate<C> attatchDelegate(C classLoader) {
 		return new ClassRedefineDelegateImpl<>(classLoader);
 	}
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.launch.knot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import net.fabricmc.loader.impl.util.MappedZipFile;
+import net.fabricmc.loader.impl.util.SystemProperties;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Index mapping class file names to the code source providing them, built from the jar central directories when the
+ * code sources get added.
+ *
+ * <p>Indexed jars are memory mapped through {@link MappedZipFile} so class bytes can be read without going through
+ * the URL and JarURLConnection machinery, with {@link ZipFile} as the fallback for jars it doesn't support.
+ *
+ * <p>The index mirrors the class loader's lookup order: the first code source containing a class file wins. Code
+ * sources that can't be indexed (directories, multi-release jars, unreadable jars) are only tracked by their position,
+ * index hits from later code sources are then ignored since the unindexed one may shadow them.
+ *
+ * <p>Jars replaced on disk are only picked up by {@link #refresh}, which has to run before reading classes from them
+ * again as the old mapping no longer reflects the file. A jar overwritten in place faults on access to the mapping,
+ * {@link #readClass} then refreshes the index on its own and retries the read.
+ */
+final class CodeSourceIndex {
+	private static final String MULTI_RELEASE_PREFIX = "META-INF/versions/";
+	private static final boolean DISABLE_MAPPED_JARS = System.getProperty(SystemProperties.DEBUG_DISABLE_MAPPED_JARS) != null;
+
+	private static final class Entry {
+		final Path codeSource;
+		final MappedZipFile mappedZipFile; // null if not mapped
+		final ZipFile zipFile; // fallback if mappedZipFile is null, both null if not indexed
+		final int order;
+		final long size; // -1 if not a regular file
+		final long lastModified;
+
+		Entry(Path codeSource, MappedZipFile mappedZipFile, ZipFile zipFile, int order, long size, long lastModified) {
+			this.codeSource = codeSource;
+			this.mappedZipFile = mappedZipFile;
+			this.zipFile = zipFile;
+			this.order = order;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		boolean isIndexed() {
+			return mappedZipFile != null || zipFile != null;
+		}
+
+		boolean isStale() {
+			if (size < 0) return false;
+
+			try {
+				BasicFileAttributes attrs = Files.readAttributes(codeSource, BasicFileAttributes.class);
+
+				return attrs.size() != size || attrs.lastModifiedTime().toMillis() != lastModified;
+			} catch (IOException e) {
+				return true;
+			}
+		}
+
+		void close() {
+			if (mappedZipFile != null) mappedZipFile.close();
+
+			if (zipFile != null) {
+				try {
+					zipFile.close();
+				} catch (IOException e) {
+					Log.debug(LogCategory.KNOT, "Error closing code source %s: %s", codeSource, e);
+				}
+			}
+		}
+	}
+
+	private final List<Entry> codeSources = new ArrayList<>();
+	private volatile Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private volatile int firstUnindexed = Integer.MAX_VALUE;
+
+	/**
+	 * Add the class files from a code source, must be invoked in the same order as the code sources are added to the
+	 * class loader and before adding them there.
+	 */
+	synchronized void add(Path codeSource) {
+		int order = codeSources.size();
+		Entry entry = open(codeSource, order);
+		codeSources.add(entry);
+
+		if (!entry.isIndexed()) {
+			if (order < firstUnindexed) firstUnindexed = order;
+			return;
+		}
+
+		int count = index(entry, entries);
+		Log.debug(LogCategory.KNOT, "Indexed %d classes from %s", count, codeSource);
+	}
+
+	/**
+	 * Re-index all code sources whose size or modification time changed since they were indexed.
+	 *
+	 * <p>The outdated jars get closed, releasing their mappings. Concurrent reads through them are retried with the
+	 * new index.
+	 *
+	 * @return whether any code source changed
+	 */
+	synchronized boolean refresh() {
+		List<Entry> replaced = new ArrayList<>();
+
+		for (int i = 0; i < codeSources.size(); i++) {
+			Entry entry = codeSources.get(i);
+
+			if (entry.isStale()) {
+				codeSources.set(i, open(entry.codeSource, entry.order));
+				replaced.add(entry);
+			}
+		}
+
+		if (replaced.isEmpty()) return false;
+
+		// rebuild the whole index, the changed jars may add or remove classes shadowing later code sources
+		Map<String, Entry> newEntries = new ConcurrentHashMap<>(entries.size() * 4 / 3 + 1);
+		int newFirstUnindexed = Integer.MAX_VALUE;
+
+		for (Entry entry : codeSources) {
+			if (entry.isIndexed()) {
+				index(entry, newEntries);
+			} else if (entry.order < newFirstUnindexed) {
+				newFirstUnindexed = entry.order;
+			}
+		}
+
+		firstUnindexed = Math.min(firstUnindexed, newFirstUnindexed); // don't expose a too permissive state in between
+		entries = newEntries;
+		firstUnindexed = newFirstUnindexed;
+
+		for (Entry entry : replaced) {
+			Log.debug(LogCategory.KNOT, "Re-indexed changed code source %s", entry.codeSource);
+			entry.close();
+		}
+
+		return true;
+	}
+
+	private static int index(Entry entry, Map<String, Entry> entries) {
+		int count = 0;
+
+		if (entry.mappedZipFile != null) {
+			for (MappedZipFile.Entry e : entry.mappedZipFile.getEntries()) {
+				if (e.getName().endsWith(".class")) {
+					entries.putIfAbsent(e.getName(), entry);
+					count++;
+				}
+			}
+		} else {
+			for (Enumeration<? extends ZipEntry> e = entry.zipFile.entries(); e.hasMoreElements(); ) {
+				String name = e.nextElement().getName();
+
+				if (name.endsWith(".class")) {
+					entries.putIfAbsent(name, entry);
+					count++;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	private static Entry open(Path codeSource, int order) {
+		BasicFileAttributes attrs;
+
+		try {
+			// read before opening, a change in between is then detected by the next refresh
+			attrs = Files.readAttributes(codeSource, BasicFileAttributes.class);
+		} catch (IOException e) {
+			attrs = null;
+		}
+
+		if (attrs == null || !attrs.isRegularFile()) return new Entry(codeSource, null, null, order, -1, 0);
+
+		long size = attrs.size();
+		long lastModified = attrs.lastModifiedTime().toMillis();
+
+		if (!DISABLE_MAPPED_JARS) {
+			try {
+				MappedZipFile zipFile = MappedZipFile.open(codeSource);
+
+				// versioned entries are selected by the class loader at runtime, don't try to replicate that
+				if (zipFile.isMultiRelease()) {
+					zipFile.close();
+					return new Entry(codeSource, null, null, order, size, lastModified);
+				}
+
+				return new Entry(codeSource, zipFile, null, order, size, lastModified);
+			} catch (IOException e) {
+				Log.debug(LogCategory.KNOT, "Can't map code source %s, falling back to ZipFile: %s", codeSource, e);
+			}
+		}
+
+		ZipFile ret = null;
+
+		try {
+			ret = new ZipFile(codeSource.toFile());
+
+			for (Enumeration<? extends ZipEntry> e = ret.entries(); e.hasMoreElements(); ) {
+				if (e.nextElement().getName().startsWith(MULTI_RELEASE_PREFIX)) {
+					ret.close();
+					return new Entry(codeSource, null, null, order, size, lastModified);
+				}
+			}
+
+			return new Entry(codeSource, null, ret, order, size, lastModified);
+		} catch (IOException e) {
+			Log.debug(LogCategory.KNOT, "Can't index code source %s: %s", codeSource, e);
+
+			if (ret != null) {
+				try {
+					ret.close();
+				} catch (IOException e2) {
+					e.addSuppressed(e2);
+				}
+			}
+
+			return new Entry(codeSource, null, null, order, size, lastModified);
+		}
+	}
+
+	/**
+	 * Get the code source providing a class file.
+	 *
+	 * @return the code source or null if unknown
+	 */
+	Path getCodeSource(String fileName) {
+		Entry entry = getEntry(fileName);
+
+		return entry != null ? entry.codeSource : null;
+	}
+
+	/**
+	 * Determine whether a lookup miss is authoritative, i.e. the class file is definitely not in any code source.
+	 */
+	boolean isMissAuthoritative(String fileName) {
+		return firstUnindexed == Integer.MAX_VALUE && !entries.containsKey(fileName);
+	}
+
+	/**
+	 * Read the class file directly from its indexed jar.
+	 *
+	 * @return the class bytes or null if the class file isn't reliably indexed
+	 */
+	byte[] readClass(String fileName) throws IOException {
+		for (;;) {
+			Entry entry = getEntry(fileName);
+			if (entry == null) return null;
+
+			try {
+				return readClass(entry, fileName);
+			} catch (IllegalStateException e) {
+				// closed by a concurrent refresh, which already replaced the entry
+				if (getEntry(fileName) == entry) throw e;
+			} catch (IOException e) {
+				// the jar may have been overwritten in place, retry with a fresh mapping if so
+				if (entry.mappedZipFile == null || !entry.isStale()) throw e;
+
+				Log.debug(LogCategory.KNOT, "Code source %s changed while mapped, re-indexing: %s", entry.codeSource, e);
+				refresh();
+			}
+		}
+	}
+
+	private static byte[] readClass(Entry entry, String fileName) throws IOException {
+		if (entry.mappedZipFile != null) {
+			MappedZipFile.Entry zipEntry = entry.mappedZipFile.getEntry(fileName);
+
+			return zipEntry != null ? entry.mappedZipFile.getBytes(zipEntry) : null;
+		}
+
+		ZipEntry zipEntry = entry.zipFile.getEntry(fileName);
+		if (zipEntry == null) return null;
+
+		try (InputStream is = entry.zipFile.getInputStream(zipEntry)) {
+			byte[] ret = new byte[(int) zipEntry.getSize()];
+			int offset = 0;
+			int len;
+
+			while (offset < ret.length && (len = is.read(ret, offset, ret.length - offset)) >= 0) {
+				offset += len;
+			}
+
+			if (offset != ret.length) throw new IOException("truncated class file " + fileName + " in " + entry.codeSource);
+
+			return ret;
+		}
+	}
+
+	private Entry getEntry(String fileName) {
+		Entry ret = entries.get(fileName);
+		if (ret == null || ret.order > firstUnindexed) return null;
+
+		return ret;
+	}
+}
@@ -45,6 +45,7 @@ import net.fabricmc.loader.impl.instrument.ClassRedefineDelegateImpl;
 import net.fabricmc.loader.impl.launch.FabricLauncherBase;
 import net.fabricmc.loader.impl.launch.FabricMixinBootstrap;
 import net.fabricmc.loader.impl.util.LoaderUtil;
+import net.fabricmc.loader.impl.util.StartupProfiler;
 import net.fabricmc.loader.impl.util.SystemProperties;
 import net.fabricmc.loader.impl.util.UrlUtil;
 import net.fabricmc.loader.impl.util.log.Log;
@@ -102,6 +103,81 @@ public final class Knot extends FabricLauncherBase {
 			}
 		}
 
+		ClassLoader cl;
+
+		try (StartupProfiler.Section initSection = StartupProfiler.start("Knot init")) {
+			try (StartupProfiler.Section section = StartupProfiler.start("class path processing")) {
+				processClassPath();
+			}
+
+			try (StartupProfiler.Section section = StartupProfiler.start("game provider lookup")) {
+				provider = createGameProvider(args);
+			}
+
+			Log.finishBuiltinConfig();
+			Log.info(LogCategory.GAME_PROVIDER, "Loading %s %s with Fabric Loader %s", provider.getGameName(), provider.getRawGameVersion(), FabricLoaderImpl.VERSION);
+
+			// Setup classloader
+			boolean reloadable;
+
+			try (StartupProfiler.Section section = StartupProfiler.start("class loader setup")) {
+				reloadable = setupClassLoader();
+			}
+
+			try (StartupProfiler.Section section = StartupProfiler.start("game provider initialization")) {
+				provider.initialize(this);
+			}
+
+			cl = classLoader.getClassLoader();
+			Thread.currentThread().setContextClassLoader(cl);
+
+			FabricLoaderImpl loader = FabricLoaderImpl.INSTANCE;
+			loader.setGameProvider(provider);
+			loader.setReloadable(reloadable);
+
+			try (StartupProfiler.Section s = StartupProfiler.start("mod loading")) {
+				loader.load();
+			}
+
+			try (StartupProfiler.Section s = StartupProfiler.start("mod setup")) {
+				loader.freeze();
+			}
+
+			try (StartupProfiler.Section s = StartupProfiler.start("access widener loading")) {
+				FabricLoaderImpl.INSTANCE.loadAccessWideners();
+			}
+
+			try (StartupProfiler.Section s = StartupProfiler.start("mixin bootstrap")) {
+				FabricMixinBootstrap.init(getEnvironmentType(), loader);
+				FabricLauncherBase.finishMixinBootstrapping();
+			}
+
+			try (StartupProfiler.Section s = StartupProfiler.start("transformer initialization")) {
+				classLoader.initializeTransformers();
+			}
+
+			try (StartupProfiler.Section s = StartupProfiler.start("class path unlocking")) {
+				provider.unlockClassPath(this);
+			}
+
+			unlocked = true;
+
+			try (StartupProfiler.Section s = StartupProfiler.start("preLaunch entrypoints")) {
+				loader.invokeEntrypoints("preLaunch", PreLaunchEntrypoint.class, PreLaunchEntrypoint::onPreLaunch);
+			} catch (RuntimeException e) {
+				throw FormattedException.ofLocalized("exception.initializerFailure", e);
+			}
+
+			// preLaunch entrypoints may still add mixin configs, which the prewarmed classes wouldn't reflect
+			classLoader.startPrewarm();
+		}
+
+		StartupProfiler.dump(FabricLoaderImpl.INSTANCE.getGameDir().resolve(FabricLoaderImpl.CACHE_DIR_NAME));
+
+		return cl;
+	}
+
+	private void processClassPath() {
 		classPath.clear();
 
 		List<String> missing = null;
@@ -129,17 +205,19 @@ public final class Knot extends FabricLauncherBase {
 			Log.warn(LogCategory.KNOT, "Knot does not support wildcard class path entries: %s - the game may not load properly!", String.join(", ", unsupported));
 		if (missing != null)
 			Log.warn(LogCategory.KNOT, "Class path entries reference missing files: %s - the game may not load properly!", String.join(", ", missing));
+	}
 
-		provider = createGameProvider(args);
-		Log.finishBuiltinConfig();
-		Log.info(LogCategory.GAME_PROVIDER, "Loading %s %s with Fabric Loader %s", provider.getGameName(), provider.getRawGameVersion(), FabricLoaderImpl.VERSION);
-
-		// Setup classloader
+	/**
+	 * Create the class loader and attach the class redefinition delegate to it.
+	 *
+	 * @return whether classes can be redefined for reloading
+	 */
+	private boolean setupClassLoader() {
 		// TODO: Provide KnotCompatibilityClassLoader in non-exclusive-Fabric pre-1.13 environments?
 		boolean useCompatibility = provider.requiresUrlClassLoader() || Boolean.parseBoolean(System.getProperty("fabric.loader.useCompatibilityClassLoader", "false"));
 		classLoader = KnotClassLoaderInterface.create(useCompatibility, isDevelopment(), envType, provider);
 		ClassLoader cl = classLoader.getClassLoader();
-		boolean reloadable = true;
+
 		try {
 			if (cl instanceof KnotClassLoader) {
 				((KnotClassLoader) cl).setClassRedefineDelegate(ClassRedefineDelegateImpl.attatchDelegate((KnotClassLoader) cl));
@@ -148,35 +226,10 @@ public final class Knot extends FabricLauncherBase {
 			}
 		} catch (Exception e) {
 			Log.warn(LogCategory.KNOT, "Failed to set ClassRedefineDelegate, class reloading feature might unavailable.", e);
-			reloadable = false;
-		}
-		provider.initialize(this);
-
-		Thread.currentThread().setContextClassLoader(cl);
-
-		FabricLoaderImpl loader = FabricLoaderImpl.INSTANCE;
-		loader.setGameProvider(provider);
-		loader.setReloadable(reloadable);
-		loader.load();
-		loader.freeze();
-
-		FabricLoaderImpl.INSTANCE.loadAccessWideners();
-
-		FabricMixinBootstrap.init(getEnvironmentType(), loader);
-		FabricLauncherBase.finishMixinBootstrapping();
-
-		classLoader.initializeTransformers();
-
-		provider.unlockClassPath(this);
-		unlocked = true;
-
-		try {
-			loader.invokeEntrypoints("preLaunch", PreLaunchEntrypoint.class, PreLaunchEntrypoint::onPreLaunch);
-		} catch (RuntimeException e) {
-			throw FormattedException.ofLocalized("exception.initializerFailure", e);
+			return false;
 		}
 
-		return cl;
+		return true;
 	}
 
 	private GameProvider createGameProvider(String[] args) {
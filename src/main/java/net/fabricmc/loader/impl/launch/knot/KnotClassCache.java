@@ -0,0 +1,326 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.launch.knot;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import org.spongepowered.asm.launch.MixinBootstrap;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.ModContainerImpl;
+import net.fabricmc.loader.impl.game.GameProvider;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Persistent cache for fully transformed (entrypoint, Fabric and Mixin transformers applied) class bytes.
+ *
+ * <p>Entries are stored in a directory specific to a fingerprint of everything that may influence the transformation
+ * outside of the class itself: loader and Mixin versions, environment, game version and the loaded mods including
+ * their code source files, mixin configs and access wideners. The entry key is a hash of the class name and the class
+ * bytes before transformation, so modified classes are never served stale.
+ *
+ * <p>Only classes Mixin leaves untouched are cached. Mixin registers the synthetic classes it generates for a target,
+ * e.g. {@code @ModifyArgs} argument bundles, while transforming that target, so mixin targets always pass through Mixin.
+ * Whether a mixin applies isn't fully captured by the fingerprint: config plugins, external mod configs and configs
+ * registered at runtime may enable one without any file change. Cache hits are therefore only served for classes no
+ * active mixin config may target, as determined by the caller.
+ */
+final class KnotClassCache {
+	private static final String DIR_NAME = "classCache"; // relative to cache dir
+	private static final int FORMAT_VERSION = 2; // part of the fingerprint, bump to invalidate existing caches
+	private static final String ENTRY_SUFFIX = ".class";
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final Path dir;
+	private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(KnotClassCache::createDigest);
+
+	private KnotClassCache(Path dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * Create a class cache for the current mod set, removing caches for all other mod sets.
+	 *
+	 * @return the cache or null if the environment isn't suitable for caching
+	 */
+	static KnotClassCache create(FabricLoaderImpl loader, GameProvider provider, boolean isDevelopment, EnvType envType) {
+		String fingerprint = computeFingerprint(loader, provider, isDevelopment, envType, false);
+
+		if (fingerprint == null) {
+			Log.debug(LogCategory.KNOT, "Class caching disabled, the mod set can't be fingerprinted");
+			return null;
+		}
+
+		return open(loader.getGameDir().resolve(FabricLoaderImpl.CACHE_DIR_NAME).resolve(DIR_NAME), fingerprint);
+	}
+
+	/**
+	 * Open the cache for a fingerprint below root, removing the caches for all other fingerprints.
+	 *
+	 * @return the cache or null if the directory can't be set up
+	 */
+	static KnotClassCache open(Path root, String fingerprint) {
+		Path dir = root.resolve(fingerprint);
+
+		try {
+			removeStale(root, dir);
+			Files.createDirectories(dir);
+		} catch (IOException e) {
+			Log.warn(LogCategory.KNOT, "Can't set up class cache at %s, caching disabled", dir, e);
+			return null;
+		}
+
+		Log.debug(LogCategory.KNOT, "Using class cache at %s", dir);
+
+		return new KnotClassCache(dir);
+	}
+
+	/**
+	 * Compute a fingerprint of the transformation environment.
+	 *
+	 * @param transformingModsOnly whether to only consider the files of mods that can transform other mods' classes,
+	 *                             i.e. mods with mixin configs or an access widener
+	 * @return the fingerprint or null if it can't be determined reliably
+	 */
+	static String computeFingerprint(FabricLoaderImpl loader, GameProvider provider, boolean isDevelopment, EnvType envType, boolean transformingModsOnly) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(FORMAT_VERSION).append('\n');
+		sb.append(FabricLoaderImpl.VERSION).append('\n');
+		sb.append(MixinBootstrap.VERSION).append('\n');
+		sb.append(envType.name()).append(' ').append(isDevelopment).append('\n');
+		sb.append(provider.getGameId()).append(' ').append(provider.getRawGameVersion()).append('\n');
+		appendTransformerProperties(sb, System.getProperties());
+
+		// reloading may add containers for already present mod ids, the last one is the active one
+		Map<String, ModContainerImpl> mods = new TreeMap<>();
+
+		for (ModContainerImpl mod : loader.getModsInternal()) {
+			mods.put(mod.getMetadata().getId(), mod);
+		}
+
+		for (ModContainerImpl mod : mods.values()) {
+			Collection<String> mixinConfigs = mod.getMetadata().getMixinConfigs(envType);
+			String accessWidener = mod.getMetadata().getAccessWidener();
+
+			if (transformingModsOnly && mixinConfigs.isEmpty() && accessWidener == null) {
+				continue;
+			}
+
+			sb.append(mod.getMetadata().getId()).append(' ').append(mod.getMetadata().getVersion().getFriendlyString()).append('\n');
+
+			for (String config : mixinConfigs) {
+				sb.append("mixin ").append(config).append('\n');
+			}
+
+			if (accessWidener != null) {
+				sb.append("aw ").append(accessWidener).append('\n');
+			}
+
+			for (Path path : mod.getCodeSourcePaths()) {
+				if (!appendCodeSource(sb, path)) {
+					Log.debug(LogCategory.KNOT, "Mod %s is loaded from %s, can't fingerprint it", mod.getMetadata().getId(), path);
+					return null;
+				}
+			}
+		}
+
+		return hashFingerprint(sb);
+	}
+
+	/**
+	 * Append the system properties that configure Mixin or Loader's debug behavior, both may affect transformation.
+	 */
+	static void appendTransformerProperties(StringBuilder sb, Properties properties) {
+		Map<String, String> relevant = new TreeMap<>();
+
+		for (String key : properties.stringPropertyNames()) {
+			if (key.startsWith("mixin.") || key.startsWith("fabric.debug.")) {
+				relevant.put(key, properties.getProperty(key));
+			}
+		}
+
+		for (Map.Entry<String, String> entry : relevant.entrySet()) {
+			sb.append("prop ").append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+		}
+	}
+
+	/**
+	 * Append a code source's identity, consisting of its path, size and modification time.
+	 *
+	 * @return false if the code source can't be fingerprinted reliably
+	 */
+	static boolean appendCodeSource(StringBuilder sb, Path path) {
+		BasicFileAttributes attrs;
+
+		try {
+			attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (IOException e) {
+			Log.debug(LogCategory.KNOT, "Can't read attributes of %s: %s", path, e);
+			return false;
+		}
+
+		// directory contents may change without affecting the directory's own attributes
+		if (!attrs.isRegularFile()) return false;
+
+		sb.append(path).append(' ').append(attrs.size()).append(' ').append(attrs.lastModifiedTime().toMillis()).append('\n');
+
+		return true;
+	}
+
+	static String hashFingerprint(CharSequence fingerprint) {
+		return toHex(createDigest().digest(fingerprint.toString().getBytes(StandardCharsets.UTF_8)), 16);
+	}
+
+	private static void removeStale(Path root, Path current) throws IOException {
+		if (!Files.isDirectory(root)) return;
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+			for (Path path : stream) {
+				if (path.equals(current)) continue;
+
+				Log.debug(LogCategory.KNOT, "Removing stale class cache %s", path);
+				deleteRecursively(path);
+			}
+		}
+	}
+
+	private static void deleteRecursively(Path path) throws IOException {
+		Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.deleteIfExists(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				if (exc != null) throw exc;
+
+				Files.deleteIfExists(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Transform a class, serving the result from the cache if possible.
+	 *
+	 * @param name class name
+	 * @param input class bytes before any transformation
+	 * @param preMixinTransformer transformers to apply before Mixin
+	 * @param mixinTransformer Mixin transformer, expected to return its input as-is if no mixin applies to the class
+	 * @param mixinTarget tests whether any active mixin config may target the class, a cached entry must not be used then
+	 */
+	byte[] transform(String name, byte[] input, UnaryOperator<byte[]> preMixinTransformer, UnaryOperator<byte[]> mixinTransformer, Predicate<String> mixinTarget) {
+		String key = getKey(name, input);
+		byte[] ret = mixinTarget.test(name) ? null : get(key);
+		if (ret != null) return ret;
+
+		byte[] preMixin = preMixinTransformer.apply(input);
+		ret = mixinTransformer.apply(preMixin);
+
+		// an identical array means no mixin applied, anything else has to be left to Mixin on every load
+		if (ret != null && ret == preMixin) put(key, ret);
+
+		return ret;
+	}
+
+	/**
+	 * Compute the cache key for a class from its name and the class bytes before any transformation.
+	 */
+	String getKey(String name, byte[] input) {
+		MessageDigest digest = digests.get();
+		digest.update(name.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(input);
+
+		return toHex(digest.digest(), Integer.MAX_VALUE);
+	}
+
+	byte[] get(String key) {
+		try {
+			return Files.readAllBytes(getEntryPath(key));
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			Log.debug(LogCategory.KNOT, "Can't read class cache entry %s: %s", key, e);
+			return null;
+		}
+	}
+
+	void put(String key, byte[] data) {
+		Path path = getEntryPath(key);
+		Path tmp = path.resolveSibling(key + "." + Thread.currentThread().getId() + ".tmp");
+
+		try {
+			Files.createDirectories(path.getParent());
+			Files.write(tmp, data);
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Log.debug(LogCategory.KNOT, "Can't write class cache entry %s: %s", key, e);
+
+			try {
+				Files.deleteIfExists(tmp);
+			} catch (IOException e2) {
+				// ignore
+			}
+		}
+	}
+
+	private Path getEntryPath(String key) {
+		return dir.resolve(key.substring(0, 2)).resolve(key.concat(ENTRY_SUFFIX));
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes, int maxBytes) {
+		int len = Math.min(bytes.length, maxBytes);
+		char[] ret = new char[len * 2];
+
+		for (int i = 0; i < len; i++) {
+			ret[i * 2] = HEX_DIGITS[(bytes[i] >>> 4) & 0xf];
+			ret[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+		}
+
+		return new String(ret);
+	}
+}
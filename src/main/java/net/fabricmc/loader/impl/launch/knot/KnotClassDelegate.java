@@ -25,8 +25,12 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.file.FileSystemNotFoundException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.CodeSource;
 import java.security.cert.Certificate;
 import java.util.ArrayList;
@@ -35,13 +39,23 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.jar.Manifest;
+import java.util.zip.CRC32;
 
+import org.spongepowered.asm.mixin.Mixins;
+import org.spongepowered.asm.mixin.extensibility.IMixinConfig;
+import org.spongepowered.asm.mixin.transformer.Config;
 import org.spongepowered.asm.mixin.transformer.IMixinTransformer;
 
 import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.api.instrument.ClassRedefineDelegate;
+import net.fabricmc.loader.api.metrics.ClassLoadMetrics.Phase;
+import net.fabricmc.loader.impl.ClassLoadMetricsImpl;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
 import net.fabricmc.loader.impl.game.GameProvider;
 import net.fabricmc.loader.impl.launch.FabricLauncherBase;
 import net.fabricmc.loader.impl.launch.knot.KnotClassDelegate.ClassLoaderAccess;
@@ -53,6 +67,7 @@ import net.fabricmc.loader.impl.util.ManifestUtil;
 import net.fabricmc.loader.impl.util.SystemProperties;
 import net.fabricmc.loader.impl.util.UrlConversionException;
 import net.fabricmc.loader.impl.util.UrlUtil;
+import net.fabricmc.loader.impl.util.WorkerPool;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
 
@@ -61,6 +76,9 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 	private static final boolean LOG_CLASS_LOAD_ERRORS = LOG_CLASS_LOAD || System.getProperty(SystemProperties.DEBUG_LOG_CLASS_LOAD_ERRORS) != null;
 	private static final boolean LOG_TRANSFORM_ERRORS = System.getProperty(SystemProperties.DEBUG_LOG_TRANSFORM_ERRORS) != null;
 	private static final boolean DISABLE_ISOLATION = System.getProperty(SystemProperties.DEBUG_DISABLE_CLASS_PATH_ISOLATION) != null;
+	private static final boolean USE_CLASS_CACHE = System.getProperty(SystemProperties.CLASS_CACHE) != null;
+	private static final boolean PREWARM = System.getProperty(SystemProperties.PREWARM_CLASSES) != null;
+	private static final String PREWARM_LIST_FILE_NAME = "prewarmClasses.txt"; // relative to cache dir
 
 	static final class Metadata {
 		static final Metadata EMPTY = new Metadata(null, null);
@@ -74,6 +92,57 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 		}
 	}
 
+	/**
+	 * State of a defined class as needed to detect whether it has to be redefined after a reload.
+	 */
+	private static final class ClassState {
+		final Path codeSource;
+		final long inputHash; // hash of the class bytes before any transformation
+		final long outputHash; // hash of the defined class bytes
+
+		ClassState(Path codeSource, long inputHash, long outputHash) {
+			this.codeSource = codeSource;
+			this.inputHash = inputHash;
+			this.outputHash = outputHash;
+		}
+	}
+
+	private static final class CodeSourceStamp {
+		final long size;
+		final long lastModified;
+
+		CodeSourceStamp(long size, long lastModified) {
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CodeSourceStamp)) return false;
+
+			CodeSourceStamp o = (CodeSourceStamp) obj;
+
+			return size == o.size && lastModified == o.lastModified;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(size) * 31 + Long.hashCode(lastModified);
+		}
+	}
+
+	private static final class PrewarmedClass {
+		final byte[] input;
+		final byte[] output;
+		final ClassLoadMetricsImpl.Sample sample;
+
+		PrewarmedClass(byte[] input, byte[] output, ClassLoadMetricsImpl.Sample sample) {
+			this.input = input;
+			this.output = output;
+			this.sample = sample;
+		}
+	}
+
 	private static final ClassLoader PLATFORM_CLASS_LOADER = getPlatformClassLoader();
 
 	private final Map<Path, Metadata> metadataCache = new ConcurrentHashMap<>();
@@ -83,13 +152,25 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 	private final boolean isDevelopment;
 	private final EnvType envType;
 	private IMixinTransformer mixinTransformer;
+	private KnotClassCache classCache;
 	private boolean transformInitialized = false;
 	private volatile Set<Path> codeSources = Collections.emptySet();
+	private final CodeSourceIndex codeSourceIndex = new CodeSourceIndex();
+	// whether getResource consults the code sources before the parent, so index hits are valid for it
+	private final boolean ownResourcesFirst;
 	private volatile Set<Path> validParentCodeSources = Collections.emptySet();
 	private final Map<Path, String[]> allowedPrefixes = new ConcurrentHashMap<>();
 	private final Set<String> parentSourcedClasses = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
 	private final Set<String> delegatedClass = Collections.newSetFromMap(new ConcurrentHashMap<>());
+	// serializes reloads only, class loading proceeds concurrently
+	private final Object reloadLock = new Object();
+	private final Map<String, ClassState> classStates = new ConcurrentHashMap<>();
+	private final Map<Path, CodeSourceStamp> codeSourceStamps = new ConcurrentHashMap<>();
+	private final Map<String, PrewarmedClass> prewarmedClasses = new ConcurrentHashMap<>();
+	private final Queue<String> loadOrder = new ConcurrentLinkedQueue<>();
+	private volatile boolean trackClassStates;
+	private String transformFingerprint;
 
 	KnotClassDelegate(boolean isDevelopment, EnvType envType, T classLoader, ClassLoader parentClassLoader, GameProvider provider) {
 		this.isDevelopment = isDevelopment;
@@ -97,6 +178,7 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 		this.classLoader = classLoader;
 		this.parentClassLoader = parentClassLoader;
 		this.provider = provider;
+		this.ownResourcesFirst = classLoader instanceof KnotClassLoader;
 	}
 
 	@Override
@@ -124,9 +206,90 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 			}
 		}
 
+		if (USE_CLASS_CACHE) {
+			classCache = KnotClassCache.create(FabricLoaderImpl.INSTANCE, provider, isDevelopment, envType);
+		}
+
+		if (trackClassStates) {
+			transformFingerprint = KnotClassCache.computeFingerprint(FabricLoaderImpl.INSTANCE, provider, isDevelopment, envType, true);
+		}
+
 		transformInitialized = true;
 	}
 
+	@Override
+	public void startPrewarm() {
+		if (!PREWARM) return;
+		if (!transformInitialized) throw new IllegalStateException("transformers not initialized");
+
+		Path listFile = FabricLoaderImpl.INSTANCE.getGameDir().resolve(FabricLoaderImpl.CACHE_DIR_NAME).resolve(PREWARM_LIST_FILE_NAME);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> writePrewarmList(listFile), "Fabric prewarm list writer"));
+
+		List<String> names;
+
+		try {
+			names = Files.readAllLines(listFile, StandardCharsets.UTF_8);
+		} catch (NoSuchFileException e) {
+			Log.debug(LogCategory.KNOT, "No class prewarm list at %s, it'll be written on exit", listFile);
+			return;
+		} catch (IOException e) {
+			Log.warn(LogCategory.KNOT, "Can't read class prewarm list %s", listFile, e);
+			return;
+		}
+
+		Log.debug(LogCategory.KNOT, "Prewarming %d classes", names.size());
+
+		WorkerPool.get().execute(() -> {
+			long startTime = System.nanoTime();
+
+			WorkerPool.forEachIndex(names.size(), i -> prewarmClass(names.get(i)));
+
+			Log.debug(LogCategory.KNOT, "Prewarmed %d classes in %.1f ms", prewarmedClasses.size(), (System.nanoTime() - startTime) * 1e-6);
+		});
+	}
+
+	private void prewarmClass(String name) {
+		if (name.isEmpty() || !canTransformClass(name) || classLoader.findLoadedClassFwd(name) != null) return;
+
+		try {
+			ClassLoadMetricsImpl.Sample sample = ClassLoadMetricsImpl.newSample();
+			long startTime = sample != null ? System.nanoTime() : 0;
+			byte[] input = getClassInput(name, false, true);
+			if (input == null) return;
+
+			if (sample != null) sample.addNanos(Phase.READ, System.nanoTime() - startTime);
+
+			byte[] output = transformClassBytes(name, input, true, sample);
+			if (output == null) return;
+
+			prewarmedClasses.put(name, new PrewarmedClass(input, output, sample));
+
+			// the class may have been loaded concurrently without using the prewarmed result
+			if (classLoader.findLoadedClassFwd(name) != null) prewarmedClasses.remove(name);
+		} catch (Throwable t) {
+			Log.debug(LogCategory.KNOT, "Can't prewarm class %s: %s", name, t);
+		}
+	}
+
+	private void writePrewarmList(Path listFile) {
+		Path tmpFile = listFile.resolveSibling(PREWARM_LIST_FILE_NAME + ".tmp");
+
+		try {
+			Files.createDirectories(listFile.getParent());
+			Files.write(tmpFile, loadOrder, StandardCharsets.UTF_8);
+			Files.move(tmpFile, listFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Log.warn(LogCategory.KNOT, "Can't write class prewarm list %s", listFile, e);
+		}
+	}
+
+	/**
+	 * Enable recording the state of defined classes to allow reloads to skip unchanged classes.
+	 */
+	void setTrackClassStates(boolean trackClassStates) {
+		this.trackClassStates = trackClassStates;
+	}
+
 	private IMixinTransformer getMixinTransformer() {
 		assert mixinTransformer != null;
 		return mixinTransformer;
@@ -145,6 +308,7 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 			newCodeSources.add(path);
 
 			this.codeSources = newCodeSources;
+			codeSourceIndex.add(path);
 		}
 
 		try {
@@ -185,6 +349,10 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 
 	@Override
 	public boolean isClassLoaded(String name) {
+		// lock-free fast path, a loaded class stays loaded
+		if (classLoader.findLoadedClassFwd(name) != null) return true;
+
+		// wait for a concurrent definition to finish
 		synchronized (classLoader.getClassLoadingLockFwd(name)) {
 			return classLoader.findLoadedClassFwd(name) != null;
 		}
@@ -192,6 +360,13 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 
 	@Override
 	public Class<?> loadIntoTarget(String name) throws ClassNotFoundException {
+		Class<?> loaded = classLoader.findLoadedClassFwd(name);
+
+		if (loaded != null) { // lock-free fast path
+			classLoader.resolveClassFwd(loaded);
+			return loaded;
+		}
+
 		synchronized (classLoader.getClassLoadingLockFwd(name)) {
 			Class<?> c = classLoader.findLoadedClassFwd(name);
 
@@ -213,11 +388,9 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 
 	void checkPrefixRestrictions(String name) throws ClassNotFoundException {
 		if (!allowedPrefixes.isEmpty() && !DISABLE_ISOLATION) { // check prefix restrictions (allows exposing libraries partially during startup)
-			String fileName = LoaderUtil.getClassFileName(name);
-			URL url = classLoader.getResource(fileName);
+			Path codeSource = getCodeSourcePath(name);
 
-			if (url != null && hasRegularCodeSource(url)) {
-				Path codeSource = getCodeSource(url, fileName);
+			if (codeSource != null) {
 				String[] prefixes = allowedPrefixes.get(codeSource);
 
 				if (prefixes != null) {
@@ -242,75 +415,253 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 	}
 
 	public boolean reloadClass(String name, boolean allowFromParent) throws ClassNotFoundException {
-		if (!delegatedClass.contains(name)) throw new ClassNotFoundException("Class " + name + "is not delegated from this KnotClassDelegate");
-		synchronized (classLoader.getClassLoadingLockFwd(name)) {
+		if (!delegatedClass.contains(name)) throw new ClassNotFoundException("Class " + name + " is not delegated from this KnotClassDelegate");
+
+		// the class is already defined, so only concurrent reloads have to be excluded, not class loading
+		synchronized (reloadLock) {
 			if (name.startsWith("java.")) {
 				return false;
 			}
+
 			checkPrefixRestrictions(name);
 			allowFromParent = propagateLoadIntoTarget(name, allowFromParent);
 
-			byte[] input = getPostMixinClassByteArray(name, allowFromParent);
-			if (input == null)
-				return false;
-			Metadata metadata = getMetadata(name);
-			classLoader.redefineClassFwd(name, input, 0, input.length, metadata.codeSource);
+			Path codeSource = getCodeSourcePath(name);
+			boolean transform = shouldTransform(name);
+			byte[] input = getClassInput(name, allowFromParent, transform);
+			if (input == null) return false;
+
+			byte[] output = transformClassBytes(name, input, transform, null);
+			if (output == null) return false;
+
+			classLoader.redefineClassFwd(name, output, 0, output.length, getMetadata(codeSource).codeSource);
+			recordClassState(name, codeSource, input, output);
 		}
+
 		return true;
 	}
 
+	/**
+	 * Redefine all classes defined by this class loader whose bytes changed since they were last defined.
+	 *
+	 * <p>If the transformation environment (mods with mixins or access wideners) is unchanged, classes from code
+	 * sources with unchanged size and modification time are skipped without reading them. Otherwise the class is
+	 * transformed again, but only redefined if the resulting bytes differ from the currently defined ones.
+	 */
 	public void reloadAllDelegatedClass(boolean allowFromParent) throws ClassNotFoundException {
-		synchronized (delegatedClass) {
+		synchronized (reloadLock) {
+			prewarmedClasses.clear();
+			// pick up replaced jars before reading from them, their old mappings are stale
+			codeSourceIndex.refresh();
+
+			if (USE_CLASS_CACHE) {
+				classCache = KnotClassCache.create(FabricLoaderImpl.INSTANCE, provider, isDevelopment, envType);
+			}
+
+			String fingerprint = KnotClassCache.computeFingerprint(FabricLoaderImpl.INSTANCE, provider, isDevelopment, envType, true);
+			boolean transformChanged = fingerprint == null || !fingerprint.equals(transformFingerprint);
+			Map<Path, Boolean> changedCodeSources = new ConcurrentHashMap<>();
+			Set<Path> examinedCodeSources = Collections.newSetFromMap(new ConcurrentHashMap<>());
+			// classes defined after taking the snapshot already use the new transformation environment
+			String[] names = delegatedClass.toArray(new String[0]);
+			ReloadResult[] results = new ReloadResult[names.length];
+
+			// compute the new class bytes concurrently, only the mixin application itself is serialized by mixin
+			try {
+				WorkerPool.forEachIndex(names.length, i -> {
+					try {
+						results[i] = computeReload(names[i], allowFromParent, transformChanged, changedCodeSources, examinedCodeSources);
+					} catch (ClassNotFoundException e) {
+						throw ExceptionUtil.wrap(e);
+					}
+				});
+			} catch (RuntimeException e) {
+				for (Throwable t = e; t != null; t = t.getCause()) {
+					if (t instanceof ClassNotFoundException) throw (ClassNotFoundException) t;
+				}
+
+				throw e;
+			}
+
 			List<String> removedClass = new ArrayList<>();
-			for (String s : delegatedClass) {
-				if (!reloadClass(s, allowFromParent)) {
-					removedClass.add(s);
+			List<ClassRedefineDelegate.Definition> definitions = new ArrayList<>();
+
+			for (int i = 0; i < names.length; i++) {
+				ReloadResult result = results[i];
+
+				if (result == null) continue;
+
+				if (result.state == null) {
+					removedClass.add(names[i]);
+				} else if (result.definition != null) {
+					definitions.add(result.definition);
+				}
+			}
+
+			Log.debug(LogCategory.KNOT, "Reloading %d classes, %d unchanged, %d removed", definitions.size(), names.length - definitions.size() - removedClass.size(), removedClass.size());
+
+			// redefine everything at once to pause the VM only a single time
+			if (!definitions.isEmpty()) classLoader.redefineClassesFwd(definitions);
+
+			// the examined code sources have been fully read again, refresh their stamps
+			for (Path codeSource : examinedCodeSources) {
+				CodeSourceStamp stamp = getCodeSourceStamp(codeSource);
+
+				if (stamp != null) {
+					codeSourceStamps.put(codeSource, stamp);
+				} else {
+					codeSourceStamps.remove(codeSource);
+				}
+			}
+
+			for (int i = 0; i < names.length; i++) {
+				ReloadResult result = results[i];
+
+				if (result != null && result.state != null && trackClassStates) {
+					classStates.put(names[i], result.state);
 				}
 			}
+
 			removedClass.forEach(delegatedClass::remove);
+			removedClass.forEach(classStates::remove);
+			transformFingerprint = fingerprint;
 		}
 	}
 
+	private static final class ReloadResult {
+		static final ReloadResult REMOVED = new ReloadResult(null, null);
+
+		final ClassState state; // null if the class is no longer available
+		final ClassRedefineDelegate.Definition definition; // null if the class is unchanged
+
+		ReloadResult(ClassState state, ClassRedefineDelegate.Definition definition) {
+			this.state = state;
+			this.definition = definition;
+		}
+	}
+
+	/**
+	 * Compute the new state of an already defined class for a reload.
+	 *
+	 * <p>This doesn't take the class loading lock as the class is already defined, allowing concurrent invocation
+	 * without blocking regular class loading.
+	 *
+	 * @return null if the class is unchanged
+	 */
+	private ReloadResult computeReload(String name, boolean allowFromParent, boolean transformChanged,
+			Map<Path, Boolean> changedCodeSources, Set<Path> examinedCodeSources) throws ClassNotFoundException {
+		if (name.startsWith("java.")) return ReloadResult.REMOVED;
+
+		ClassState state = classStates.get(name);
+		Path codeSource = getCodeSourcePath(name);
+
+		if (state != null && !transformChanged
+				&& codeSource != null && codeSource.equals(state.codeSource)
+				&& !changedCodeSources.computeIfAbsent(codeSource, this::hasCodeSourceChanged)) {
+			return null;
+		}
+
+		if (codeSource != null) examinedCodeSources.add(codeSource);
+
+		checkPrefixRestrictions(name);
+		allowFromParent = propagateLoadIntoTarget(name, allowFromParent);
+		boolean transform = shouldTransform(name);
+		byte[] input = getClassInput(name, allowFromParent, transform);
+		if (input == null) return ReloadResult.REMOVED;
+
+		long inputHash = hash(input);
+		if (state != null && !transformChanged && inputHash == state.inputHash) return null;
+
+		byte[] output = transformClassBytes(name, input, transform, null);
+		if (output == null) return ReloadResult.REMOVED;
+
+		ClassState newState = new ClassState(codeSource, inputHash, hash(output));
+
+		if (state != null && newState.outputHash == state.outputHash) {
+			return new ReloadResult(newState, null);
+		}
+
+		return new ReloadResult(newState, new ClassRedefineDelegate.Definition(name, output, getMetadata(codeSource).codeSource));
+	}
+
+	private void recordClassState(String name, Path codeSource, byte[] input, byte[] output) {
+		if (!trackClassStates) return;
+
+		if (codeSource != null) codeSourceStamps.computeIfAbsent(codeSource, KnotClassDelegate::getCodeSourceStamp);
+		classStates.put(name, new ClassState(codeSource, hash(input), hash(output)));
+	}
+
+	private boolean hasCodeSourceChanged(Path codeSource) {
+		CodeSourceStamp stamp = codeSourceStamps.get(codeSource);
+
+		return stamp == null || !stamp.equals(getCodeSourceStamp(codeSource));
+	}
+
+	private static CodeSourceStamp getCodeSourceStamp(Path codeSource) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(codeSource, BasicFileAttributes.class);
+			// directory attributes don't reflect changes to the contained files
+			if (!attrs.isRegularFile()) return null;
+
+			return new CodeSourceStamp(attrs.size(), attrs.lastModifiedTime().toMillis());
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static long hash(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+
+		return crc.getValue() << 32 | data.length;
+	}
 
 	Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+		// lock-free fast paths for already defined classes and java.** (can only be loaded by the platform CL anyway),
+		// this also avoids creating the per-class lock object for them
+		Class<?> loaded = classLoader.findLoadedClassFwd(name);
+		if (loaded == null && name.startsWith("java.")) loaded = PLATFORM_CLASS_LOADER.loadClass(name);
+
+		if (loaded != null) {
+			if (resolve) classLoader.resolveClassFwd(loaded);
+
+			return loaded;
+		}
+
 		synchronized (classLoader.getClassLoadingLockFwd(name)) {
 			Class<?> c = classLoader.findLoadedClassFwd(name);
 
 			if (c == null) {
-				if (name.startsWith("java.")) { // fast path for java.** (can only be loaded by the platform CL anyway)
-					c = PLATFORM_CLASS_LOADER.loadClass(name);
-				} else {
-					c = tryLoadClass(name, false); // try local load
-
-					if (c == null) { // not available locally, try system class loader
-						String fileName = LoaderUtil.getClassFileName(name);
-						URL url = parentClassLoader.getResource(fileName);
-
-						if (url == null) { // no .class file
-							try {
-								c = PLATFORM_CLASS_LOADER.loadClass(name);
-								if (LOG_CLASS_LOAD) Log.info(LogCategory.KNOT, "loaded resources-less class %s from platform class loader");
-							} catch (ClassNotFoundException e) {
-								if (LOG_CLASS_LOAD_ERRORS) Log.warn(LogCategory.KNOT, "can't find class %s", name);
-								throw e;
-							}
-						} else if (!isValidParentUrl(url, fileName)) { // available, but restricted
-							// The class would technically be available, but the game provider restricted it from being
-							// loaded by setting validParentUrls and not including "url". Typical causes are:
-							// - accessing classes too early (game libs shouldn't be used until Loader is ready)
-							// - using jars that are only transient (deobfuscation input or pass-through installers)
-							String msg = String.format("can't load class %s at %s as it hasn't been exposed to the game (yet? The system property " + SystemProperties.PATH_GROUPS + " may not be set correctly in-dev)",
-									name, getCodeSource(url, fileName));
-							if (LOG_CLASS_LOAD_ERRORS) Log.warn(LogCategory.KNOT, msg);
-							throw new ClassNotFoundException(msg);
-						} else { // load from system cl
-							if (LOG_CLASS_LOAD)
-								Log.info(LogCategory.KNOT, "loading class %s using the parent class loader", name);
-							c = parentClassLoader.loadClass(name);
+				c = tryLoadClass(name, false); // try local load
+
+				if (c == null) { // not available locally, try system class loader
+					String fileName = LoaderUtil.getClassFileName(name);
+					URL url = parentClassLoader.getResource(fileName);
+
+					if (url == null) { // no .class file
+						try {
+							c = PLATFORM_CLASS_LOADER.loadClass(name);
+							if (LOG_CLASS_LOAD) Log.info(LogCategory.KNOT, "loaded resources-less class %s from platform class loader");
+						} catch (ClassNotFoundException e) {
+							if (LOG_CLASS_LOAD_ERRORS) Log.warn(LogCategory.KNOT, "can't find class %s", name);
+							throw e;
 						}
-					} else if (LOG_CLASS_LOAD) {
-						Log.info(LogCategory.KNOT, "loaded class %s", name);
+					} else if (!isValidParentUrl(url, fileName)) { // available, but restricted
+						// The class would technically be available, but the game provider restricted it from being
+						// loaded by setting validParentUrls and not including "url". Typical causes are:
+						// - accessing classes too early (game libs shouldn't be used until Loader is ready)
+						// - using jars that are only transient (deobfuscation input or pass-through installers)
+						String msg = String.format("can't load class %s at %s as it hasn't been exposed to the game (yet? The system property " + SystemProperties.PATH_GROUPS + " may not be set correctly in-dev)",
+								name, getCodeSource(url, fileName));
+						if (LOG_CLASS_LOAD_ERRORS) Log.warn(LogCategory.KNOT, msg);
+						throw new ClassNotFoundException(msg);
+					} else { // load from system cl
+						if (LOG_CLASS_LOAD)
+							Log.info(LogCategory.KNOT, "loading class %s using the parent class loader", name);
+						c = parentClassLoader.loadClass(name);
 					}
+				} else if (LOG_CLASS_LOAD) {
+					Log.info(LogCategory.KNOT, "loaded class %s", name);
 				}
 			}
 
@@ -363,11 +714,27 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 		checkPrefixRestrictions(name);
 		allowFromParent = propagateLoadIntoTarget(name, allowFromParent);
 
+		boolean transform = shouldTransform(name);
+		PrewarmedClass prewarmed = !allowFromParent && transform && !prewarmedClasses.isEmpty() ? prewarmedClasses.remove(name) : null;
+		ClassLoadMetricsImpl.Sample sample;
+		byte[] input;
+		byte[] output;
 
-		byte[] input = getPostMixinClassByteArray(name, allowFromParent);
-		if (input == null) return null;
+		if (prewarmed != null) {
+			input = prewarmed.input;
+			output = prewarmed.output;
+			sample = prewarmed.sample;
+		} else {
+			sample = ClassLoadMetricsImpl.newSample();
+			long startTime = sample != null ? System.nanoTime() : 0;
+			input = getClassInput(name, allowFromParent, transform);
+			if (sample != null) sample.addNanos(Phase.READ, System.nanoTime() - startTime);
+			output = transformClassBytes(name, input, transform, sample);
+		}
 
-		// The class we're currently loading could have been loaded already during Mixin initialization triggered by `getPostMixinClassByteArray`.
+		if (output == null) return null;
+
+		// The class we're currently loading could have been loaded already during Mixin initialization triggered by `transformClassBytes`.
 		// If this is the case, we want to return the instance that was already defined to avoid attempting a duplicate definition.
 		Class<?> existingClass = classLoader.findLoadedClassFwd(name);
 
@@ -379,7 +746,8 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 			parentSourcedClasses.add(name);
 		}
 
-		KnotClassDelegate.Metadata metadata = getMetadata(name);
+		Path codeSource = getCodeSourcePath(name);
+		KnotClassDelegate.Metadata metadata = getMetadata(codeSource);
 
 		int pkgDelimiterPos = name.lastIndexOf('.');
 
@@ -396,18 +764,44 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 			}
 		}
 		delegatedClass.add(name);
-		return classLoader.defineClassFwd(name, input, 0, input.length, metadata.codeSource);
+		if (PREWARM) loadOrder.add(name);
+		long defineStartTime = sample != null ? System.nanoTime() : 0;
+		Class<?> ret = classLoader.defineClassFwd(name, output, 0, output.length, metadata.codeSource);
+
+		if (sample != null) {
+			sample.addNanos(Phase.DEFINE, System.nanoTime() - defineStartTime);
+			sample.setBytes(input != null ? input.length : 0, output.length);
+			ClassLoadMetricsImpl.INSTANCE.record(name, codeSource, sample);
+		}
+
+		// classes defined before the transformers were ready would have to be transformed when reloading
+		if (input != null && (transform || !canTransformClass(name))) recordClassState(name, codeSource, input, output);
+
+		return ret;
 	}
 
-	private Metadata getMetadata(String name) {
+	private Path getCodeSourcePath(String name) {
 		String fileName = LoaderUtil.getClassFileName(name);
-		URL url = classLoader.getResource(fileName);
-		if (url == null || !hasRegularCodeSource(url)) return Metadata.EMPTY;
 
-		return getMetadata(getCodeSource(url, fileName));
+		URL url;
+
+		if (ownResourcesFirst) {
+			Path ret = codeSourceIndex.getCodeSource(fileName);
+			if (ret != null) return ret;
+
+			// skip scanning the code sources if the index knows they don't contain the class
+			url = codeSourceIndex.isMissAuthoritative(fileName) ? parentClassLoader.getResource(fileName) : classLoader.getResource(fileName);
+		} else {
+			url = classLoader.getResource(fileName);
+		}
+		if (url == null || !hasRegularCodeSource(url)) return null;
+
+		return getCodeSource(url, fileName);
 	}
 
 	private Metadata getMetadata(Path codeSource) {
+		if (codeSource == null) return Metadata.EMPTY;
+
 		return metadataCache.computeIfAbsent(codeSource, (Path path) -> {
 			Manifest manifest = null;
 			CodeSource cs = null;
@@ -455,15 +849,63 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 		});
 	}
 
-	private byte[] getPostMixinClassByteArray(String name, boolean allowFromParent) {
-		byte[] transformedClassArray = getPreMixinClassByteArray(name, allowFromParent);
+	private boolean shouldTransform(String name) {
+		return transformInitialized && canTransformClass(name);
+	}
 
-		if (!transformInitialized || !canTransformClass(name)) {
-			return transformedClassArray;
+	/**
+	 * Obtains the class bytes to be transformed, these are the raw bytes for classes exempt from transformation.
+	 */
+	private byte[] getClassInput(String name, boolean allowFromParent, boolean transform) {
+		if (!transform) {
+			try {
+				return getRawClassByteArray(name, allowFromParent);
+			} catch (IOException e) {
+				throw new RuntimeException("Failed to load class file for '" + name.replace('/', '.') + "'!", e);
+			}
+		}
+
+		return getTransformerInput(name.replace('/', '.'), allowFromParent);
+	}
+
+	/**
+	 * Runs the Fabric and Mixin transformers on the class input obtained from {@link #getClassInput}.
+	 *
+	 * @param sample metrics sample to record the transformation times in, or null
+	 */
+	private byte[] transformClassBytes(String name, byte[] input, boolean transform, ClassLoadMetricsImpl.Sample sample) {
+		if (!transform) return input;
+
+		KnotClassCache classCache = this.classCache;
+
+		if (classCache != null && input != null) {
+			return classCache.transform(name, input,
+					in -> applyFabricTransformer(name, in, sample),
+					in -> applyMixinTransformer(name, in, sample),
+					KnotClassDelegate::isMixinTarget);
 		}
 
+		return applyMixinTransformer(name, applyFabricTransformer(name, input, sample), sample);
+	}
+
+	private byte[] applyFabricTransformer(String name, byte[] input, ClassLoadMetricsImpl.Sample sample) {
+		if (input == null) return null;
+
+		long startTime = sample != null ? System.nanoTime() : 0;
+		byte[] ret = FabricTransformer.transform(isDevelopment, envType, name.replace('/', '.'), input);
+		if (sample != null) sample.addNanos(Phase.FABRIC_TRANSFORM, System.nanoTime() - startTime);
+
+		return ret;
+	}
+
+	private byte[] applyMixinTransformer(String name, byte[] input, ClassLoadMetricsImpl.Sample sample) {
+		long startTime = sample != null ? System.nanoTime() : 0;
+
 		try {
-			return getMixinTransformer().transformClassBytes(name, name, transformedClassArray);
+			byte[] ret = getMixinTransformer().transformClassBytes(name, name, input);
+			if (sample != null) sample.addNanos(Phase.MIXIN_TRANSFORM, System.nanoTime() - startTime);
+
+			return ret;
 		} catch (Throwable t) {
 			String msg = String.format("Mixin transformation of %s failed", name);
 			if (LOG_TRANSFORM_ERRORS) Log.warn(LogCategory.KNOT, msg, t);
@@ -472,6 +914,30 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 		}
 	}
 
+	/**
+	 * Determine whether any active mixin config may transform a class, conservatively.
+	 *
+	 * <p>Mixin prepares newly registered configs, consulting their plugins, on the next class it transforms. Until then
+	 * their targets are unknown, so every class counts as a potential target.
+	 */
+	private static boolean isMixinTarget(String name) {
+		if (Mixins.getUnvisitedCount() > 0) return true;
+
+		String className = name.replace('/', '.');
+
+		for (Config rawConfig : Mixins.getConfigs()) {
+			IMixinConfig config = rawConfig.getConfig();
+			String mixinPackage = config.getMixinPackage();
+
+			if (config.getTargets().contains(className)
+					|| mixinPackage != null && !mixinPackage.isEmpty() && className.startsWith(mixinPackage)) { // mixins and their synthetic inner classes
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 	@Override
 	public byte[] getPreMixinClassBytes(String name) {
 		return getPreMixinClassByteArray(name, true);
@@ -492,6 +958,19 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 			}
 		}
 
+		byte[] input = getTransformerInput(name, allowFromParent);
+
+		if (input != null) {
+			return FabricTransformer.transform(isDevelopment, envType, name, input);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Obtains the class bytes as passed to the Fabric transformer, with only the game provider's entrypoint patches applied.
+	 */
+	private byte[] getTransformerInput(String name, boolean allowFromParent) {
 		byte[] input = provider.getEntrypointTransformer().transform(name);
 
 		if (input == null) {
@@ -502,11 +981,7 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 			}
 		}
 
-		if (input != null) {
-			return FabricTransformer.transform(isDevelopment, envType, name, input);
-		}
-
-		return null;
+		return input;
 	}
 
 	private static boolean canTransformClass(String name) {
@@ -522,7 +997,11 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 
 	private byte[] getRawClassByteArray(String name, boolean allowFromParent) throws IOException {
 		name = LoaderUtil.getClassFileName(name);
-		URL url = classLoader.findResourceFwd(name);
+
+		byte[] ret = codeSourceIndex.readClass(name);
+		if (ret != null) return ret;
+
+		URL url = codeSourceIndex.isMissAuthoritative(name) ? null : classLoader.findResourceFwd(name);
 
 		if (url == null) {
 			if (!allowFromParent) return null;
@@ -538,17 +1017,21 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 		}
 
 		try (InputStream inputStream = url.openStream()) {
-			int a = inputStream.available();
-			ByteArrayOutputStream outputStream = new ByteArrayOutputStream(a < 32 ? 32768 : a);
-			byte[] buffer = new byte[8192];
-			int len;
+			return readFully(inputStream);
+		}
+	}
 
-			while ((len = inputStream.read(buffer)) > 0) {
-				outputStream.write(buffer, 0, len);
-			}
+	private static byte[] readFully(InputStream inputStream) throws IOException {
+		int a = inputStream.available();
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(a < 32 ? 32768 : a);
+		byte[] buffer = new byte[8192];
+		int len;
 
-			return outputStream.toByteArray();
+		while ((len = inputStream.read(buffer)) > 0) {
+			outputStream.write(buffer, 0, len);
 		}
+
+		return outputStream.toByteArray();
 	}
 
 	private static boolean hasRegularCodeSource(URL url) {
@@ -595,6 +1078,8 @@ public final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess>
 
 		void redefineClassFwd(String name, byte[] b, int off, int len, CodeSource cs);
 
+		void redefineClassesFwd(Collection<ClassRedefineDelegate.Definition> definitions);
+
 		void resolveClassFwd(Class<?> cls);
 	}
 }
@@ -22,6 +22,7 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.CodeSource;
 import java.security.SecureClassLoader;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.Objects;
 
@@ -170,6 +171,14 @@ public final class KnotClassLoader extends SecureClassLoader implements ClassLoa
 		classRedefineDelegate.redefineClass(name, b, off, len, cs);
 	}
 
+	@Override
+	public void redefineClassesFwd(Collection<ClassRedefineDelegate.Definition> definitions) {
+		if (classRedefineDelegate == null) {
+			throw new RuntimeException("Require ClassRedefineDelegate to redefine class!");
+		}
+		classRedefineDelegate.redefineClasses(definitions);
+	}
+
 	@Override
 	public void resolveClassFwd(Class<?> cls) {
 		super.resolveClass(cls);
@@ -181,6 +190,7 @@ public final class KnotClassLoader extends SecureClassLoader implements ClassLoa
 
 	public void setClassRedefineDelegate(ClassRedefineDelegate<KnotClassLoader> classRedefineDelegate) {
 		this.classRedefineDelegate = classRedefineDelegate;
+		delegate.setTrackClassStates(classRedefineDelegate != null);
 	}
 
 }
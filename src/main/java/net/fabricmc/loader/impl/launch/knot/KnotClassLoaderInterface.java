@@ -36,6 +36,13 @@ public interface KnotClassLoaderInterface {
 
 	void initializeTransformers();
 
+	/**
+	 * Start transforming the classes loaded by the previous launch in the background, if enabled.
+	 *
+	 * <p>Must only be invoked once the transformation environment is final, i.e. after the preLaunch entrypoints.
+	 */
+	void startPrewarm();
+
 	ClassLoader getClassLoader();
 
 	void addCodeSource(Path path);
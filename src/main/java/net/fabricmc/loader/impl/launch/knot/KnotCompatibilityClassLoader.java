@@ -19,6 +19,7 @@ package net.fabricmc.loader.impl.launch.knot;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.CodeSource;
+import java.util.Collection;
 
 import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.api.instrument.ClassRedefineDelegate;
@@ -95,6 +96,14 @@ class KnotCompatibilityClassLoader extends URLClassLoader implements ClassLoader
 	}
 
 
+	@Override
+	public void redefineClassesFwd(Collection<ClassRedefineDelegate.Definition> definitions) {
+		if (classRedefineDelegate == null) {
+			throw new RuntimeException("Require ClassRedefineDelegate to redefine class!");
+		}
+		classRedefineDelegate.redefineClasses(definitions);
+	}
+
 	@Override
 	public void resolveClassFwd(Class<?> cls) {
 		super.resolveClass(cls);
@@ -103,6 +112,7 @@ class KnotCompatibilityClassLoader extends URLClassLoader implements ClassLoader
 
 	public void setClassRedefineDelegate(ClassRedefineDelegate<KnotCompatibilityClassLoader> classRedefineDelegate) {
 		this.classRedefineDelegate = classRedefineDelegate;
+		delegate.setTrackClassStates(classRedefineDelegate != null);
 	}
 
 	static {
@@ -25,18 +25,30 @@ import net.fabricmc.loader.api.VersionParsingException;
 import net.fabricmc.loader.api.metadata.ModDependency;
 import net.fabricmc.loader.api.metadata.version.VersionInterval;
 import net.fabricmc.loader.api.metadata.version.VersionPredicate;
+import net.fabricmc.loader.impl.util.version.VersionPredicateParser;
 
 public final class ModDependencyImpl implements ModDependency {
 	private Kind kind;
 	private final String modId;
 	private final List<String> matcherStringList;
 	private final Collection<VersionPredicate> ranges;
+	private final VersionPredicate[] rangeArray; // null if any version matches
+	private volatile List<VersionInterval> intervals;
 
 	public ModDependencyImpl(Kind kind, String modId, List<String> matcherStringList) throws VersionParsingException {
 		this.kind = kind;
 		this.modId = modId;
 		this.matcherStringList = matcherStringList;
-		this.ranges = VersionPredicate.parse(this.matcherStringList);
+		this.ranges = VersionPredicateParser.parseCached(this.matcherStringList);
+		this.rangeArray = matchesAny(ranges) ? null : ranges.toArray(new VersionPredicate[0]);
+	}
+
+	private static boolean matchesAny(Collection<VersionPredicate> ranges) {
+		for (VersionPredicate predicate : ranges) {
+			if (predicate.getTerms().isEmpty()) return true;
+		}
+
+		return false;
 	}
 
 	@Override
@@ -55,7 +67,9 @@ public final class ModDependencyImpl implements ModDependency {
 
 	@Override
 	public boolean matches(Version version) {
-		for (VersionPredicate predicate : ranges) {
+		if (rangeArray == null) return true;
+
+		for (VersionPredicate predicate : rangeArray) {
 			if (predicate.test(version)) return true;
 		}
 
@@ -105,10 +119,17 @@ public final class ModDependencyImpl implements ModDependency {
 
 	@Override
 	public List<VersionInterval> getVersionIntervals() {
-		List<VersionInterval> ret = Collections.emptyList();
+		List<VersionInterval> ret = intervals;
 
-		for (VersionPredicate predicate : ranges) {
-			ret = VersionInterval.or(ret, predicate.getInterval());
+		if (ret == null) {
+			ret = Collections.emptyList();
+
+			for (VersionPredicate predicate : ranges) {
+				ret = VersionInterval.or(ret, predicate.getInterval());
+			}
+
+			ret = Collections.unmodifiableList(ret);
+			intervals = ret;
 		}
 
 		return ret;
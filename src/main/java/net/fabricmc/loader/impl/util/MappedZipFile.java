@@ -0,0 +1,521 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Minimal read-only zip reader operating on a memory mapped file or an arbitrary byte buffer.
+ *
+ * <p>The central directory is parsed once into an index, deflated entries are inflated with pooled {@link Inflater}
+ * instances directly into a buffer of the exact size.
+ *
+ * <p>Zip64, encrypted entries and compression methods other than stored and deflated are not supported, opening such
+ * a file throws a {@link ZipException} so the caller can fall back to {@link java.util.zip.ZipFile}.
+ *
+ * <p>A file opened through {@link #open(Path)} owns its mapping until {@link #close()}, which unmaps it right away
+ * instead of leaving it to the garbage collector, so the file is no longer locked on Windows and a later truncation of
+ * the file can't crash the VM. Reading through a closed instance throws {@link IllegalStateException}.
+ *
+ * <p>A file overwritten in place while mapped faults on access to the truncated or replaced region. Reads through this
+ * class report that as an {@link IOException} like {@link java.util.zip.ZipFile} would, and only hand out copies of the
+ * data. The only exception is {@link #getStoredDataView}, for callers managing the mapping's lifetime themselves.
+ */
+public final class MappedZipFile implements Closeable {
+	public static final int METHOD_STORED = 0;
+	public static final int METHOD_DEFLATED = 8;
+
+	private static final int EOCD_SIGNATURE = 0x06054b50;
+	private static final int CEN_SIGNATURE = 0x02014b50;
+	private static final int LOC_SIGNATURE = 0x04034b50;
+	private static final int EOCD_SIZE = 22;
+	private static final int CEN_SIZE = 46;
+	private static final int LOC_SIZE = 30;
+	private static final int MAX_COMMENT_SIZE = 0xffff;
+	private static final int MAX_POOLED_INFLATERS = 16;
+	private static final int INFLATE_CHUNK_SIZE = 64 * 1024;
+
+	private static final Deque<Inflater> inflaterPool = new ArrayDeque<>();
+
+	private final ByteBuffer buffer;
+	private final boolean ownsMapping;
+	private final Map<String, Entry> entries;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private boolean closed;
+
+	public static final class Entry {
+		private final String name;
+		private final int method;
+		private final int crc;
+		private final long compressedSize;
+		private final long size;
+		private final long localHeaderOffset;
+
+		Entry(String name, int method, int crc, long compressedSize, long size, long localHeaderOffset) {
+			this.name = name;
+			this.method = method;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.localHeaderOffset = localHeaderOffset;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getMethod() {
+			return method;
+		}
+
+		public int getCrc() {
+			return crc;
+		}
+
+		public long getCompressedSize() {
+			return compressedSize;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public boolean isDirectory() {
+			return name.endsWith("/");
+		}
+	}
+
+	/**
+	 * Open a zip file by memory mapping it.
+	 */
+	public static MappedZipFile open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) throw new ZipException("zip file too large to map: " + path);
+
+			// the mapping stays valid after closing the channel
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+			try {
+				return new MappedZipFile(buffer, true);
+			} catch (IOException | RuntimeException e) {
+				unmap(buffer);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Read a zip file from a buffer, e.g. a slice of an outer zip file's stored entry.
+	 *
+	 * <p>The buffer stays owned by the caller, closing the returned instance doesn't release it.
+	 */
+	public static MappedZipFile open(ByteBuffer buffer) throws IOException {
+		return new MappedZipFile(buffer.slice(), false);
+	}
+
+	private MappedZipFile(ByteBuffer buffer, boolean ownsMapping) throws IOException {
+		this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+		this.ownsMapping = ownsMapping;
+
+		try {
+			this.entries = readCentralDirectory(this.buffer);
+		} catch (InternalError e) {
+			throw modifiedWhileMapped(e);
+		}
+	}
+
+	private static Map<String, Entry> readCentralDirectory(ByteBuffer buffer) throws IOException {
+		int eocd = findEocd(buffer);
+		int count = buffer.getShort(eocd + 10) & 0xffff;
+		long cenSize = buffer.getInt(eocd + 12) & 0xffffffffL;
+		long cenOffset = buffer.getInt(eocd + 16) & 0xffffffffL;
+
+		if (count == 0xffff || cenSize == 0xffffffffL || cenOffset == 0xffffffffL) {
+			throw new ZipException("zip64 not supported");
+		}
+
+		// tolerate data prepended to the zip (e.g. launcher stubs) by deriving the offset from the eocd position
+		long base = eocd - cenSize - cenOffset;
+		if (base < 0) throw new ZipException("invalid central directory offset");
+
+		Map<String, Entry> ret = new LinkedHashMap<>(count * 4 / 3 + 1);
+		int pos = (int) (base + cenOffset);
+		byte[] nameBuffer = new byte[256];
+
+		for (int i = 0; i < count; i++) {
+			if (pos + CEN_SIZE > eocd || buffer.getInt(pos) != CEN_SIGNATURE) throw new ZipException("invalid central directory entry");
+
+			int flags = buffer.getShort(pos + 8) & 0xffff;
+			int method = buffer.getShort(pos + 10) & 0xffff;
+			int crc = buffer.getInt(pos + 16);
+			long compressedSize = buffer.getInt(pos + 20) & 0xffffffffL;
+			long size = buffer.getInt(pos + 24) & 0xffffffffL;
+			int nameLen = buffer.getShort(pos + 28) & 0xffff;
+			int extraLen = buffer.getShort(pos + 30) & 0xffff;
+			int commentLen = buffer.getShort(pos + 32) & 0xffff;
+			long localHeaderOffset = buffer.getInt(pos + 42) & 0xffffffffL;
+
+			if ((flags & 1) != 0) throw new ZipException("encrypted entries not supported");
+			if (method != METHOD_STORED && method != METHOD_DEFLATED) throw new ZipException("unsupported compression method " + method);
+			if (compressedSize == 0xffffffffL || size == 0xffffffffL || localHeaderOffset == 0xffffffffL) throw new ZipException("zip64 not supported");
+			if (pos + CEN_SIZE + nameLen > eocd) throw new ZipException("invalid central directory entry");
+
+			if (nameLen > nameBuffer.length) nameBuffer = new byte[nameLen];
+
+			for (int j = 0; j < nameLen; j++) {
+				nameBuffer[j] = buffer.get(pos + CEN_SIZE + j);
+			}
+
+			String name = new String(nameBuffer, 0, nameLen, StandardCharsets.UTF_8);
+			ret.putIfAbsent(name, new Entry(name, method, crc, compressedSize, size, base + localHeaderOffset));
+			pos += CEN_SIZE + nameLen + extraLen + commentLen;
+		}
+
+		return ret;
+	}
+
+	private static int findEocd(ByteBuffer buffer) throws ZipException {
+		int limit = buffer.limit();
+		int min = Math.max(0, limit - EOCD_SIZE - MAX_COMMENT_SIZE);
+
+		for (int pos = limit - EOCD_SIZE; pos >= min; pos--) {
+			if (buffer.getInt(pos) == EOCD_SIGNATURE
+					&& pos + EOCD_SIZE + (buffer.getShort(pos + 20) & 0xffff) == limit) {
+				return pos;
+			}
+		}
+
+		throw new ZipException("no end of central directory record");
+	}
+
+	public Entry getEntry(String name) {
+		return entries.get(name);
+	}
+
+	public Collection<Entry> getEntries() {
+		return Collections.unmodifiableCollection(entries.values());
+	}
+
+	/**
+	 * Get a copy of an entry's raw (possibly compressed) data.
+	 */
+	public ByteBuffer getRawData(Entry entry) throws IOException {
+		Lock readLock = lockOpen();
+
+		try {
+			ByteBuffer raw = getRawData0(entry);
+			ByteBuffer ret = ByteBuffer.allocate(raw.remaining());
+			ret.put(raw);
+			ret.flip();
+
+			return ret;
+		} catch (InternalError e) {
+			throw modifiedWhileMapped(e);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Get a stored entry's data as a slice of the underlying buffer, without copying.
+	 *
+	 * <p>The slice is only valid until this instance gets closed, and only while the file stays unchanged. Read it through
+	 * {@link #open(ByteBuffer)}, which reports faults from a file modified in place as {@link IOException}s.
+	 */
+	public ByteBuffer getStoredDataView(Entry entry) throws IOException {
+		if (entry.method != METHOD_STORED) throw new IllegalArgumentException("not a stored entry: " + entry.name);
+
+		Lock readLock = lockOpen();
+
+		try {
+			return getRawData0(entry);
+		} catch (InternalError e) {
+			throw modifiedWhileMapped(e);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	private ByteBuffer getRawData0(Entry entry) throws IOException {
+		int pos = (int) entry.localHeaderOffset;
+
+		if (pos + LOC_SIZE > buffer.limit() || buffer.getInt(pos) != LOC_SIGNATURE) {
+			throw new ZipException("invalid local header for " + entry.name);
+		}
+
+		int nameLen = buffer.getShort(pos + 26) & 0xffff;
+		int extraLen = buffer.getShort(pos + 28) & 0xffff;
+		long start = pos + LOC_SIZE + nameLen + extraLen;
+		long end = start + entry.compressedSize;
+
+		if (end > buffer.limit()) throw new ZipException("truncated entry " + entry.name);
+
+		ByteBuffer ret = buffer.duplicate();
+		ret.limit((int) end).position((int) start);
+
+		return ret.slice();
+	}
+
+	/**
+	 * Get a copy of an entry's uncompressed data.
+	 */
+	public ByteBuffer getData(Entry entry) throws IOException {
+		return ByteBuffer.wrap(getBytes(entry));
+	}
+
+	/**
+	 * Get an entry's uncompressed data as a new array of the exact size.
+	 */
+	public byte[] getBytes(Entry entry) throws IOException {
+		if (entry.size > Integer.MAX_VALUE - 8) throw new ZipException("entry too large: " + entry.name);
+
+		byte[] ret = new byte[(int) entry.size];
+		getData(entry, ByteBuffer.wrap(ret));
+
+		return ret;
+	}
+
+	/**
+	 * Copy an entry's uncompressed data into {@code target}, advancing its position by the entry size.
+	 *
+	 * <p>Direct target buffers are filled through a small intermediate array, so no heap buffer of the entry size is
+	 * needed for them.
+	 */
+	public void getData(Entry entry, ByteBuffer target) throws IOException {
+		if (target.remaining() < entry.size) throw new IllegalArgumentException("target buffer too small for " + entry.name);
+
+		// hold the lock while reading from the mapping so it can't get unmapped concurrently
+		Lock readLock = lockOpen();
+
+		try {
+			getData0(entry, target);
+		} catch (InternalError e) {
+			throw modifiedWhileMapped(e);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	private void getData0(Entry entry, ByteBuffer target) throws IOException {
+		ByteBuffer raw = getRawData0(entry);
+
+		if (entry.method == METHOD_STORED) {
+			target.put(raw);
+			return;
+		}
+
+		byte[] input;
+		int inputOffset;
+
+		if (raw.hasArray()) {
+			input = raw.array();
+			inputOffset = raw.arrayOffset() + raw.position();
+		} else {
+			input = new byte[raw.remaining()];
+			inputOffset = 0;
+			raw.get(input);
+		}
+
+		boolean direct = !target.hasArray();
+		byte[] output = direct ? new byte[(int) Math.min(entry.size, INFLATE_CHUNK_SIZE)] : target.array();
+		int outputOffset = direct ? 0 : target.arrayOffset() + target.position();
+		Inflater inflater = acquireInflater();
+
+		try {
+			// nowrap inflaters may need an extra dummy byte to finish
+			inflater.setInput(input, inputOffset, (int) entry.compressedSize);
+			boolean addedDummy = false;
+			long len = 0;
+
+			while (len < entry.size) {
+				int read;
+
+				if (direct) {
+					read = inflater.inflate(output, 0, (int) Math.min(output.length, entry.size - len));
+					target.put(output, 0, read);
+				} else {
+					read = inflater.inflate(output, outputOffset + (int) len, (int) (entry.size - len));
+				}
+
+				if (read == 0) {
+					if (!inflater.needsInput() || addedDummy) break;
+
+					inflater.setInput(new byte[1]);
+					addedDummy = true;
+				}
+
+				len += read;
+			}
+
+			if (len != entry.size) throw new ZipException("size mismatch for " + entry.name);
+			if (!direct) target.position(target.position() + (int) len);
+		} catch (DataFormatException e) {
+			throw new ZipException("invalid deflate data for " + entry.name + ": " + e.getMessage());
+		} finally {
+			releaseInflater(inflater);
+		}
+	}
+
+	public boolean isMultiRelease() {
+		for (String name : entries.keySet()) {
+			if (name.startsWith("META-INF/versions/")) return true;
+		}
+
+		return false;
+	}
+
+	public boolean isClosed() {
+		Lock readLock = lock.readLock();
+		readLock.lock();
+
+		try {
+			return closed;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Close the zip file, unmapping the file if this instance was opened from a path.
+	 *
+	 * <p>Waits for in-progress reads, buffers previously returned for stored entries become invalid.
+	 */
+	@Override
+	public void close() {
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+
+		try {
+			if (closed) return;
+
+			closed = true;
+			if (ownsMapping) unmap(buffer);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Create the exception for a fault accessing the mapping, the JVM raises those as {@link InternalError}.
+	 */
+	private static IOException modifiedWhileMapped(InternalError e) {
+		return new IOException("zip file was modified while mapped", e);
+	}
+
+	private Lock lockOpen() {
+		Lock ret = lock.readLock();
+		ret.lock();
+
+		if (closed) {
+			ret.unlock();
+			throw new IllegalStateException("zip file closed");
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Release a mapped buffer immediately, falling back to releasing it through the garbage collector if the JVM
+	 * doesn't expose a way to do so.
+	 */
+	private static void unmap(ByteBuffer buffer) {
+		if (!buffer.isDirect()) return;
+
+		try {
+			if (Unmapper.INVOKE_CLEANER != null) { // Java 9+
+				Unmapper.INVOKE_CLEANER.invoke(Unmapper.UNSAFE, buffer);
+			} else { // Java 8
+				Method getCleaner = buffer.getClass().getMethod("cleaner");
+				getCleaner.setAccessible(true);
+				Object cleaner = getCleaner.invoke(buffer);
+				if (cleaner != null) cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			Log.debug(LogCategory.GENERAL, "Can't unmap buffer, leaving it to the garbage collector: %s", e);
+		}
+	}
+
+	private static final class Unmapper {
+		static final Object UNSAFE;
+		static final Method INVOKE_CLEANER;
+
+		static {
+			Object unsafe = null;
+			Method invokeCleaner = null;
+
+			try {
+				Class<?> cls = Class.forName("sun.misc.Unsafe");
+				invokeCleaner = cls.getMethod("invokeCleaner", ByteBuffer.class);
+				Field field = cls.getDeclaredField("theUnsafe");
+				field.setAccessible(true);
+				unsafe = field.get(null);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				invokeCleaner = null;
+			}
+
+			UNSAFE = unsafe;
+			INVOKE_CLEANER = invokeCleaner;
+		}
+	}
+
+	private static Inflater acquireInflater() {
+		synchronized (inflaterPool) {
+			Inflater ret = inflaterPool.pollFirst();
+			if (ret != null) return ret;
+		}
+
+		return new Inflater(true);
+	}
+
+	private static void releaseInflater(Inflater inflater) {
+		inflater.reset();
+
+		synchronized (inflaterPool) {
+			if (inflaterPool.size() < MAX_POOLED_INFLATERS) {
+				inflaterPool.addFirst(inflater);
+				return;
+			}
+		}
+
+		inflater.end();
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import net.fabricmc.loader.impl.lib.gson.JsonWriter;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Hierarchical wall clock timer for the launch phases, enabled through {@link SystemProperties#PROFILE_STARTUP}.
+ *
+ * <p>Sections nest per thread: a section started while another one is open on the same thread becomes its child.
+ * Sections are meant to be used with try-with-resources and are free no-ops while profiling is disabled.
+ */
+public final class StartupProfiler {
+	public static final String JSON_FILE_NAME = "startupProfile.json"; // relative to cache dir
+	public static final String TEXT_FILE_NAME = "startupProfile.txt"; // relative to cache dir
+
+	private static final boolean ENABLED = System.getProperty(SystemProperties.PROFILE_STARTUP) != null;
+	private static final Section NOOP = new Section(null, null, null, 0);
+	private static volatile long epoch = System.nanoTime(); // loader start or last reset
+
+	private static final ThreadLocal<Section> current = new ThreadLocal<>();
+	private static final List<Section> roots = new ArrayList<>();
+
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	/**
+	 * Start a new section, to be closed by the caller on the same thread.
+	 */
+	public static Section start(String name) {
+		if (!ENABLED) return NOOP;
+
+		Section parent = current.get();
+		Section ret = new Section(name, Thread.currentThread().getName(), parent, System.nanoTime());
+
+		if (parent != null) {
+			synchronized (parent.children) {
+				parent.children.add(ret);
+			}
+		} else {
+			synchronized (roots) {
+				roots.add(ret);
+			}
+		}
+
+		current.set(ret);
+
+		return ret;
+	}
+
+	/**
+	 * Discard all recorded sections, e.g. before profiling a reload.
+	 */
+	public static void reset() {
+		if (!ENABLED) return;
+
+		synchronized (roots) {
+			roots.clear();
+		}
+
+		current.remove();
+		epoch = System.nanoTime();
+	}
+
+	public static final class Section implements AutoCloseable {
+		final String name;
+		final String thread;
+		final Section parent;
+		final long startTime;
+		volatile long endTime = -1;
+		final List<Section> children = new ArrayList<>();
+
+		Section(String name, String thread, Section parent, long startTime) {
+			this.name = name;
+			this.thread = thread;
+			this.parent = parent;
+			this.startTime = startTime;
+		}
+
+		@Override
+		public void close() {
+			if (this == NOOP || endTime >= 0) return;
+
+			endTime = System.nanoTime();
+
+			if (current.get() == this) {
+				if (parent != null) {
+					current.set(parent);
+				} else {
+					current.remove();
+				}
+			}
+		}
+
+		long getDuration(long now) {
+			long end = endTime;
+
+			return (end >= 0 ? end : now) - startTime;
+		}
+	}
+
+	/**
+	 * Write the recorded sections as JSON and as a human readable table to the cache dir, if profiling is enabled.
+	 */
+	public static void dump(Path cacheDir) {
+		if (!ENABLED) return;
+
+		long now = System.nanoTime();
+		List<Section> roots;
+
+		synchronized (StartupProfiler.roots) {
+			roots = new ArrayList<>(StartupProfiler.roots);
+		}
+
+		try {
+			Files.createDirectories(cacheDir);
+
+			try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(cacheDir.resolve(JSON_FILE_NAME), StandardCharsets.UTF_8))) {
+				writer.setIndent("\t");
+				writer.beginObject();
+				writer.name("totalMs").value(toMs(now - epoch));
+				writer.name("sections");
+				writeJson(roots, writer, now);
+				writer.endObject();
+			}
+
+			StringBuilder sb = new StringBuilder();
+			sb.append(String.format(Locale.ENGLISH, "%-72s %12s %8s%n", "Section", "Time (ms)", "Share"));
+
+			for (Section section : roots) {
+				sb.append(String.format(Locale.ENGLISH, "[%s]%n", section.thread));
+				writeText(section, 0, sb, now);
+			}
+
+			sb.append(String.format(Locale.ENGLISH, "%-72s %12.3f%n", "Total since loader start or reload", toMs(now - epoch)));
+
+			try (Writer writer = Files.newBufferedWriter(cacheDir.resolve(TEXT_FILE_NAME), StandardCharsets.UTF_8)) {
+				writer.write(sb.toString());
+			}
+
+			Log.info(LogCategory.GENERAL, "Startup profile written to %s", cacheDir.resolve(TEXT_FILE_NAME));
+		} catch (IOException e) {
+			Log.warn(LogCategory.GENERAL, "Failed to write startup profile", e);
+		}
+	}
+
+	private static void writeJson(List<Section> sections, JsonWriter writer, long now) throws IOException {
+		writer.beginArray();
+
+		for (Section section : sections) {
+			List<Section> children;
+
+			synchronized (section.children) {
+				children = new ArrayList<>(section.children);
+			}
+
+			writer.beginObject();
+			writer.name("name").value(section.name);
+			if (section.parent == null) writer.name("thread").value(section.thread);
+			writer.name("startMs").value(toMs(section.startTime - epoch));
+			writer.name("durationMs").value(toMs(section.getDuration(now)));
+			if (section.endTime < 0) writer.name("unfinished").value(true);
+
+			if (!children.isEmpty()) {
+				writer.name("children");
+				writeJson(children, writer, now);
+			}
+
+			writer.endObject();
+		}
+
+		writer.endArray();
+	}
+
+	private static void writeText(Section section, int depth, StringBuilder sb, long now) {
+		StringBuilder name = new StringBuilder();
+
+		for (int i = 0; i < depth; i++) {
+			name.append("  ");
+		}
+
+		name.append(section.name);
+		if (section.endTime < 0) name.append(" (unfinished)");
+
+		long duration = section.getDuration(now);
+		String share = section.parent != null ? String.format(Locale.ENGLISH, "%.1f%%", 100.0 * duration / Math.max(1, section.parent.getDuration(now))) : "";
+		sb.append(String.format(Locale.ENGLISH, "%-72s %12.3f %8s%n", name, toMs(duration), share));
+
+		List<Section> children;
+
+		synchronized (section.children) {
+			children = new ArrayList<>(section.children);
+		}
+
+		for (Section child : children) {
+			writeText(child, depth + 1, sb, now);
+		}
+	}
+
+	private static double toMs(long nanos) {
+		return Math.round(nanos / 1e3) / 1e3;
+	}
+
+	private StartupProfiler() { }
+}
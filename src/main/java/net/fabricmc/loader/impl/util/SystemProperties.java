@@ -44,6 +44,24 @@ public final class SystemProperties {
 	public static final String PATH_GROUPS = "fabric.classPathGroups";
 	// system level libraries, matching code sources will not be assumed to be part of the game or mods and remain on the system class path (paths separated by path separator)
 	public static final String SYSTEM_LIBRARIES = "fabric.systemLibraries";
+	// caches fully transformed class bytes in the game dir's .fabric folder across launches
+	public static final String CLASS_CACHE = "fabric.classCache";
+	// pre-transforms the classes used by the previous launch in parallel after pre-launch
+	public static final String PREWARM_CLASSES = "fabric.prewarmClasses";
+	// number of threads used for Loader's parallel processing, defaults to the available processor count
+	public static final String WORKER_THREADS = "fabric.workerThreads";
+	// records the duration of the launch phases and writes a report to the game dir's .fabric folder
+	public static final String PROFILE_STARTUP = "fabric.profileStartup";
+	// records per class read, transform and define times, queryable through FabricLoader.getClassLoadMetrics
+	public static final String CLASS_LOAD_METRICS = "fabric.classLoadMetrics";
+	// additionally validates discovery cache entries with a hash of the mod file contents, not just its size and modification time
+	public static final String DISCOVERY_CACHE_VERIFY_HASH = "fabric.discoveryCacheVerifyHash";
+	// directory of a content addressed store shared between game dirs, extracted nested mods get hard linked from there
+	public static final String SHARED_PROCESSED_MODS_DIR = "fabric.sharedProcessedModsDir";
+	// watches the mods folder for reloads, true to only rescan changed jars, auto to also reload once changes settled through FabricLoaderImpl.setReloadExecutor
+	public static final String WATCH_MODS_FOLDER = "fabric.watchModsFolder";
+	// races several sat4j configurations during mod resolution and uses the first result, for pathological dependency graphs
+	public static final String RESOLUTION_PORTFOLIO = "fabric.resolutionPortfolio";
 	// throw exceptions from entrypoints, discovery etc. directly instead of gathering and attaching as suppressed
 	public static final String DEBUG_THROW_DIRECTLY = "fabric.debug.throwDirectly";
 	// logs library classification activity
@@ -56,6 +74,14 @@ public final class SystemProperties {
 	public static final String DEBUG_LOG_TRANSFORM_ERRORS = "fabric.debug.logTransformErrors";
 	// disables system class path isolation, allowing bogus lib accesses (too early, transient jars)
 	public static final String DEBUG_DISABLE_CLASS_PATH_ISOLATION = "fabric.debug.disableClassPathIsolation";
+	// reads mod jars and indexed class files through ZipFile instead of memory mapping the jars
+	public static final String DEBUG_DISABLE_MAPPED_JARS = "fabric.debug.disableMappedJars";
+	// disables reusing the mod metadata and nested jar structure recorded by the previous launch
+	public static final String DEBUG_DISABLE_DISCOVERY_CACHE = "fabric.debug.disableDiscoveryCache";
+	// disables reusing the mod selection of the previous launch for an identical resolution problem
+	public static final String DEBUG_DISABLE_RESOLUTION_CACHE = "fabric.debug.disableResolutionCache";
+	// disables solving independent parts of the mod resolution problem separately
+	public static final String DEBUG_DISABLE_RESOLUTION_SPLITTING = "fabric.debug.disableResolutionSplitting";
 	// disables mod load order shuffling to be the same in-dev as in production
 	public static final String DEBUG_DISABLE_MOD_SHUFFLE = "fabric.debug.disableModShuffle";
 	// workaround for bad load order dependencies
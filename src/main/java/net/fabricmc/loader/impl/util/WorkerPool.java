@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Shared work-stealing pool for Loader's internal parallel processing.
+ *
+ * <p>The pool is created lazily, uses daemon threads named "Fabric Worker-N" and has a parallelism of the available
+ * processor count unless overridden through {@link SystemProperties#WORKER_THREADS}.
+ */
+public final class WorkerPool {
+	private static final int MIN_BATCH_SIZE = 16;
+
+	private static volatile ForkJoinPool pool;
+
+	public static ForkJoinPool get() {
+		ForkJoinPool ret = pool;
+		if (ret != null) return ret;
+
+		synchronized (WorkerPool.class) {
+			if (pool == null) pool = createPool();
+
+			return pool;
+		}
+	}
+
+	public static int getParallelism() {
+		return get().getParallelism();
+	}
+
+	/**
+	 * Run action for every index in [0, count), splitting the range across the pool's threads.
+	 *
+	 * <p>The call blocks until all indices have been processed. The first exception thrown by action is rethrown.
+	 */
+	public static void forEachIndex(int count, IntConsumer action) {
+		forEachIndex(count, MIN_BATCH_SIZE, action);
+	}
+
+	/**
+	 * Run action for every index in [0, count) like {@link #forEachIndex(int, IntConsumer)}, with a custom minimum
+	 * number of indices per task for coarse grained actions.
+	 */
+	public static void forEachIndex(int count, int minBatchSize, IntConsumer action) {
+		if (count <= 0) return;
+
+		ForkJoinPool pool = get();
+		int batchSize = Math.max(minBatchSize, count / (pool.getParallelism() * 4));
+		pool.invoke(new RangeTask(0, count, batchSize, action));
+	}
+
+	private static ForkJoinPool createPool() {
+		int parallelism = Integer.getInteger(SystemProperties.WORKER_THREADS, Runtime.getRuntime().availableProcessors());
+
+		return new ForkJoinPool(Math.max(1, parallelism), p -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+			thread.setName("Fabric Worker-" + thread.getPoolIndex());
+			thread.setDaemon(true);
+
+			return thread;
+		}, null, false);
+	}
+
+	@SuppressWarnings("serial")
+	private static final class RangeTask extends RecursiveAction {
+		private final int start;
+		private final int end;
+		private final int batchSize;
+		private final IntConsumer action;
+
+		RangeTask(int start, int end, int batchSize, IntConsumer action) {
+			this.start = start;
+			this.end = end;
+			this.batchSize = batchSize;
+			this.action = action;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= batchSize) {
+				for (int i = start; i < end; i++) {
+					action.accept(i);
+				}
+			} else {
+				int mid = (start + end) >>> 1;
+				invokeAll(new RangeTask(start, mid, batchSize, action), new RangeTask(mid, end, batchSize, action));
+			}
+		}
+	}
+
+	private WorkerPool() { }
+}
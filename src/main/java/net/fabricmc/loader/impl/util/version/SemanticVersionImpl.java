@@ -39,10 +39,23 @@ import net.fabricmc.loader.api.VersionParsingException;
 public class SemanticVersionImpl extends net.fabricmc.loader.util.version.SemanticVersionImpl implements SemanticVersion {
 	private static final Pattern DOT_SEPARATED_ID = Pattern.compile("|[-0-9A-Za-z]+(\\.[-0-9A-Za-z]+)*");
 	private static final Pattern UNSIGNED_INTEGER = Pattern.compile("0|[1-9][0-9]*");
+	private static final int PACKED_COMPONENTS = 4; // components covered by packedKey0 and packedKey1
+	private static final long PRERELEASE_NON_NUMERIC = -1;
+	private static final long PRERELEASE_LARGE_NUMERIC = -2; // numeric, but too long to be parsed into a long
+	private static final int MAX_PRERELEASE_NUM_DIGITS = 18;
+	private static final String[] NO_PRERELEASE_IDS = new String[0];
+	private static final long[] NO_PRERELEASE_NUMS = new long[0];
 	private final int[] components;
 	private final String prerelease;
 	private final String build;
 	private String friendlyName;
+	private final boolean wildcard;
+	// first 4 components as 2 components per long, only valid without wildcard, signed comparison matches component order
+	private final long packedKey0;
+	private final long packedKey1;
+	// pre-release identifiers and the values of numeric identifiers or PRERELEASE_*, null without pre-release
+	private final String[] prereleaseIds;
+	private final long[] prereleaseNums;
 
 	public SemanticVersionImpl(String version, boolean storeX) throws VersionParsingException {
 		int buildDelimPos = version.indexOf('+');
@@ -124,6 +137,11 @@ public class SemanticVersionImpl extends net.fabricmc.loader.util.version.Semant
 		}
 
 		this.components = components;
+		this.wildcard = hasWildcard(components);
+		this.packedKey0 = wildcard ? 0 : packComponents(components, 0);
+		this.packedKey1 = wildcard ? 0 : packComponents(components, 2);
+		this.prereleaseIds = splitPrerelease(prerelease);
+		this.prereleaseNums = parsePrereleaseNums(prereleaseIds);
 
 		buildFriendlyName();
 	}
@@ -134,6 +152,11 @@ public class SemanticVersionImpl extends net.fabricmc.loader.util.version.Semant
 		this.components = components;
 		this.prerelease = prerelease;
 		this.build = build;
+		this.wildcard = hasWildcard(components);
+		this.packedKey0 = wildcard ? 0 : packComponents(components, 0);
+		this.packedKey1 = wildcard ? 0 : packComponents(components, 2);
+		this.prereleaseIds = splitPrerelease(prerelease);
+		this.prereleaseNums = parsePrereleaseNums(prereleaseIds);
 
 		buildFriendlyName();
 	}
@@ -167,6 +190,23 @@ public class SemanticVersionImpl extends net.fabricmc.loader.util.version.Semant
 		friendlyName = fnBuilder.toString();
 	}
 
+	private static boolean hasWildcard(int[] components) {
+		for (int i : components) {
+			if (i < 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static long packComponents(int[] components, int start) {
+		long high = start < components.length ? components[start] : 0;
+		long low = start + 1 < components.length ? components[start + 1] : 0;
+
+		return high << 32 | low;
+	}
+
 	@Override
 	public int getVersionComponentCount() {
 		return components.length;
@@ -230,13 +270,7 @@ public class SemanticVersionImpl extends net.fabricmc.loader.util.version.Semant
 
 	@Override
 	public boolean hasWildcard() {
-		for (int i : components) {
-			if (i < 0) {
-				return true;
-			}
-		}
-
-		return false;
+		return wildcard;
 	}
 
 	public boolean equalsComponentsExactly(SemanticVersionImpl other) {
@@ -251,7 +285,9 @@ public class SemanticVersionImpl extends net.fabricmc.loader.util.version.Semant
 
 	@Override
 	public int compareTo(Version other) {
-		if (!(other instanceof SemanticVersion)) {
+		if (other instanceof SemanticVersionImpl) {
+			return compareTo((SemanticVersionImpl) other);
+		} else if (!(other instanceof SemanticVersion)) {
 			return getFriendlyString().compareTo(other.getFriendlyString());
 		}
 
@@ -312,4 +348,126 @@ public class SemanticVersionImpl extends net.fabricmc.loader.util.version.Semant
 			return 0;
 		}
 	}
+
+	/**
+	 * Allocation-free variant of {@link #compareTo(Version)} for the common case of comparing 2 instances of this class.
+	 */
+	private int compareTo(SemanticVersionImpl o) {
+		if (!wildcard && !o.wildcard) {
+			int compare = Long.compare(packedKey0, o.packedKey0);
+			if (compare != 0) return compare;
+
+			compare = Long.compare(packedKey1, o.packedKey1);
+			if (compare != 0) return compare;
+
+			for (int i = PACKED_COMPONENTS; i < Math.max(components.length, o.components.length); i++) {
+				compare = Integer.compare(getVersionComponent(i), o.getVersionComponent(i));
+				if (compare != 0) return compare;
+			}
+		} else {
+			for (int i = 0; i < Math.max(components.length, o.components.length); i++) {
+				int first = getVersionComponent(i);
+				int second = o.getVersionComponent(i);
+
+				if (first == COMPONENT_WILDCARD || second == COMPONENT_WILDCARD) {
+					continue;
+				}
+
+				int compare = Integer.compare(first, second);
+				if (compare != 0) return compare;
+			}
+		}
+
+		if (prerelease != null) {
+			if (o.prerelease != null) {
+				return comparePrerelease(this, o);
+			} else {
+				return o.wildcard ? 0 : -1;
+			}
+		} else if (o.prerelease != null) {
+			return wildcard ? 0 : 1;
+		} else {
+			return 0;
+		}
+	}
+
+	/**
+	 * Compare 2 pre-release keys by their identifiers, numeric identifiers are ordered numerically and before
+	 * alphanumeric identifiers, which are ordered lexically.
+	 */
+	private static int comparePrerelease(SemanticVersionImpl a, SemanticVersionImpl b) {
+		String[] idsA = a.prereleaseIds;
+		String[] idsB = b.prereleaseIds;
+
+		for (int i = 0, max = Math.min(idsA.length, idsB.length); i < max; i++) {
+			long numA = a.prereleaseNums[i];
+			long numB = b.prereleaseNums[i];
+			int compare;
+
+			if (numA >= 0 && numB >= 0) {
+				compare = Long.compare(numA, numB);
+			} else if (numA != PRERELEASE_NON_NUMERIC) {
+				if (numB == PRERELEASE_NON_NUMERIC) return -1;
+
+				compare = Integer.compare(idsA[i].length(), idsB[i].length());
+				if (compare == 0) compare = idsA[i].compareTo(idsB[i]);
+			} else if (numB != PRERELEASE_NON_NUMERIC) {
+				return 1;
+			} else {
+				compare = idsA[i].compareTo(idsB[i]);
+			}
+
+			if (compare != 0) return compare;
+		}
+
+		return Integer.compare(idsA.length, idsB.length);
+	}
+
+	private static String[] splitPrerelease(String prerelease) {
+		if (prerelease == null) return null;
+
+		StringTokenizer tokenizer = new StringTokenizer(prerelease, ".");
+		int count = tokenizer.countTokens();
+		if (count == 0) return NO_PRERELEASE_IDS;
+
+		String[] ret = new String[count];
+
+		for (int i = 0; i < count; i++) {
+			ret[i] = tokenizer.nextToken();
+		}
+
+		return ret;
+	}
+
+	private static long[] parsePrereleaseNums(String[] ids) {
+		if (ids == null) return null;
+		if (ids.length == 0) return NO_PRERELEASE_NUMS;
+
+		long[] ret = new long[ids.length];
+
+		for (int i = 0; i < ids.length; i++) {
+			String id = ids[i];
+
+			if (!isUnsignedInteger(id)) {
+				ret[i] = PRERELEASE_NON_NUMERIC;
+			} else if (id.length() > MAX_PRERELEASE_NUM_DIGITS) {
+				ret[i] = PRERELEASE_LARGE_NUMERIC;
+			} else {
+				ret[i] = Long.parseLong(id);
+			}
+		}
+
+		return ret;
+	}
+
+	private static boolean isUnsignedInteger(String s) { // equivalent to UNSIGNED_INTEGER.matcher(s).matches()
+		if (s.isEmpty() || s.length() > 1 && s.charAt(0) == '0') return false;
+
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9') return false;
+		}
+
+		return true;
+	}
 }
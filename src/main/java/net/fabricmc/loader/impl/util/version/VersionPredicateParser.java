@@ -21,8 +21,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.fabricmc.loader.api.SemanticVersion;
 import net.fabricmc.loader.api.Version;
@@ -34,6 +36,34 @@ import net.fabricmc.loader.api.metadata.version.VersionPredicate.PredicateTerm;
 
 public final class VersionPredicateParser {
 	private static final VersionComparisonOperator[] OPERATORS = VersionComparisonOperator.values();
+	// predicates are immutable and the same strings are used by many mods' dependencies, bounded since it is only
+	// meant to deduplicate the predicates of the loaded mod metadata
+	private static final int CACHE_LIMIT = 4096;
+	private static final Map<String, VersionPredicate> CACHE = new ConcurrentHashMap<>();
+
+	/**
+	 * Parse predicates like {@link #parse(Collection)}, reusing previous results for mod metadata dependencies.
+	 */
+	public static Set<VersionPredicate> parseCached(Collection<String> predicates) throws VersionParsingException {
+		Set<VersionPredicate> ret = new HashSet<>(predicates.size());
+
+		for (String predicate : predicates) {
+			VersionPredicate parsed = CACHE.get(predicate);
+
+			if (parsed == null) {
+				parsed = parse(predicate);
+
+				if (CACHE.size() < CACHE_LIMIT) {
+					VersionPredicate prev = CACHE.putIfAbsent(predicate, parsed);
+					if (prev != null) parsed = prev;
+				}
+			}
+
+			ret.add(parsed);
+		}
+
+		return ret;
+	}
 
 	public static VersionPredicate parse(String predicate) throws VersionParsingException {
 		List<SingleVersionPredicate> predicateList = new ArrayList<>();
@@ -141,10 +171,12 @@ public final class VersionPredicateParser {
 	static class SingleVersionPredicate implements VersionPredicate, PredicateTerm {
 		private final VersionComparisonOperator operator;
 		private final Version refVersion;
+		private final VersionInterval interval;
 
 		SingleVersionPredicate(VersionComparisonOperator operator, Version refVersion) {
 			this.operator = operator;
 			this.refVersion = refVersion;
+			this.interval = computeInterval(operator, refVersion);
 		}
 
 		@Override
@@ -159,8 +191,7 @@ public final class VersionPredicateParser {
 			return Collections.singletonList(this);
 		}
 
-		@Override
-		public VersionInterval getInterval() {
+		private static VersionInterval computeInterval(VersionComparisonOperator operator, Version refVersion) {
 			if (refVersion instanceof SemanticVersion) {
 				SemanticVersion version = (SemanticVersion) refVersion;
 
@@ -171,6 +202,11 @@ public final class VersionPredicateParser {
 			}
 		}
 
+		@Override
+		public VersionInterval getInterval() {
+			return interval;
+		}
+
 		@Override
 		public VersionComparisonOperator getOperator() {
 			return operator;
@@ -205,16 +241,20 @@ public final class VersionPredicateParser {
 
 	static class MultiVersionPredicate implements VersionPredicate {
 		private final List<SingleVersionPredicate> predicates;
+		private final SingleVersionPredicate[] predicateArray;
+		private final VersionInterval interval;
 
 		MultiVersionPredicate(List<SingleVersionPredicate> predicates) {
-			this.predicates = predicates;
+			this.predicates = Collections.unmodifiableList(predicates);
+			this.predicateArray = predicates.toArray(new SingleVersionPredicate[0]);
+			this.interval = computeInterval(predicates);
 		}
 
 		@Override
 		public boolean test(Version version) {
 			Objects.requireNonNull(version, "null version");
 
-			for (SingleVersionPredicate predicate : predicates) {
+			for (SingleVersionPredicate predicate : predicateArray) {
 				if (!predicate.test(version)) return false;
 			}
 
@@ -226,8 +266,7 @@ public final class VersionPredicateParser {
 			return predicates;
 		}
 
-		@Override
-		public VersionInterval getInterval() {
+		private static VersionInterval computeInterval(List<SingleVersionPredicate> predicates) {
 			if (predicates.isEmpty()) return AnyVersionPredicate.INSTANCE.getInterval();
 
 			VersionInterval ret = predicates.get(0).getInterval();
@@ -239,6 +278,11 @@ public final class VersionPredicateParser {
 			return ret;
 		}
 
+		@Override
+		public VersionInterval getInterval() {
+			return interval;
+		}
+
 		@Override
 		public boolean equals(Object obj) {
 			if (obj instanceof MultiVersionPredicate) {
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.loader.api.metrics.ClassLoadMetrics.Phase;
+import net.fabricmc.loader.api.metrics.ClassLoadMetrics.Stats;
+
+final class ClassLoadMetricsImplTests {
+	@Test
+	public void classStatsAreSnapshots() {
+		String name = "net.fabricmc.test.SnapshotTarget";
+		ClassLoadMetricsImpl.Sample sample = new ClassLoadMetricsImpl.Sample();
+		sample.addNanos(Phase.READ, 1000);
+		sample.setBytes(10, 20);
+		ClassLoadMetricsImpl.INSTANCE.record(name, null, sample);
+
+		Stats stats = ClassLoadMetricsImpl.INSTANCE.getClassStats(name);
+		Stats mapStats = ClassLoadMetricsImpl.INSTANCE.getClassStats().get(name);
+		assertEquals(1, stats.getClassCount());
+		assertEquals(1000, stats.getMaxNanos(Phase.READ));
+		assertEquals(1, stats.getHistogram(Phase.READ)[10]);
+
+		// neither later recording nor modifying a returned histogram affects a snapshot
+		sample.addNanos(Phase.READ, 1000);
+		sample.setBytes(30, 40);
+		stats.getHistogram(Phase.READ)[10] = 5;
+
+		for (Stats s : new Stats[] { stats, mapStats }) {
+			assertEquals(1000, s.getNanos(Phase.READ));
+			assertEquals(10, s.getBytesIn());
+			assertEquals(20, s.getBytesOut());
+			assertEquals(1, s.getHistogram(Phase.READ)[10]);
+		}
+
+		assertEquals(2000, ClassLoadMetricsImpl.INSTANCE.getClassStats(name).getNanos(Phase.READ));
+		assertNull(ClassLoadMetricsImpl.INSTANCE.getClassStats("net.fabricmc.test.Missing"));
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.fabricmc.api.EnvType;
+
+final class DiscoveryCacheTests {
+	private static final byte[] MOD_JSON = "{\"schemaVersion\": 1, \"id\": \"test\", \"version\": \"1.0\"}".getBytes(StandardCharsets.UTF_8);
+
+	@TempDir
+	Path root;
+
+	@Test
+	public void stampsRegularFilesOnly() throws IOException {
+		DiscoveryCache cache = DiscoveryCache.load(root, EnvType.CLIENT, false);
+		Path jar = writeJar("mod.jar", "content");
+
+		DiscoveryCache.Stamp stamp = cache.getStamp(jar);
+		assertNotNull(stamp);
+		assertEquals(Files.size(jar), stamp.size);
+		assertEquals(Files.getLastModifiedTime(jar).toMillis(), stamp.lastModified);
+
+		assertNull(cache.getStamp(root));
+		assertNull(cache.getStamp(root.resolve("missing.jar")));
+	}
+
+	@Test
+	public void reusesUnchangedJars() throws IOException {
+		Path jar = writeJar("mod.jar", "content");
+		DiscoveryCache cache = DiscoveryCache.load(root, EnvType.CLIENT, false);
+		cache.put(jar, cache.getStamp(jar), createNode());
+		cache.save();
+
+		DiscoveryCache loaded = DiscoveryCache.load(root, EnvType.CLIENT, false);
+		DiscoveryCache.Node node = loaded.get(jar, loaded.getStamp(jar));
+
+		assertNotNull(node);
+		assertArrayEquals(MOD_JSON, node.modJson);
+		assertEquals(1, node.nested.size());
+		assertEquals("META-INF/jars/nested.jar", node.nestedNames.get(0));
+		assertEquals(0x1234_0000_0042L, (long) node.nestedHashes.get(0));
+		assertNull(node.nested.get(0).modJson);
+	}
+
+	@Test
+	public void invalidatesChangedJars() throws IOException {
+		Path jar = writeJar("mod.jar", "content");
+		Path other = writeJar("other.jar", "other");
+		DiscoveryCache cache = DiscoveryCache.load(root, EnvType.CLIENT, false);
+		cache.put(jar, cache.getStamp(jar), createNode());
+		cache.put(other, cache.getStamp(other), createNode());
+		cache.save();
+
+		// same size, different modification time
+		writeJar("mod.jar", "CONTENT");
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 2000));
+
+		DiscoveryCache loaded = DiscoveryCache.load(root, EnvType.CLIENT, false);
+		assertNull(loaded.get(jar, loaded.getStamp(jar)));
+		assertNotNull(loaded.get(other, loaded.getStamp(other)));
+
+		// explicitly invalidated, e.g. by the mods directory watcher, despite a matching stamp
+		loaded.invalidate(other);
+		assertNull(loaded.get(other, loaded.getStamp(other)));
+		assertNull(loaded.getUnchecked(other));
+	}
+
+	@Test
+	public void discardsOtherEnvironments() throws IOException {
+		Path jar = writeJar("mod.jar", "content");
+		DiscoveryCache cache = DiscoveryCache.load(root, EnvType.CLIENT, false);
+		cache.put(jar, cache.getStamp(jar), createNode());
+		cache.save();
+
+		assertNull(DiscoveryCache.load(root, EnvType.SERVER, false).getUnchecked(jar));
+		assertNull(DiscoveryCache.load(root, EnvType.CLIENT, true).getUnchecked(jar));
+		assertNotNull(DiscoveryCache.load(root, EnvType.CLIENT, false).getUnchecked(jar));
+	}
+
+	@Test
+	public void dropsUnusedEntriesOnSave() throws IOException {
+		Path jar = writeJar("mod.jar", "content");
+		Path removed = writeJar("removed.jar", "removed");
+		DiscoveryCache cache = DiscoveryCache.load(root, EnvType.CLIENT, false);
+		cache.put(jar, cache.getStamp(jar), createNode());
+		cache.put(removed, cache.getStamp(removed), createNode());
+		cache.save();
+
+		DiscoveryCache loaded = DiscoveryCache.load(root, EnvType.CLIENT, false);
+		assertNotNull(loaded.get(jar, loaded.getStamp(jar)));
+		loaded.save();
+
+		DiscoveryCache reloaded = DiscoveryCache.load(root, EnvType.CLIENT, false);
+		assertNotNull(reloaded.getUnchecked(jar));
+		assertNull(reloaded.getUnchecked(removed));
+	}
+
+	@Test
+	public void toleratesCorruptFile() throws IOException {
+		Files.write(root.resolve("discoveryCache.bin"), new byte[] { 1, 2, 3 });
+		Path jar = writeJar("mod.jar", "content");
+
+		assertNull(DiscoveryCache.load(root, EnvType.CLIENT, false).getUnchecked(jar));
+	}
+
+	private static DiscoveryCache.Node createNode() {
+		DiscoveryCache.Node ret = new DiscoveryCache.Node();
+		ret.modJson = MOD_JSON;
+		ret.addNested("META-INF/jars/nested.jar", 0x1234_0000_0042L, new DiscoveryCache.Node());
+
+		return ret;
+	}
+
+	private Path writeJar(String name, String content) throws IOException {
+		return Files.write(root.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.loader.api.metadata.ModDependency;
+import net.fabricmc.loader.impl.util.WorkerPool;
+
+final class ModCandidateIndexTests {
+	@Test
+	public void matchesIndependentOfAddOrder() {
+		TestCandidates mods = new TestCandidates();
+		ModCandidate alpha = mods.root("alpha", "1.0.0", "\"depends\": {\"beta\": \">=2\"}");
+		ModCandidate betaOld = mods.root("beta", "1.0.0");
+		ModCandidate betaNew = mods.root("beta", "2.0.0");
+		ModCandidate gamma = mods.root("gamma", "1.0.0", "\"depends\": {\"beta\": \"<2\"}");
+		ModCandidateIndex index = mods.getIndex();
+
+		assertFalse(index.matches(getDependency(alpha, "beta"), betaOld));
+		assertTrue(index.matches(getDependency(alpha, "beta"), betaNew));
+		assertTrue(index.matches(getDependency(gamma, "beta"), betaOld));
+		assertFalse(index.matches(getDependency(gamma, "beta"), betaNew));
+	}
+
+	@Test
+	public void matchesProvidedIds() {
+		TestCandidates mods = new TestCandidates();
+		ModCandidate alpha = mods.root("alpha", "1.0.0", "\"depends\": {\"api\": \"^1.2\"}, \"breaks\": {\"legacy\": \"*\"}");
+		ModCandidate impl = mods.root("impl", "1.5.0", "\"provides\": [\"api\", \"legacy\"]");
+		ModCandidateIndex index = mods.getIndex();
+
+		assertTrue(index.matches(getDependency(alpha, "api"), impl));
+		assertTrue(index.matches(getDependency(alpha, "legacy"), impl));
+	}
+
+	@Test
+	public void fallsBackForUnknownMods() {
+		TestCandidates mods = new TestCandidates();
+		ModCandidate alpha = mods.root("alpha", "1.0.0", "\"depends\": {\"beta\": \">=2\"}");
+
+		TestCandidates other = new TestCandidates();
+		ModCandidate betaOld = other.root("beta", "1.0.0");
+		ModCandidate betaNew = other.root("beta", "2.0.0");
+
+		assertFalse(mods.getIndex().matches(getDependency(alpha, "beta"), betaOld));
+		assertTrue(mods.getIndex().matches(getDependency(alpha, "beta"), betaNew));
+	}
+
+	@Test
+	public void concurrentAddsMatchDirectEvaluation() {
+		TestCandidates mods = new TestCandidates();
+
+		for (int i = 0; i < 50; i++) {
+			mods.root("mod" + i, "1." + i + ".0", String.format("\"depends\": {\"mod%d\": \">=1.%d\"}, \"recommends\": {\"lib\": \"1.%d.x\"}",
+					(i * 7) % 50, (i * 3) % 50, i % 5));
+			mods.root("lib", "1." + i % 10 + ".0");
+		}
+
+		List<ModCandidate> candidates = mods.getCandidates();
+		ModCandidateIndex index = new ModCandidateIndex();
+		WorkerPool.forEachIndex(candidates.size(), 1, i -> index.add(candidates.get(i)));
+
+		int matched = 0;
+
+		for (ModCandidate mod : candidates) {
+			for (ModDependency dep : mod.getDependencies()) {
+				for (ModCandidate target : candidates) {
+					if (!target.getId().equals(dep.getModId())) continue;
+
+					boolean expected = dep.matches(target.getVersion());
+					assertEquals(expected, index.matches(dep, target), () -> dep + " vs " + target);
+					if (expected) matched++;
+				}
+			}
+		}
+
+		assertTrue(matched > 0);
+	}
+
+	private static ModDependency getDependency(ModCandidate mod, String id) {
+		for (ModDependency dep : mod.getDependencies()) {
+			if (dep.getModId().equals(id)) return dep;
+		}
+
+		throw new AssertionError(mod + " has no dependency on " + id);
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+final class ModComponentSplitterTests {
+	@Test
+	public void forcedGroupDoesNotConnect() {
+		TestCandidates mods = sharedForcedGroup();
+		Map<String, List<ModCandidate>> modsById = new LinkedHashMap<>();
+		List<ModComponentSplitter.Component> components = ModComponentSplitter.split(mods.sort(modsById), modsById);
+
+		ModComponentSplitter.Component liba = componentOf(components, "liba");
+		ModComponentSplitter.Component libb = componentOf(components, "libb");
+		ModComponentSplitter.Component extra = componentOf(components, "extra");
+
+		assertTrue(componentOf(components, "core").isTrivial());
+		assertTrue(extra.isTrivial());
+		assertNotSame(liba, libb);
+		assertNotSame(liba, extra);
+		assertNotSame(libb, extra);
+		assertSame(libb, componentOf(components, "sigma"));
+		assertNotSame(liba, componentOf(components, "alpha")); // forced parents don't connect either
+
+		// the forced group is visible to every referencing component without joining them
+		for (ModComponentSplitter.Component component : new ModComponentSplitter.Component[] { liba, libb, extra }) {
+			assertSame(modsById.get("core"), component.modsById.get("core"));
+			assertFalse(component.members.contains(modsById.get("core").get(0)));
+		}
+	}
+
+	@Test
+	public void recommendsConnects() {
+		TestCandidates mods = recommendsDummies();
+		Map<String, List<ModCandidate>> modsById = new LinkedHashMap<>();
+		List<ModComponentSplitter.Component> components = ModComponentSplitter.split(mods.sort(modsById), modsById);
+
+		ModComponentSplitter.Component alpha = componentOf(components, "alpha");
+		ModComponentSplitter.Component gamma = componentOf(components, "gamma");
+
+		assertSame(alpha, componentOf(components, "beta"));
+		assertSame(gamma, componentOf(components, "delta"));
+		assertNotSame(alpha, gamma);
+		assertTrue(componentOf(components, "host").isTrivial());
+	}
+
+	@Test
+	public void nestedModWithForcedParent() {
+		TestCandidates mods = nestedWithForcedParent();
+		Map<String, List<ModCandidate>> modsById = new LinkedHashMap<>();
+		List<ModComponentSplitter.Component> components = ModComponentSplitter.split(mods.sort(modsById), modsById);
+
+		ModComponentSplitter.Component outer = componentOf(components, "outer");
+		ModComponentSplitter.Component mid = componentOf(components, "mid");
+		ModComponentSplitter.Component child = componentOf(components, "child");
+
+		assertTrue(outer.isTrivial());
+		assertNotSame(outer, mid);
+		assertNotSame(outer, child);
+		assertNotSame(mid, child);
+		assertSame(mid, componentOf(components, "inner")); // mid isn't forced, so its nested mod stays attached
+		assertSame(child, componentOf(components, "lib"));
+		assertNotSame(child, componentOf(components, "other"));
+	}
+
+	/**
+	 * A forced mod referenced by the dependencies of three otherwise independent groups of mods, two of them
+	 * constraining the forced version.
+	 */
+	static TestCandidates sharedForcedGroup() {
+		TestCandidates ret = new TestCandidates();
+
+		ret.root("core", "1.0.0");
+
+		ModCandidate alpha = ret.root("alpha", "1.0.0");
+		ret.nested(alpha, "liba", "1.0.0", "\"depends\": {\"core\": \">=1\"}");
+		ModCandidate omega = ret.root("omega", "1.0.0");
+		ret.nested(omega, "liba", "1.1.0", "\"depends\": {\"core\": \"*\"}");
+
+		ModCandidate beta = ret.root("beta", "1.0.0");
+		ret.nested(beta, "libb", "2.0.0", "\"breaks\": {\"core\": \"<1\"}");
+		ModCandidate sigma = ret.root("sigma", "1.0.0", "\"depends\": {\"libb\": \"<2\"}");
+		ret.nested(sigma, "libb", "1.0.0");
+
+		ModCandidate tau = ret.root("tau", "1.0.0");
+		ret.nested(tau, "extra", "1.0.0", "\"depends\": {\"core\": \">=2\"}");
+
+		return ret;
+	}
+
+	/**
+	 * Soft dependencies on a nested mod with alternatives, on an absent mod and on an unavailable version.
+	 */
+	static TestCandidates recommendsDummies() {
+		TestCandidates ret = new TestCandidates();
+
+		ret.root("alpha", "1.0.0", "\"recommends\": {\"beta\": \">=2\", \"ghost\": \"*\"}");
+		ModCandidate host = ret.root("host", "1.0.0");
+		ret.nested(host, "beta", "1.0.0");
+		ModCandidate other = ret.root("other", "1.0.0");
+		ret.nested(other, "beta", "2.0.0");
+
+		ModCandidate gamma = ret.root("gamma", "1.0.0", "\"recommends\": {\"delta\": \">=5\"}");
+		ret.nested(gamma, "delta", "1.0.0");
+
+		return ret;
+	}
+
+	/**
+	 * Nested mods below a forced root, one of them constrained by mods outside of the root.
+	 */
+	static TestCandidates nestedWithForcedParent() {
+		TestCandidates ret = new TestCandidates();
+
+		ModCandidate outer = ret.root("outer", "1.0.0");
+		ModCandidate mid = ret.nested(outer, "mid", "1.0.0");
+		ret.nested(mid, "inner", "1.0.0");
+		ret.nested(outer, "child", "1.0.0", "\"depends\": {\"lib\": \"<2\"}");
+
+		ModCandidate other = ret.root("other", "1.0.0");
+		ret.nested(other, "lib", "1.0.0");
+		ModCandidate third = ret.root("third", "1.0.0");
+		ret.nested(third, "lib", "2.0.0");
+
+		return ret;
+	}
+
+	private static ModComponentSplitter.Component componentOf(List<ModComponentSplitter.Component> components, String id) {
+		for (ModComponentSplitter.Component component : components) {
+			for (ModCandidate mod : component.mods) {
+				if (mod.getId().equals(id)) return component;
+			}
+		}
+
+		throw new AssertionError("no component contains " + id);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+final class ModResolverTests {
+	@Test
+	public void satisfiedProblemIsTrivial() throws ModResolutionException {
+		TestCandidates mods = new TestCandidates();
+		ModCandidate alpha = mods.root("alpha", "1.0.0", "\"depends\": {\"lib\": \">=1.2\"}, \"breaks\": {\"beta\": \"<1\"}");
+		mods.nested(alpha, "lib", "1.2.0");
+		mods.root("beta", "1.0.0", "\"recommends\": {\"missing\": \"*\"}, \"suggests\": {\"lib\": \">=2\"}");
+
+		assertTrue(isTriviallyConsistent(mods));
+	}
+
+	@Test
+	public void alternativesNeedSolver() throws ModResolutionException {
+		TestCandidates mods = new TestCandidates();
+		mods.nested(mods.root("alpha", "1.0.0"), "lib", "1.0.0");
+		mods.nested(mods.root("beta", "1.0.0"), "lib", "1.1.0");
+
+		assertFalse(isTriviallyConsistent(mods));
+	}
+
+	@Test
+	public void unsatisfiedDependencyNeedsSolver() throws ModResolutionException {
+		TestCandidates missing = new TestCandidates();
+		missing.root("alpha", "1.0.0", "\"depends\": {\"lib\": \"*\"}");
+		assertFalse(isTriviallyConsistent(missing));
+
+		TestCandidates wrongVersion = new TestCandidates();
+		wrongVersion.nested(wrongVersion.root("alpha", "1.0.0", "\"depends\": {\"lib\": \">=2\"}"), "lib", "1.0.0");
+		assertFalse(isTriviallyConsistent(wrongVersion));
+	}
+
+	@Test
+	public void matchingBreaksNeedsSolver() throws ModResolutionException {
+		TestCandidates mods = new TestCandidates();
+		mods.root("alpha", "1.0.0", "\"breaks\": {\"beta\": \"1.x\"}");
+		mods.root("beta", "1.5.0");
+
+		assertFalse(isTriviallyConsistent(mods));
+	}
+
+	@Test
+	public void preselectedModsAreConsidered() throws ModResolutionException {
+		TestCandidates satisfied = new TestCandidates();
+		satisfied.root("builtin", "1.0.0", "\"breaks\": {\"alpha\": \"<1\"}");
+		satisfied.root("alpha", "1.0.0", "\"depends\": {\"builtin\": \">=1\"}");
+		assertTrue(isTriviallyConsistent(satisfied, "builtin"));
+
+		TestCandidates wrongVersion = new TestCandidates();
+		wrongVersion.root("builtin", "1.0.0");
+		wrongVersion.root("alpha", "1.0.0", "\"depends\": {\"builtin\": \">=2\"}");
+		assertFalse(isTriviallyConsistent(wrongVersion, "builtin"));
+
+		TestCandidates broken = new TestCandidates();
+		broken.root("builtin", "1.0.0", "\"breaks\": {\"alpha\": \"*\"}");
+		broken.root("alpha", "1.0.0");
+		assertFalse(isTriviallyConsistent(broken, "builtin"));
+	}
+
+	/**
+	 * Run the check the way {@link ModResolver} does after sorting and preselecting.
+	 *
+	 * @param preselected ids of the mods to preselect, like builtin mods
+	 */
+	private static boolean isTriviallyConsistent(TestCandidates mods, String... preselected) throws ModResolutionException {
+		Map<String, List<ModCandidate>> modsById = new LinkedHashMap<>();
+		List<ModCandidate> sorted = mods.sort(modsById);
+		Map<String, ModCandidate> selectedMods = new HashMap<>();
+		List<ModCandidate> uniqueSelectedMods = new ArrayList<>();
+
+		for (String id : preselected) {
+			ModResolver.preselectMod(modsById.get(id).get(0), sorted, modsById, selectedMods, uniqueSelectedMods);
+		}
+
+		return ModResolver.isTriviallyConsistent(sorted, modsById, mods.getIndex(), selectedMods, uniqueSelectedMods);
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.loader.impl.util.SystemProperties;
+
+final class ModSolverTests {
+	@Test
+	public void portfolioMatchesSingleConfiguration() throws ModResolutionException {
+		TestCandidates mods = createMixedProblem();
+		String prevSplitting = System.getProperty(SystemProperties.DEBUG_DISABLE_RESOLUTION_SPLITTING);
+		System.setProperty(SystemProperties.DEBUG_DISABLE_RESOLUTION_SPLITTING, "true"); // race on the whole problem
+
+		try {
+			List<String> expected = mods.solveWith(SystemProperties.RESOLUTION_PORTFOLIO, "false");
+			assertNotNull(expected);
+
+			for (int i = 0; i < 5; i++) { // the winning configuration varies between runs
+				assertEquals(expected, mods.solveWith(SystemProperties.RESOLUTION_PORTFOLIO, "true"));
+			}
+		} finally {
+			if (prevSplitting != null) {
+				System.setProperty(SystemProperties.DEBUG_DISABLE_RESOLUTION_SPLITTING, prevSplitting);
+			} else {
+				System.clearProperty(SystemProperties.DEBUG_DISABLE_RESOLUTION_SPLITTING);
+			}
+		}
+	}
+
+	@Test
+	public void splittingMatchesMonolithicForSharedForcedGroup() throws ModResolutionException {
+		assertSplittingMatchesMonolithic(ModComponentSplitterTests.sharedForcedGroup());
+	}
+
+	@Test
+	public void splittingMatchesMonolithicForRecommends() throws ModResolutionException {
+		assertSplittingMatchesMonolithic(ModComponentSplitterTests.recommendsDummies());
+	}
+
+	@Test
+	public void splittingMatchesMonolithicForForcedParent() throws ModResolutionException {
+		assertSplittingMatchesMonolithic(ModComponentSplitterTests.nestedWithForcedParent());
+	}
+
+	@Test
+	public void splittingMatchesMonolithicForMixedProblem() throws ModResolutionException {
+		assertSplittingMatchesMonolithic(createMixedProblem());
+	}
+
+	@Test
+	public void splittingMatchesMonolithicForPreselectedMod() throws ModResolutionException {
+		TestCandidates mods = new TestCandidates();
+
+		mods.root("builtin", "1.0.0", "\"breaks\": {\"lib\": \"*\"}, \"depends\": {\"extra\": \">=2\"}");
+		ModCandidate host = mods.root("host", "1.0.0");
+		mods.nested(host, "lib", "1.0.0"); // a single mod component without the preselected mod's constraints
+		mods.nested(host, "extra", "2.0.0");
+
+		List<String> solution = assertSplittingMatchesMonolithic(mods, "builtin");
+		assertFalse(solution.contains("lib@1.0.0"));
+	}
+
+	@Test
+	public void mixedProblemSelection() throws ModResolutionException {
+		assertEquals(Arrays.asList("alpha@1.0.0", "beta@1.0.0", "delta@1.0.0", "epsilon@2.0.0", "gamma@1.0.0", "lib@1.2.0", "zeta@1.0.0"),
+				createMixedProblem().solve());
+	}
+
+	private static List<String> assertSplittingMatchesMonolithic(TestCandidates mods, String... preselected) throws ModResolutionException {
+		List<String> monolithic = mods.solveWith(SystemProperties.DEBUG_DISABLE_RESOLUTION_SPLITTING, "true", preselected);
+		assertNotNull(monolithic);
+		assertEquals(monolithic, mods.solve(preselected));
+
+		return monolithic;
+	}
+
+	/**
+	 * Alternatives for nested libraries, constraints on them from several mods and a soft dependency preferring a
+	 * nested version over another.
+	 */
+	private static TestCandidates createMixedProblem() {
+		TestCandidates ret = new TestCandidates();
+
+		ModCandidate alpha = ret.root("alpha", "1.0.0", "\"depends\": {\"lib\": \">=1.2\"}");
+		ret.nested(alpha, "lib", "1.2.0");
+
+		ModCandidate beta = ret.root("beta", "1.0.0");
+		ret.nested(beta, "lib", "1.5.0");
+		ret.nested(beta, "gamma", "1.0.0", "\"depends\": {\"lib\": \"<1.4\"}");
+		ret.nested(beta, "epsilon", "2.0.0");
+
+		ModCandidate delta = ret.root("delta", "1.0.0", "\"recommends\": {\"epsilon\": \">=2\"}");
+		ret.nested(delta, "epsilon", "1.0.0");
+
+		ret.root("zeta", "1.0.0", "\"breaks\": {\"lib\": \"1.5.0\"}");
+
+		return ret;
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.fabricmc.loader.impl.util.SystemProperties;
+
+final class ProcessedModStoreTests {
+	@TempDir
+	Path root;
+
+	@Test
+	public void reusesManifestEntries() throws IOException {
+		Path dir = root.resolve("processedMods");
+		byte[] data = bytes("nested jar");
+		ModCandidate mod = createMod(data, hash(data));
+		Path path;
+
+		try (ProcessedModStore store = ProcessedModStore.open(dir)) {
+			path = store.extract(mod);
+		}
+
+		assertArrayEquals(data, Files.readAllBytes(path));
+		assertTrue(Files.exists(dir.resolve("manifest.bin")));
+
+		// a recorded file is used as-is, without reading the mod's data again
+		mod.setData(null);
+
+		try (ProcessedModStore store = ProcessedModStore.open(dir)) {
+			assertEquals(path, store.extract(mod));
+		}
+
+		assertArrayEquals(data, Files.readAllBytes(path));
+	}
+
+	@Test
+	public void replacesModifiedFiles() throws IOException {
+		Path dir = root.resolve("processedMods");
+		byte[] data = bytes("nested jar");
+		ModCandidate mod = createMod(data, hash(data));
+		Path path;
+
+		try (ProcessedModStore store = ProcessedModStore.open(dir)) {
+			path = store.extract(mod);
+		}
+
+		// same size, different content and modification time
+		Files.write(path, bytes("corrupt ja"));
+		Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() - 2000));
+
+		try (ProcessedModStore store = ProcessedModStore.open(dir)) {
+			assertEquals(path, store.extract(mod));
+		}
+
+		assertArrayEquals(data, Files.readAllBytes(path));
+	}
+
+	@Test
+	public void rejectsCrcMismatch() throws IOException {
+		Path dir = root.resolve("processedMods");
+		byte[] data = bytes("nested jar");
+		ModCandidate mod = createMod(data, hash(bytes("other data")));
+
+		try (ProcessedModStore store = ProcessedModStore.open(dir)) {
+			assertThrows(IOException.class, () -> store.extract(mod));
+		}
+
+		try (Stream<Path> files = Files.list(dir)) {
+			assertEquals(0, files.filter(p -> !p.getFileName().toString().equals("manifest.bin")).count());
+		}
+	}
+
+	@Test
+	public void removesUnusedFiles() throws IOException {
+		Path dir = Files.createDirectories(root.resolve("processedMods"));
+		long oldTime = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8);
+
+		Path unused = dir.resolve("unused.jar");
+		Files.write(unused, bytes("unused"));
+		writeManifest(dir, "unused.jar", hash(bytes("unused")), 6, Files.getLastModifiedTime(unused).toMillis(), oldTime);
+
+		Path untrackedOld = dir.resolve("untracked-old.jar");
+		Files.write(untrackedOld, bytes("old"));
+		Files.setLastModifiedTime(untrackedOld, FileTime.fromMillis(oldTime));
+
+		Path untrackedNew = dir.resolve("untracked-new.jar");
+		Files.write(untrackedNew, bytes("new"));
+
+		ProcessedModStore.open(dir).close();
+
+		assertFalse(Files.exists(unused));
+		assertFalse(Files.exists(untrackedOld));
+		assertTrue(Files.exists(untrackedNew));
+	}
+
+	@Test
+	public void linksFromSharedDir() throws IOException {
+		Path sharedDir = root.resolve("shared");
+		byte[] data = bytes("nested jar");
+		ModCandidate mod = createMod(data, hash(data));
+		String prev = System.getProperty(SystemProperties.SHARED_PROCESSED_MODS_DIR);
+		System.setProperty(SystemProperties.SHARED_PROCESSED_MODS_DIR, sharedDir.toString());
+
+		try {
+			Path first;
+			Path second;
+
+			try (ProcessedModStore store = ProcessedModStore.open(root.resolve("first"))) {
+				first = store.extract(mod);
+			}
+
+			mod.setData(null); // the second instance has to be served from the shared dir
+
+			try (ProcessedModStore store = ProcessedModStore.open(root.resolve("second"))) {
+				second = store.extract(mod);
+			}
+
+			assertArrayEquals(data, Files.readAllBytes(first));
+			assertArrayEquals(data, Files.readAllBytes(second));
+
+			try (Stream<Path> files = Files.list(sharedDir)) {
+				assertEquals(1, files.count());
+			}
+		} finally {
+			if (prev != null) {
+				System.setProperty(SystemProperties.SHARED_PROCESSED_MODS_DIR, prev);
+			} else {
+				System.clearProperty(SystemProperties.SHARED_PROCESSED_MODS_DIR);
+			}
+		}
+	}
+
+	private static ModCandidate createMod(byte[] data, long hash) {
+		ModCandidate ret = ModCandidate.createNested("META-INF/jars/nested.jar", hash, TestCandidates.parse("nested", "1.0.0", null), false, new ArrayList<>(), null);
+		ret.setData(ByteBuffer.wrap(data));
+
+		return ret;
+	}
+
+	private static void writeManifest(Path dir, String name, long hash, long size, long lastModified, long lastUsed) throws IOException {
+		try (DataOutputStream os = new DataOutputStream(Files.newOutputStream(dir.resolve("manifest.bin")))) {
+			os.writeInt(0x46504d31);
+			os.writeInt(1);
+			os.writeUTF(name);
+			os.writeLong(hash);
+			os.writeLong(size);
+			os.writeLong(lastModified);
+			os.writeLong(lastUsed);
+		}
+	}
+
+	private static long hash(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		return crc.getValue() << 32 | data.length;
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.fabricmc.loader.impl.lib.gson.JsonReader;
+import net.fabricmc.loader.impl.util.WorkerPool;
+
+final class ResolutionReportTests {
+	@TempDir
+	Path root;
+
+	@Test
+	public void writesReport() throws IOException {
+		ResolutionReport report = new ResolutionReport();
+		report.candidateCount = 12;
+		report.idCount = 9;
+		report.preselectedCount = 1;
+		report.componentCount = 4;
+		report.trivialComponentCount = 3;
+		report.addPhaseTime("preparation", 1_500_000);
+		report.addPhaseTime("solve", 2_000_000);
+		report.addPhaseTime("preparation", 500_000);
+
+		Map<String, Number> stats = new HashMap<>();
+		stats.put("conflicts", 7L);
+		stats.put("decisions", 42);
+		stats.put("speed", 1.5);
+		stats.put("undefined", Double.NaN);
+		stats.put("missing", null);
+		report.addSolverRun(new ResolutionReport.SolverRunStats("main", "default", 30, 45, 1_234_567, 250_000, true, stats));
+		report.addSolverRun(new ResolutionReport.SolverRunStats("reduction", "default", 10, 12, 0, 0, false, null));
+		report.finish(5_000_000, true);
+
+		Path cacheDir = root.resolve("cache");
+		report.write(cacheDir); // creates the dir
+		Map<String, Object> json = read(cacheDir.resolve(ResolutionReport.FILE_NAME));
+
+		assertEquals(true, json.get("success"));
+		assertEquals(5.0, json.get("totalMs"));
+		assertEquals(12.0, json.get("candidates"));
+		assertEquals(9.0, json.get("ids"));
+		assertEquals(1.0, json.get("preselected"));
+		assertEquals(false, json.get("fastPath"));
+		assertEquals(false, json.get("reused"));
+		assertEquals(4.0, json.get("components"));
+		assertEquals(3.0, json.get("trivialComponents"));
+
+		Map<String, Object> phases = getObject(json, "phases");
+		assertEquals(Arrays.asList("preparation", "solve"), new ArrayList<>(phases.keySet()));
+		assertEquals(2.0, phases.get("preparation"));
+
+		List<?> runs = (List<?>) json.get("solverRuns");
+		assertEquals(2, runs.size());
+
+		@SuppressWarnings("unchecked")
+		Map<String, Object> main = (Map<String, Object>) runs.get(0);
+		assertEquals("main", main.get("phase"));
+		assertEquals(30.0, main.get("variables"));
+		assertEquals(1.235, main.get("setupMs"));
+		assertEquals(true, main.get("satisfiable"));
+
+		Map<String, Object> mainStats = getObject(main, "stats");
+		assertEquals(Arrays.asList("conflicts", "decisions", "speed"), new ArrayList<>(mainStats.keySet())); // sorted, NaN and null skipped
+		assertEquals(42.0, mainStats.get("decisions"));
+		assertEquals(1.5, mainStats.get("speed"));
+
+		@SuppressWarnings("unchecked")
+		Map<String, Object> reduction = (Map<String, Object>) runs.get(1);
+		assertEquals(false, reduction.get("satisfiable"));
+		assertFalse(reduction.containsKey("stats"));
+	}
+
+	@Test
+	public void collectsConcurrentSolverRuns() throws IOException {
+		ResolutionReport report = new ResolutionReport();
+
+		WorkerPool.forEachIndex(200, 1, i -> {
+			report.addSolverRun(new ResolutionReport.SolverRunStats("component", "default", i, i, 0, 0, true, null));
+			report.addPhaseTime("solve", 1000);
+		});
+
+		report.finish(0, true);
+		report.write(root);
+		Map<String, Object> json = read(root.resolve(ResolutionReport.FILE_NAME));
+
+		assertEquals(200, ((List<?>) json.get("solverRuns")).size());
+		assertEquals(0.2, getObject(json, "phases").get("solve"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> getObject(Map<String, Object> json, String key) {
+		return (Map<String, Object>) json.get(key);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> read(Path file) throws IOException {
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return (Map<String, Object>) readValue(new JsonReader(reader));
+		}
+	}
+
+	private static Object readValue(JsonReader reader) throws IOException {
+		switch (reader.peek()) {
+		case BEGIN_OBJECT: {
+			Map<String, Object> ret = new LinkedHashMap<>();
+			reader.beginObject();
+
+			while (reader.hasNext()) {
+				ret.put(reader.nextName(), readValue(reader));
+			}
+
+			reader.endObject();
+
+			return ret;
+		}
+		case BEGIN_ARRAY: {
+			List<Object> ret = new ArrayList<>();
+			reader.beginArray();
+
+			while (reader.hasNext()) {
+				ret.add(readValue(reader));
+			}
+
+			reader.endArray();
+
+			return ret;
+		}
+		case BOOLEAN:
+			return reader.nextBoolean();
+		case NUMBER:
+			return reader.nextDouble();
+		case STRING:
+			return reader.nextString();
+		default:
+			throw new IOException("unexpected token at " + reader.getPath());
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.fabricmc.api.EnvType;
+
+final class ResolutionSnapshotTests {
+	@TempDir
+	Path root;
+
+	@Test
+	public void digestIsStableForEqualProblems() {
+		assertArrayEquals(digest(createProblem(mods -> { })), digest(createProblem(mods -> { })));
+	}
+
+	@Test
+	public void digestCoversProblemChanges() {
+		byte[] base = digest(createProblem(mods -> mods.root("omega", "1.0.0")));
+
+		assertDigestDiffers(base, mods -> mods.root("omega", "1.0.1"));
+		assertDigestDiffers(base, mods -> mods.root("omega", "1.0.0", "\"depends\": {\"lib\": \">=1.1\"}"));
+		assertDigestDiffers(base, mods -> mods.root("omega", "1.0.0", "\"breaks\": {\"lib\": \">=1.1\"}"));
+		assertDigestDiffers(base, mods -> mods.root("omega", "1.0.0", "\"provides\": [\"libx\"]"));
+		assertDigestDiffers(base, mods -> mods.nested(mods.getCandidates().get(0), "omega", "1.0.0"));
+		assertDigestDiffers(base, mods -> {
+			mods.root("omega", "1.0.0");
+			mods.root("extra", "1.0.0");
+		});
+
+		List<ModCandidate> sorted = createProblem(mods -> mods.root("omega", "1.0.0")).sort(new LinkedHashMap<>());
+		assertFalse(Arrays.equals(base, ResolutionSnapshot.computeProblemDigest(sorted, Collections.emptyMap(), EnvType.SERVER)));
+	}
+
+	@Test
+	public void appliesCapturedSelection() throws ModResolutionException {
+		TestCandidates mods = createProblem(ignore -> { });
+		List<ModCandidate> sorted = mods.sort(new LinkedHashMap<>());
+		Map<String, ModCandidate> selectedMods = new HashMap<>();
+		List<ModCandidate> uniqueSelectedMods = new ArrayList<>();
+
+		for (ModCandidate mod : sorted) { // select the first candidate of every id, like the solver would with these mods
+			if (!selectedMods.containsKey(mod.getId())) ModResolver.selectMod(mod, selectedMods, uniqueSelectedMods);
+		}
+
+		byte[] digest = ResolutionSnapshot.computeProblemDigest(sorted, Collections.emptyMap(), EnvType.CLIENT);
+		ResolutionSnapshot snapshot = ResolutionSnapshot.capture(digest, sorted, selectedMods);
+		assertEquals(uniqueSelectedMods.size(), snapshot.getSelectedCount());
+
+		// apply to an identical problem built from scratch
+		TestCandidates other = createProblem(ignore -> { });
+		List<ModCandidate> otherSorted = other.sort(new LinkedHashMap<>());
+		assertTrue(snapshot.matches(ResolutionSnapshot.computeProblemDigest(otherSorted, Collections.emptyMap(), EnvType.CLIENT)));
+
+		Map<String, ModCandidate> otherSelectedMods = new HashMap<>();
+		List<ModCandidate> otherUniqueSelectedMods = new ArrayList<>();
+		snapshot.apply(otherSorted, otherSelectedMods, otherUniqueSelectedMods);
+
+		assertEquals(describe(uniqueSelectedMods), describe(otherUniqueSelectedMods));
+		assertEquals(selectedMods.keySet(), otherSelectedMods.keySet());
+	}
+
+	@Test
+	public void persistsAcrossLaunches() throws IOException {
+		TestCandidates mods = createProblem(ignore -> { });
+		List<ModCandidate> sorted = mods.sort(new LinkedHashMap<>());
+		Map<String, ModCandidate> selectedMods = new HashMap<>();
+
+		for (ModCandidate mod : sorted) {
+			selectedMods.putIfAbsent(mod.getId(), mod);
+		}
+
+		byte[] digest = ResolutionSnapshot.computeProblemDigest(sorted, Collections.emptyMap(), EnvType.CLIENT);
+		ResolutionSnapshot snapshot = ResolutionSnapshot.capture(digest, sorted, selectedMods);
+
+		Path cacheDir = root.resolve("cache");
+		assertNull(ResolutionSnapshot.load(cacheDir));
+		snapshot.save(cacheDir);
+
+		ResolutionSnapshot loaded = ResolutionSnapshot.load(cacheDir);
+		assertNotNull(loaded);
+		assertTrue(loaded.matches(digest));
+		assertEquals(snapshot.getSelectedCount(), loaded.getSelectedCount());
+
+		Path file;
+
+		try (Stream<Path> files = Files.list(cacheDir)) {
+			file = files.filter(p -> !p.getFileName().toString().endsWith(".tmp")).findFirst().get();
+		}
+
+		byte[] data = Files.readAllBytes(file);
+
+		// truncated or corrupted files are ignored
+		Files.write(file, Arrays.copyOf(data, data.length - 2));
+		assertNull(ResolutionSnapshot.load(cacheDir));
+
+		Files.write(file, new byte[data.length]);
+		assertNull(ResolutionSnapshot.load(cacheDir));
+	}
+
+	/**
+	 * A problem with alternatives for one id, soft and hard dependencies and mods provided under another id.
+	 */
+	private static TestCandidates createProblem(Consumer<TestCandidates> extra) {
+		TestCandidates ret = new TestCandidates();
+
+		ModCandidate alpha = ret.root("alpha", "1.0.0", "\"depends\": {\"lib\": \">=1.0 <2\"}, \"recommends\": {\"gamma\": \"*\"}");
+		ret.nested(alpha, "lib", "1.0.0");
+		ModCandidate beta = ret.root("beta", "2.1.0", "\"provides\": [\"betax\"]");
+		ret.nested(beta, "lib", "1.2.0", "\"breaks\": {\"alpha\": \"<1\"}");
+		ret.nested(beta, "gamma", "0.5.0");
+		extra.accept(ret);
+
+		return ret;
+	}
+
+	private static void assertDigestDiffers(byte[] base, Consumer<TestCandidates> extra) {
+		assertFalse(Arrays.equals(base, digest(createProblem(extra))));
+	}
+
+	private static byte[] digest(TestCandidates mods) {
+		return ResolutionSnapshot.computeProblemDigest(mods.sort(new LinkedHashMap<>()), Collections.emptyMap(), EnvType.CLIENT);
+	}
+
+	private static List<String> describe(List<ModCandidate> mods) {
+		return mods.stream().map(mod -> mod.getId() + "@" + mod.getVersion().getFriendlyString()).collect(Collectors.toList());
+	}
+}
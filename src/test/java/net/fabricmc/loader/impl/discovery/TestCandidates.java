@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import net.fabricmc.loader.impl.metadata.DependencyOverrides;
+import net.fabricmc.loader.impl.metadata.LoaderModMetadata;
+import net.fabricmc.loader.impl.metadata.ModMetadataParser;
+import net.fabricmc.loader.impl.metadata.ParseMetadataException;
+import net.fabricmc.loader.impl.metadata.VersionOverrides;
+
+/**
+ * Builds mod candidates from inline fabric.mod.json fragments for resolution tests.
+ */
+final class TestCandidates {
+	private final List<ModCandidate> candidates = new ArrayList<>();
+	private final ModCandidateIndex index = new ModCandidateIndex();
+
+	/**
+	 * Add a mod found directly in the mods directory.
+	 *
+	 * @param extra additional fabric.mod.json members, e.g. {@code "depends": {"b": ">=1"}}
+	 */
+	ModCandidate root(String id, String version, String extra) {
+		ModCandidate ret = ModCandidate.createPlain(Collections.singletonList(Paths.get("mods", id + "-" + version + ".jar")),
+				parse(id, version, extra), false, new ArrayList<>());
+
+		return add(ret);
+	}
+
+	ModCandidate root(String id, String version) {
+		return root(id, version, null);
+	}
+
+	/**
+	 * Add a mod nested in {@code parent}.
+	 */
+	ModCandidate nested(ModCandidate parent, String id, String version, String extra) {
+		String localPath = "META-INF/jars/" + id + "-" + version + ".jar";
+		ModCandidate ret = ModCandidate.createNested(localPath, localPath.hashCode() & 0xffffffffL, parse(id, version, extra), false, new ArrayList<>(), null);
+		parent.getNestedMods().add(ret);
+		ret.addParent(parent);
+
+		return add(ret);
+	}
+
+	ModCandidate nested(ModCandidate parent, String id, String version) {
+		return nested(parent, id, version, null);
+	}
+
+	private ModCandidate add(ModCandidate mod) {
+		candidates.add(mod);
+		index.add(mod);
+
+		return mod;
+	}
+
+	List<ModCandidate> getCandidates() {
+		return candidates;
+	}
+
+	ModCandidateIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Sort the candidates like {@link ModResolver} does before solving.
+	 *
+	 * @param modsById receives the candidates grouped by id
+	 */
+	List<ModCandidate> sort(Map<String, List<ModCandidate>> modsById) {
+		List<ModCandidate> ret = new ArrayList<>(candidates);
+		ModPrioSorter.sort(ret, modsById);
+
+		return ret;
+	}
+
+	/**
+	 * Run the solver on all candidates.
+	 *
+	 * @param preselected ids of the mods to preselect, like builtin mods
+	 * @return the selected mods as sorted {@code id@version} strings, or null if the resolution failed
+	 */
+	List<String> solve(String... preselected) throws ModResolutionException {
+		Map<String, List<ModCandidate>> modsById = new LinkedHashMap<>();
+		List<ModCandidate> sorted = sort(modsById);
+		Map<String, ModCandidate> selectedMods = new HashMap<>();
+		List<ModCandidate> uniqueSelectedMods = new ArrayList<>();
+
+		for (String id : preselected) {
+			ModResolver.preselectMod(modsById.get(id).get(0), sorted, modsById, selectedMods, uniqueSelectedMods);
+		}
+
+		ModSolver.Result result = ModSolver.solve(sorted, modsById, index, selectedMods, uniqueSelectedMods, new ResolutionReport());
+		if (!result.success) return null;
+
+		return uniqueSelectedMods.stream()
+				.map(mod -> mod.getId() + "@" + mod.getVersion().getFriendlyString())
+				.sorted()
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Run {@link #solve} with a system property temporarily set.
+	 */
+	List<String> solveWith(String property, String value, String... preselected) throws ModResolutionException {
+		String prev = System.getProperty(property);
+		System.setProperty(property, value);
+
+		try {
+			return solve(preselected);
+		} finally {
+			if (prev != null) {
+				System.setProperty(property, prev);
+			} else {
+				System.clearProperty(property);
+			}
+		}
+	}
+
+	/**
+	 * Parse the metadata of a mod from an inline fabric.mod.json fragment, see {@link #root}.
+	 */
+	static LoaderModMetadata parse(String id, String version, String extra) {
+		String json = String.format("{\"schemaVersion\": 1, \"id\": \"%s\", \"version\": \"%s\"%s}",
+				id, version, extra != null ? ", " + extra : "");
+
+		try {
+			return ModMetadataParser.parseMetadata(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), id, Collections.emptyList(),
+					new VersionOverrides(), new DependencyOverrides(Paths.get("nonexistent")), false);
+		} catch (ParseMetadataException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.launch.knot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class CodeSourceIndexTests {
+	private static final String A = "net/fabricmc/test/A.class";
+	private static final String B = "net/fabricmc/test/B.class";
+
+	@TempDir
+	Path root;
+
+	@Test
+	public void firstCodeSourceWins() throws IOException {
+		Path first = writeJar("first.jar", A, "a1");
+		Path second = writeJar("second.jar", A, "a2", B, "b2");
+		CodeSourceIndex index = new CodeSourceIndex();
+		index.add(first);
+		index.add(second);
+
+		assertEquals(first, index.getCodeSource(A));
+		assertArrayEquals(bytes("a1"), index.readClass(A));
+		assertEquals(second, index.getCodeSource(B));
+		assertArrayEquals(bytes("b2"), index.readClass(B));
+		assertTrue(index.isMissAuthoritative("net/fabricmc/test/Missing.class"));
+	}
+
+	@Test
+	public void unindexedCodeSourceShadowsLaterOnes() throws IOException {
+		Path dir = Files.createDirectory(root.resolve("classes"));
+		CodeSourceIndex index = new CodeSourceIndex();
+		index.add(writeJar("first.jar", A, "a1"));
+		index.add(dir);
+		index.add(writeJar("second.jar", B, "b2"));
+
+		assertArrayEquals(bytes("a1"), index.readClass(A));
+		assertNull(index.readClass(B));
+		assertFalse(index.isMissAuthoritative("net/fabricmc/test/Missing.class"));
+	}
+
+	@Test
+	public void refreshPicksUpReplacedJars() throws IOException {
+		Path first = writeJar("first.jar", A, "a1", B, "b1");
+		Path second = writeJar("second.jar", B, "b2");
+		CodeSourceIndex index = new CodeSourceIndex();
+		index.add(first);
+		index.add(second);
+		assertArrayEquals(bytes("b1"), index.readClass(B));
+
+		assertFalse(index.refresh());
+
+		// replace in place with B removed, shrinking the file the old mapping covered
+		writeJar("first.jar", A, "a1 changed");
+		Files.setLastModifiedTime(first, FileTime.fromMillis(Files.getLastModifiedTime(first).toMillis() + 2000));
+		assertTrue(index.refresh());
+
+		assertArrayEquals(bytes("a1 changed"), index.readClass(A));
+		assertEquals(second, index.getCodeSource(B));
+		assertArrayEquals(bytes("b2"), index.readClass(B));
+		assertFalse(index.refresh());
+	}
+
+	@Test
+	public void readReindexesJarOverwrittenInPlace() throws IOException {
+		char[] padding = new char[64 * 1024];
+
+		for (int i = 0; i < padding.length; i++) {
+			padding[i] = (char) ('a' + (i * 7919) % 26); // poorly compressible
+		}
+
+		// A comes after the padding, the overwritten file ends before A's old position
+		Path jar = writeJar("mod.jar", B, new String(padding), A, "a1");
+		CodeSourceIndex index = new CodeSourceIndex();
+		index.add(jar);
+
+		try {
+			writeJar("mod.jar", A, "a2");
+		} catch (IOException e) {
+			return; // mapped files can't be overwritten on Windows
+		}
+
+		// no refresh: the read faults on the old mapping and has to re-index by itself
+		assertArrayEquals(bytes("a2"), index.readClass(A));
+		assertNull(index.getCodeSource(B));
+		assertFalse(index.refresh());
+	}
+
+	@Test
+	public void refreshHandlesRemovedJars() throws IOException {
+		Path first = writeJar("first.jar", A, "a1");
+		CodeSourceIndex index = new CodeSourceIndex();
+		index.add(first);
+		index.add(writeJar("second.jar", B, "b2"));
+
+		Files.delete(first);
+		assertTrue(index.refresh());
+
+		assertNull(index.readClass(A));
+		assertNull(index.readClass(B), "unreadable code source must not be skipped");
+		assertFalse(index.isMissAuthoritative(A));
+	}
+
+	private Path writeJar(String name, String... entries) throws IOException {
+		Path ret = root.resolve(name);
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(ret))) {
+			for (int i = 0; i < entries.length; i += 2) {
+				zos.putNextEntry(new ZipEntry(entries[i]));
+				zos.write(bytes(entries[i + 1]));
+				zos.closeEntry();
+			}
+		}
+
+		return ret;
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+}
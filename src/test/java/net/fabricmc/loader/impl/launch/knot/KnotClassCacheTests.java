@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.launch.knot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class KnotClassCacheTests {
+	private static final String TARGET = "net/fabricmc/test/Target";
+	private static final String OTHER = "net/fabricmc/test/Other";
+	private static final Predicate<String> NO_TARGETS = name -> false;
+
+	@TempDir
+	Path root;
+
+	@Test
+	public void cachesClassesWithoutMixins() {
+		KnotClassCache cache = KnotClassCache.open(root, "a");
+		CountingTransformer fabric = new CountingTransformer();
+		UnaryOperator<byte[]> mixin = UnaryOperator.identity();
+		byte[] input = bytes("other");
+
+		byte[] first = cache.transform(OTHER, input, fabric, mixin, NO_TARGETS);
+		assertEquals(1, fabric.calls);
+
+		byte[] second = KnotClassCache.open(root, "a").transform(OTHER, input, fabric, mixin, NO_TARGETS);
+		assertEquals(1, fabric.calls, "cache hit didn't skip the transformers");
+		assertArrayEquals(first, second);
+	}
+
+	@Test
+	public void missesForChangedInput() {
+		KnotClassCache cache = KnotClassCache.open(root, "a");
+		CountingTransformer fabric = new CountingTransformer();
+
+		cache.transform(OTHER, bytes("v1"), fabric, UnaryOperator.identity(), NO_TARGETS);
+		byte[] ret = cache.transform(OTHER, bytes("v2"), fabric, UnaryOperator.identity(), NO_TARGETS);
+
+		assertEquals(2, fabric.calls);
+		assertArrayEquals(bytes("v2+fabric"), ret);
+	}
+
+	@Test
+	public void mixinTargetsAlwaysPassThroughMixin() {
+		// mimics @ModifyArgs: transforming the target registers a synthetic class, which mixin serves later
+		List<String> generated = new ArrayList<>();
+		UnaryOperator<byte[]> mixin = in -> {
+			if (!new String(in, StandardCharsets.UTF_8).startsWith("target")) return in;
+
+			generated.add(TARGET + "$Args$1");
+			return bytes("target+mixin");
+		};
+
+		byte[] input = bytes("target");
+		byte[] first = KnotClassCache.open(root, "a").transform(TARGET, input, new CountingTransformer(), mixin, NO_TARGETS);
+		assertEquals(1, generated.size());
+
+		// next launch: the target has to reach mixin again so the synthetic class gets registered
+		byte[] second = KnotClassCache.open(root, "a").transform(TARGET, input, new CountingTransformer(), mixin, NO_TARGETS);
+		assertEquals(2, generated.size());
+		assertArrayEquals(first, second);
+	}
+
+	@Test
+	public void enabledMixinBypassesCache() {
+		// first launch: the mixin is disabled, e.g. by its config plugin, so the class gets cached
+		byte[] input = bytes("target");
+		byte[] first = KnotClassCache.open(root, "a").transform(TARGET, input, new CountingTransformer(), UnaryOperator.identity(), NO_TARGETS);
+		assertArrayEquals(bytes("target+fabric"), first);
+
+		// next launch with an unchanged fingerprint: the plugin enables the mixin, the cached entry must not be used
+		Predicate<String> targets = TARGET::equals;
+		UnaryOperator<byte[]> mixin = in -> bytes(new String(in, StandardCharsets.UTF_8) + "+mixin");
+		byte[] second = KnotClassCache.open(root, "a").transform(TARGET, input, new CountingTransformer(), mixin, targets);
+		assertArrayEquals(bytes("target+fabric+mixin"), second);
+
+		// other classes are still served from the cache
+		CountingTransformer fabric = new CountingTransformer();
+		KnotClassCache.open(root, "a").transform(OTHER, input, fabric, UnaryOperator.identity(), NO_TARGETS);
+		KnotClassCache.open(root, "a").transform(OTHER, input, fabric, UnaryOperator.identity(), targets);
+		assertEquals(1, fabric.calls);
+	}
+
+	@Test
+	public void fingerprintChangeInvalidates() {
+		CountingTransformer fabric = new CountingTransformer();
+		byte[] input = bytes("other");
+
+		KnotClassCache.open(root, "a").transform(OTHER, input, fabric, UnaryOperator.identity(), NO_TARGETS);
+		KnotClassCache.open(root, "b").transform(OTHER, input, fabric, UnaryOperator.identity(), NO_TARGETS);
+		assertEquals(2, fabric.calls);
+		assertFalse(Files.exists(root.resolve("a")), "stale cache wasn't removed");
+
+		KnotClassCache.open(root, "a").transform(OTHER, input, fabric, UnaryOperator.identity(), NO_TARGETS);
+		assertEquals(3, fabric.calls);
+	}
+
+	@Test
+	public void fingerprintCoversCodeSourceChanges() throws IOException {
+		Path jar = root.resolve("mod.jar");
+		Files.write(jar, bytes("mod"));
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(1000000));
+
+		String before = codeSourceFingerprint(jar);
+		assertEquals(before, codeSourceFingerprint(jar));
+
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(2000000));
+		assertNotEquals(before, codeSourceFingerprint(jar));
+
+		assertFalse(KnotClassCache.appendCodeSource(new StringBuilder(), root), "directories can't be fingerprinted");
+	}
+
+	@Test
+	public void fingerprintCoversTransformerProperties() {
+		Properties props = new Properties();
+		props.setProperty("user.name", "a");
+		String base = propertyFingerprint(props);
+
+		props.setProperty("user.name", "b");
+		assertEquals(base, propertyFingerprint(props), "unrelated property affected the fingerprint");
+
+		props.setProperty("mixin.debug.export", "true");
+		String withMixin = propertyFingerprint(props);
+		assertNotEquals(base, withMixin);
+
+		props.setProperty("fabric.debug.disableModShuffle", "true");
+		assertNotEquals(withMixin, propertyFingerprint(props));
+	}
+
+	@Test
+	public void storesEntries() {
+		KnotClassCache cache = KnotClassCache.open(root, "a");
+		String key = cache.getKey(OTHER, bytes("other"));
+		assertNull(cache.get(key));
+
+		cache.put(key, bytes("data"));
+		assertArrayEquals(bytes("data"), cache.get(key));
+		assertNotNull(KnotClassCache.open(root, "a").get(key));
+	}
+
+	private static String codeSourceFingerprint(Path path) {
+		StringBuilder sb = new StringBuilder();
+		assertTrue(KnotClassCache.appendCodeSource(sb, path));
+
+		return KnotClassCache.hashFingerprint(sb);
+	}
+
+	private static String propertyFingerprint(Properties props) {
+		StringBuilder sb = new StringBuilder();
+		KnotClassCache.appendTransformerProperties(sb, props);
+
+		return KnotClassCache.hashFingerprint(sb);
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static final class CountingTransformer implements UnaryOperator<byte[]> {
+		int calls;
+
+		@Override
+		public byte[] apply(byte[] input) {
+			calls++;
+
+			return bytes(new String(input, StandardCharsets.UTF_8) + "+fabric");
+		}
+	}
+}
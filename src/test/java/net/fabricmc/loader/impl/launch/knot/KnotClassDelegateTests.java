@@ -0,0 +1,253 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.launch.knot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.api.instrument.ClassRedefineDelegate;
+import net.fabricmc.loader.impl.game.GameProvider;
+import net.fabricmc.loader.impl.util.LoaderUtil;
+
+final class KnotClassDelegateTests {
+	// classes exempt from transformation have their state tracked without Mixin being initialized
+	private static final String ALPHA = "org.apache.logging.log4j.knottest.Alpha";
+	private static final String BETA = "org.apache.logging.log4j.knottest.Beta";
+
+	@TempDir
+	Path root;
+
+	@Test
+	public void unchangedClassesAreNotRedefined() throws Exception {
+		Path dir = Files.createDirectory(root.resolve("classes"));
+		writeClass(dir, ALPHA, "a1");
+		writeClass(dir, BETA, "b1");
+
+		TestClassLoader cl = new TestClassLoader(dir);
+		cl.load(ALPHA, BETA);
+
+		cl.delegate.reloadAllDelegatedClass(false);
+		cl.delegate.reloadAllDelegatedClass(false);
+
+		assertEquals(Collections.emptyList(), cl.redefined);
+	}
+
+	@Test
+	public void changedClassIsRedefined() throws Exception {
+		Path dir = Files.createDirectory(root.resolve("classes"));
+		writeClass(dir, ALPHA, "a1");
+		writeClass(dir, BETA, "b1");
+
+		TestClassLoader cl = new TestClassLoader(dir);
+		cl.load(ALPHA, BETA);
+
+		writeClass(dir, BETA, "b2");
+		cl.delegate.reloadAllDelegatedClass(false);
+		assertEquals(Collections.singletonList(BETA), cl.redefined);
+
+		// the recorded state follows the redefinition
+		cl.redefined.clear();
+		cl.delegate.reloadAllDelegatedClass(false);
+		assertEquals(Collections.emptyList(), cl.redefined);
+
+		writeClass(dir, BETA, "b1");
+		cl.delegate.reloadAllDelegatedClass(false);
+		assertEquals(Collections.singletonList(BETA), cl.redefined);
+	}
+
+	@Test
+	public void changedJarRedefinesOnlyItsChangedClasses() throws Exception {
+		Path alphaJar = writeJar("alpha.jar", ALPHA, "a1");
+		Path betaJar = writeJar("beta.jar", BETA, "b1");
+
+		TestClassLoader cl = new TestClassLoader(alphaJar, betaJar);
+		cl.load(ALPHA, BETA);
+		cl.delegate.reloadAllDelegatedClass(false); // establishes the transformation fingerprint and code source stamps
+		assertEquals(Collections.emptyList(), cl.redefined);
+
+		writeJar("beta.jar", BETA, "b2");
+		touch(betaJar);
+		touch(alphaJar); // new modification time, same content
+		cl.delegate.reloadAllDelegatedClass(false);
+
+		assertEquals(Collections.singletonList(BETA), cl.redefined);
+	}
+
+	@Test
+	public void removedClassIsDropped() throws Exception {
+		Path dir = Files.createDirectory(root.resolve("classes"));
+		writeClass(dir, ALPHA, "a1");
+		writeClass(dir, BETA, "b1");
+
+		TestClassLoader cl = new TestClassLoader(dir);
+		cl.load(ALPHA, BETA);
+
+		Files.delete(dir.resolve(LoaderUtil.getClassFileName(ALPHA)));
+		cl.delegate.reloadAllDelegatedClass(false);
+
+		assertEquals(Collections.emptyList(), cl.redefined);
+		assertThrows(ClassNotFoundException.class, () -> cl.delegate.reloadClass(ALPHA, false));
+	}
+
+	private static final class TestClassLoader extends URLClassLoader implements KnotClassDelegate.ClassLoaderAccess {
+		final KnotClassDelegate<TestClassLoader> delegate;
+		final List<String> redefined = new ArrayList<>();
+
+		TestClassLoader(Path... codeSources) {
+			super(new URL[0], KnotClassDelegateTests.class.getClassLoader());
+
+			delegate = new KnotClassDelegate<>(false, EnvType.CLIENT, this, getParent(), createGameProvider());
+			delegate.setTrackClassStates(true);
+
+			for (Path codeSource : codeSources) {
+				delegate.addCodeSource(codeSource);
+			}
+		}
+
+		void load(String... names) throws ClassNotFoundException {
+			for (String name : names) {
+				assertEquals(this, Class.forName(name, false, this).getClassLoader());
+			}
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			return delegate.loadClass(name, resolve);
+		}
+
+		@Override
+		public void addUrlFwd(URL url) {
+			super.addURL(url);
+		}
+
+		@Override
+		public URL findResourceFwd(String name) {
+			return findResource(name);
+		}
+
+		@Override
+		public Package getPackageFwd(String name) {
+			return super.getPackage(name);
+		}
+
+		@Override
+		public Package definePackageFwd(String name, String specTitle, String specVersion, String specVendor,
+				String implTitle, String implVersion, String implVendor, URL sealBase) throws IllegalArgumentException {
+			return super.definePackage(name, specTitle, specVersion, specVendor, implTitle, implVersion, implVendor, sealBase);
+		}
+
+		@Override
+		public Object getClassLoadingLockFwd(String name) {
+			return super.getClassLoadingLock(name);
+		}
+
+		@Override
+		public Class<?> findLoadedClassFwd(String name) {
+			return super.findLoadedClass(name);
+		}
+
+		@Override
+		public Class<?> defineClassFwd(String name, byte[] b, int off, int len, CodeSource cs) {
+			return super.defineClass(name, b, off, len, cs);
+		}
+
+		@Override
+		public void redefineClassFwd(String name, byte[] b, int off, int len, CodeSource cs) {
+			redefined.add(name);
+		}
+
+		@Override
+		public void redefineClassesFwd(Collection<ClassRedefineDelegate.Definition> definitions) {
+			for (ClassRedefineDelegate.Definition definition : definitions) {
+				redefined.add(definition.getName());
+			}
+		}
+
+		@Override
+		public void resolveClassFwd(Class<?> cls) {
+			super.resolveClass(cls);
+		}
+	}
+
+	private static GameProvider createGameProvider() {
+		return (GameProvider) Proxy.newProxyInstance(KnotClassDelegateTests.class.getClassLoader(), new Class<?>[] { GameProvider.class }, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "getGameId":
+				return "test";
+			case "getRawGameVersion":
+				return "1.0.0";
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	private static void writeClass(Path dir, String name, String id) throws IOException {
+		Path file = dir.resolve(LoaderUtil.getClassFileName(name));
+		Files.createDirectories(file.getParent());
+		Files.write(file, createClass(name, id));
+	}
+
+	private Path writeJar(String fileName, String name, String id) throws IOException {
+		Path ret = root.resolve(fileName);
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(ret))) {
+			zos.putNextEntry(new ZipEntry(LoaderUtil.getClassFileName(name)));
+			zos.write(createClass(name, id));
+			zos.closeEntry();
+		}
+
+		return ret;
+	}
+
+	private static void touch(Path file) throws IOException {
+		Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+	}
+
+	/**
+	 * Create a class whose bytes differ by id.
+	 */
+	private static byte[] createClass(String name, String id) {
+		ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name.replace('.', '/'), null, "java/lang/Object", null);
+		writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "ID", "Ljava/lang/String;", null, id).visitEnd();
+		writer.visitEnd();
+
+		return writer.toByteArray();
+	}
+}
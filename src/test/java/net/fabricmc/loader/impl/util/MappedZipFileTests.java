@@ -0,0 +1,270 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class MappedZipFileTests {
+	private static final byte[] STORED_DATA = "stored entry".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] DEFLATED_DATA = repeat("deflated entry ", 1000);
+
+	@TempDir
+	Path root;
+
+	@Test
+	public void readsCentralDirectory() throws IOException {
+		try (MappedZipFile zip = MappedZipFile.open(writeTestZip())) {
+			List<String> names = new ArrayList<>();
+
+			for (MappedZipFile.Entry entry : zip.getEntries()) {
+				names.add(entry.getName());
+			}
+
+			assertEquals(Arrays.asList("dir/", "dir/stored.txt", "deflated.txt"), names);
+			assertTrue(zip.getEntry("dir/").isDirectory());
+			assertNull(zip.getEntry("missing.txt"));
+			assertFalse(zip.isMultiRelease());
+
+			MappedZipFile.Entry stored = zip.getEntry("dir/stored.txt");
+			assertEquals(MappedZipFile.METHOD_STORED, stored.getMethod());
+			assertEquals(STORED_DATA.length, stored.getSize());
+			assertEquals(crc(STORED_DATA), stored.getCrc());
+
+			MappedZipFile.Entry deflated = zip.getEntry("deflated.txt");
+			assertEquals(MappedZipFile.METHOD_DEFLATED, deflated.getMethod());
+			assertEquals(DEFLATED_DATA.length, deflated.getSize());
+			assertTrue(deflated.getCompressedSize() < deflated.getSize());
+		}
+	}
+
+	@Test
+	public void readsStoredEntries() throws IOException {
+		try (MappedZipFile zip = MappedZipFile.open(writeTestZip())) {
+			MappedZipFile.Entry entry = zip.getEntry("dir/stored.txt");
+
+			assertArrayEquals(STORED_DATA, zip.getBytes(entry));
+			assertArrayEquals(STORED_DATA, toArray(zip.getData(entry)));
+			assertArrayEquals(STORED_DATA, toArray(zip.getRawData(entry)));
+			assertArrayEquals(STORED_DATA, toArray(zip.getStoredDataView(entry)));
+
+			// only the view refers to the mapping
+			assertTrue(zip.getData(entry).hasArray());
+			assertTrue(zip.getRawData(entry).hasArray());
+			assertTrue(zip.getStoredDataView(entry).isDirect());
+		}
+	}
+
+	@Test
+	public void readsDeflatedEntries() throws IOException {
+		try (MappedZipFile zip = MappedZipFile.open(writeTestZip())) {
+			MappedZipFile.Entry entry = zip.getEntry("deflated.txt");
+
+			assertArrayEquals(DEFLATED_DATA, zip.getBytes(entry));
+			assertArrayEquals(DEFLATED_DATA, toArray(zip.getData(entry)));
+			assertEquals(entry.getCompressedSize(), zip.getRawData(entry).remaining());
+			assertThrows(IllegalArgumentException.class, () -> zip.getStoredDataView(entry));
+
+			// direct targets are filled in chunks
+			ByteBuffer direct = ByteBuffer.allocateDirect((int) entry.getSize() + 1);
+			zip.getData(entry, direct);
+			assertEquals(entry.getSize(), direct.position());
+			direct.flip();
+			assertArrayEquals(DEFLATED_DATA, toArray(direct));
+		}
+	}
+
+	@Test
+	public void readsNestedZipFromBuffer() throws IOException {
+		byte[] inner = Files.readAllBytes(writeTestZip());
+		Path outer = root.resolve("outer.zip");
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(outer))) {
+			putStored(zos, "inner.jar", inner);
+		}
+
+		try (MappedZipFile zip = MappedZipFile.open(outer)) {
+			MappedZipFile nested = MappedZipFile.open(zip.getStoredDataView(zip.getEntry("inner.jar")));
+			assertArrayEquals(DEFLATED_DATA, nested.getBytes(nested.getEntry("deflated.txt")));
+
+			// the buffer is owned by the outer zip file
+			nested.close();
+			assertArrayEquals(inner, zip.getBytes(zip.getEntry("inner.jar")));
+		}
+	}
+
+	@Test
+	public void toleratesPrependedData() throws IOException {
+		byte[] zipData = Files.readAllBytes(writeTestZip());
+		byte[] data = new byte[100 + zipData.length];
+		System.arraycopy(zipData, 0, data, 100, zipData.length);
+		Path file = root.resolve("prefixed.zip");
+		Files.write(file, data);
+
+		try (MappedZipFile zip = MappedZipFile.open(file)) {
+			assertArrayEquals(STORED_DATA, zip.getBytes(zip.getEntry("dir/stored.txt")));
+			assertArrayEquals(DEFLATED_DATA, zip.getBytes(zip.getEntry("deflated.txt")));
+		}
+	}
+
+	@Test
+	public void rejectsZip64() throws IOException {
+		// more than 0xfffe entries forces a zip64 end of central directory record
+		Path file = root.resolve("zip64.zip");
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(file))) {
+			for (int i = 0; i < 0x10000; i++) {
+				putStored(zos, "e" + i, new byte[0]);
+			}
+		}
+
+		ZipException e = assertThrows(ZipException.class, () -> MappedZipFile.open(file));
+		assertTrue(e.getMessage().contains("zip64"), e.getMessage());
+	}
+
+	@Test
+	public void rejectsTruncatedFile() throws IOException {
+		byte[] data = Files.readAllBytes(writeTestZip());
+
+		// cut into the central directory
+		Path truncated = root.resolve("truncated.zip");
+		Files.write(truncated, Arrays.copyOf(data, data.length - 30));
+		assertThrows(ZipException.class, () -> MappedZipFile.open(truncated));
+
+		// keep the end of central directory record but drop the start of the file
+		Path headless = root.resolve("headless.zip");
+		Files.write(headless, Arrays.copyOfRange(data, 64, data.length));
+		assertThrows(ZipException.class, () -> {
+			try (MappedZipFile zip = MappedZipFile.open(headless)) {
+				zip.getBytes(zip.getEntry("deflated.txt"));
+			}
+		});
+
+		Path empty = root.resolve("empty.zip");
+		Files.write(empty, new byte[0]);
+		assertThrows(ZipException.class, () -> MappedZipFile.open(empty));
+	}
+
+	@Test
+	public void closeReleasesMapping() throws IOException {
+		Path file = writeTestZip();
+		MappedZipFile zip = MappedZipFile.open(file);
+		MappedZipFile.Entry entry = zip.getEntry("deflated.txt");
+		assertNotNull(entry);
+
+		zip.close();
+		zip.close();
+		assertTrue(zip.isClosed());
+		assertThrows(IllegalStateException.class, () -> zip.getBytes(entry));
+		assertThrows(IllegalStateException.class, () -> zip.getRawData(entry));
+
+		// the file can be replaced once the mapping is gone
+		Files.write(file, new byte[0]);
+		Files.delete(file);
+	}
+
+	@Test
+	public void overwrittenFileFailsReads() throws IOException {
+		Path file = writeTestZip();
+
+		try (MappedZipFile zip = MappedZipFile.open(file)) {
+			MappedZipFile.Entry entry = zip.getEntry("deflated.txt");
+
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.truncate(0);
+			} catch (IOException e) {
+				return; // mapped files can't be truncated on Windows, so the fault can't occur there
+			}
+
+			// accessing the truncated mapping faults, which has to surface like ZipFile's errors instead of crashing
+			assertThrows(IOException.class, () -> zip.getBytes(entry));
+			assertThrows(IOException.class, () -> zip.getRawData(zip.getEntry("dir/stored.txt")));
+		}
+	}
+
+	private Path writeTestZip() throws IOException {
+		Path ret = Files.createTempFile(root, "test", ".zip");
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(ret))) {
+			zos.putNextEntry(new ZipEntry("dir/"));
+			zos.closeEntry();
+			putStored(zos, "dir/stored.txt", STORED_DATA);
+			zos.putNextEntry(new ZipEntry("deflated.txt"));
+			zos.write(DEFLATED_DATA);
+			zos.closeEntry();
+		}
+
+		return ret;
+	}
+
+	private static void putStored(ZipOutputStream zos, String name, byte[] data) throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(data.length);
+		entry.setCrc(crc(data) & 0xffffffffL);
+		zos.putNextEntry(entry);
+		zos.write(data);
+		zos.closeEntry();
+	}
+
+	private static int crc(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		return (int) crc.getValue();
+	}
+
+	private static byte[] toArray(ByteBuffer buffer) {
+		byte[] ret = new byte[buffer.remaining()];
+		buffer.duplicate().get(ret);
+
+		return ret;
+	}
+
+	private static byte[] repeat(String s, int count) {
+		StringBuilder ret = new StringBuilder(s.length() * count);
+
+		for (int i = 0; i < count; i++) {
+			ret.append(s);
+		}
+
+		return ret.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -16,10 +16,12 @@
 
 package net.fabricmc.test;
 
+import java.lang.reflect.Proxy;
 import java.util.function.Predicate;
 
 import org.jetbrains.annotations.Nullable;
 
+import net.fabricmc.loader.api.SemanticVersion;
 import net.fabricmc.loader.api.Version;
 import net.fabricmc.loader.api.VersionParsingException;
 import net.fabricmc.loader.impl.util.version.SemanticVersionImpl;
@@ -59,6 +61,21 @@ public class VersionParsingTests {
 		}
 	}
 
+	private static int compare(String a, String b) throws VersionParsingException {
+		return Integer.signum(new SemanticVersionImpl(a, true).compareTo((Version) new SemanticVersionImpl(b, true)));
+	}
+
+	/**
+	 * Compare through the generic {@link SemanticVersion} path, which is also the benchmarks' reference comparison.
+	 */
+	private static int compareGeneric(String a, String b) throws VersionParsingException {
+		SemanticVersionImpl other = new SemanticVersionImpl(b, true);
+		Version foreign = (Version) Proxy.newProxyInstance(VersionParsingTests.class.getClassLoader(), new Class<?>[] { SemanticVersion.class },
+				(proxy, method, methodArgs) -> method.invoke(other, methodArgs));
+
+		return Integer.signum(new SemanticVersionImpl(a, true).compareTo(foreign));
+	}
+
 	public static void main(String[] args) throws Exception {
 		// Test: Semantic version creation.
 		testTrue(tryParseSemantic("0.3.5", false));
@@ -318,5 +335,60 @@ public class VersionParsingTests {
 			testFalse(predicate.test(new SemanticVersionImpl("2.0.0", false)));
 			testFalse(predicate.test(new SemanticVersionImpl("2.0.0-beta.2", false)));
 		}
+
+		// Test: pre-release identifier ordering.
+		testTrue(compare("1.0.0-1", "1.0.0-alpha") < 0); // numeric before alphanumeric
+		testTrue(compare("1.0.0-alpha", "1.0.0-1") > 0);
+		testTrue(compare("1.0.0-beta.2", "1.0.0-beta.11") < 0); // numeric order, not lexical
+		testTrue(compare("1.0.0-beta.11", "1.0.0-beta.x") < 0);
+		testTrue(compare("1.0.0-beta.02", "1.0.0-beta.1") > 0); // leading zero makes it alphanumeric
+		testTrue(compare("1.0.0-Alpha", "1.0.0-alpha") < 0); // ASCII order
+		testTrue(compare("1.0.0-rc-1", "1.0.0-rc.1") > 0); // "rc-1" is a single identifier after "rc"
+
+		// Test: numeric pre-release identifiers too long for a long.
+		testTrue(compare("1.0.0-1234567890123456789012", "1.0.0-99") > 0);
+		testTrue(compare("1.0.0-99", "1.0.0-1234567890123456789012") < 0);
+		testTrue(compare("1.0.0-9999999999999999999", "1.0.0-999999999999999999") > 0); // 19 vs 18 digits
+		testTrue(compare("1.0.0-999999999999999999", "1.0.0-1000000000000000000") < 0);
+		testTrue(compare("1.0.0-1234567890123456789012", "1.0.0-1234567890123456789013") < 0);
+		testTrue(compare("1.0.0-1234567890123456789012", "1.0.0-1234567890123456789012") == 0);
+		testTrue(compare("1.0.0-1234567890123456789012", "1.0.0-a") < 0);
+
+		// Test: differing pre-release identifier and version component counts.
+		testTrue(compare("1.0.0-alpha", "1.0.0-alpha.1") < 0);
+		testTrue(compare("1.0.0-alpha.1.0", "1.0.0-alpha.1") > 0);
+		testTrue(compare("1.0.0-alpha.beta", "1.0.0-alpha.1") > 0);
+		testTrue(compare("1.0.0-", "1.0.0-alpha") < 0);
+		testTrue(compare("1.0.0-", "1.0.0") < 0);
+		testTrue(compare("1.0", "1.0.0") == 0);
+		testTrue(compare("1.0.0.1", "1.0.0") > 0);
+		testTrue(compare("1.2.3.4.5", "1.2.3.4.6") < 0);
+		testTrue(compare("1.2.3.4.5-rc.1", "1.2.3.4.5") < 0);
+
+		// Test: wildcard versions against pre-releases.
+		testTrue(compare("1.x", "1.2.0-beta.1") == 0);
+		testTrue(compare("1.2.0-beta.1", "1.x") == 0);
+		testTrue(compare("1.2.x", "1.2.3-rc.1") == 0);
+		testTrue(compare("1.x", "2.0.0-beta.1") < 0);
+		testTrue(compare("2.0.0-beta.1", "1.x") > 0);
+		testTrue(compare("1.2.x", "1.3.0-alpha") < 0);
+
+		// Test: the optimized comparison matches the generic one for every pair.
+		{
+			String[] versions = { "1.0.0", "1.0", "1.0.0.1", "1.2.3.4.5", "1.2.3.4.6-rc.1", "1.0.0-", "1.0.0-1", "1.0.0-01", "1.0.0-alpha",
+					"1.0.0-alpha.1", "1.0.0-alpha.1.0", "1.0.0-alpha.beta", "1.0.0-beta.2", "1.0.0-beta.11", "1.0.0-beta.x",
+					"1.0.0-99", "1.0.0-999999999999999999", "1.0.0-9999999999999999999", "1.0.0-1234567890123456789012",
+					"1.0.0-rc.1+build.5", "1.x", "1.2.x", "1.2.0-beta.1", "1.2.3-rc.1", "2.0.0-beta.1", "2.x", "0.3.5+build.3000" };
+
+			for (String a : versions) {
+				for (String b : versions) {
+					if (compare(a, b) != compareGeneric(a, b)) {
+						throw new RuntimeException("Test failed! " + a + " vs " + b + ": " + compare(a, b) + " != " + compareGeneric(a, b));
+					}
+
+					testTrue(compare(a, b) == -compare(b, a));
+				}
+			}
+		}
 	}
 }